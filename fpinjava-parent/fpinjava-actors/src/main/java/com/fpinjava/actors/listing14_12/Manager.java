@@ -1,14 +1,13 @@
 package com.fpinjava.actors.listing14_12;
 
 
+import com.fpinjava.actors.ReorderBuffer;
 import com.fpinjava.common.Effect;
 import com.fpinjava.common.Executable;
 import com.fpinjava.common.Function;
-import com.fpinjava.common.Heap;
 import com.fpinjava.common.List;
 import com.fpinjava.common.Result;
 import com.fpinjava.common.Tuple;
-import com.fpinjava.common.Tuple3;
 
 public class Manager extends AbstractActor<Tuple<Integer, Integer>> {
 
@@ -16,54 +15,73 @@ public class Manager extends AbstractActor<Tuple<Integer, Integer>> {
   private final int workers;
   private final List<Tuple<Integer, Integer>> initial;
   private final List<Tuple<Integer, Integer>> workList;
-  private final Heap<Tuple<Integer, Integer>> resultHeap;
+  private final ReorderBuffer<Integer> results;
   private final Function<Manager, Function<Behavior, Effect<Tuple<Integer, Integer>>>> managerFunction;
   private final int limit;
 
   public Manager(String id, List<Integer> list, Actor<Integer> client, int workers) {
+    this(id, list, client, workers, 1);
+  }
+
+  /*
+   * Each worker is given prefetch tasks to start with, and then a new one for
+   * each result it sends back, so that it never waits for the manager while
+   * at most workers * prefetch tasks, and as many out of order results, are
+   * pending at any time.
+   */
+  public Manager(String id, List<Integer> list, Actor<Integer> client, int workers, int prefetch) {
     super(id, Type.SERIAL);
     this.client = client;
     this.workers = workers;
     this.limit = list.length() - 1;
-    Tuple<List<Tuple<Integer, Integer>>, List<Tuple<Integer, Integer>>> splitLists = list.zipWithPosition().splitAt(this.workers);
+    Tuple<List<Tuple<Integer, Integer>>, List<Tuple<Integer, Integer>>> splitLists = list.zipWithPosition().splitAt(this.workers * prefetch);
     this.initial = splitLists._1;
     this.workList = splitLists._2;
-    this.resultHeap = Heap.empty((t1, t2) -> t1._2.compareTo(t2._2));
+    this.results = new ReorderBuffer<>();
 
+    /*
+     * The reorder buffer is only touched by this function, which the serial
+     * mailbox of the manager never runs concurrently, so it needs not be
+     * part of the immutable behavior.
+     */
     managerFunction = manager -> behavior -> t -> {
-      Tuple3<Heap<Tuple<Integer, Integer>>, Integer, List<Integer>> result =
-          streamResult(behavior.resultHeap.insert(t),
-              behavior.expected, List.list());
-      result._3.reverse().forEach(this.client::tell);
-      if (result._2 > limit) {
+      this.client.tellAll(results.add(t._2, t._1));
+      if (results.next() > limit) {
         this.client.tell(-1);
       } else {
         manager.getContext()
             .become(new Behavior(behavior.workList.tailOption()
-                .getOrElse(List.list()), result._1, result._2));
+                .getOrElse(List.list())));
       }
     };
   }
 
-  private Tuple3<Heap<Tuple<Integer, Integer>>, Integer, List<Integer>> streamResult(Heap<Tuple<Integer, Integer>> result, int expected, List<Integer> list) {
-    Tuple3<Heap<Tuple<Integer, Integer>>, Integer, List<Integer>> tuple3 = new Tuple3<>(result, expected, list);
-    Result<Tuple3<Heap<Tuple<Integer, Integer>>, Integer, List<Integer>>> temp = result.head().flatMap(head ->
-        result.tail().map(tail -> head._2 == expected
-            ? streamResult(tail, expected + 1, list.cons(head._1))
-            : tuple3));
-    return temp.getOrElse(tuple3);
+  /*
+   * Number of results received out of order and waiting for an earlier one.
+   */
+  public int pendingResults() {
+    return results.pending();
+  }
+
+  public int maxPendingResults() {
+    return results.maxPending();
   }
 
   public void start() {
     onReceive(new Tuple<>(0, 0), self());
-    initial.sequence(this::initWorker)
+    List.range(0, workers)
+        .map(i -> new Tuple<>(i, initial.zipWithPosition().filter(t -> t._2 % workers == i).map(t -> t._1)))
+        .filter(tasks -> !tasks._2.isEmpty())
+        .sequence(this::initWorker)
         .forEachOrFail(this::initWorkers)
         .forEach(this::tellClientEmptyResult);
   }
 
-  private Result<Executable> initWorker(Tuple<Integer, Integer> t) {
-    return Result.success(() -> new Worker("Worker " + t._2,
-        Type.SERIAL).tell(new Tuple<>(t._1, t._2), self()));
+  private Result<Executable> initWorker(Tuple<Integer, List<Tuple<Integer, Integer>>> tasks) {
+    return Result.success(() -> {
+      Worker worker = new Worker("Worker " + tasks._1, Type.SERIAL);
+      tasks._2.forEach(t -> worker.tell(t, self()));
+    });
   }
 
   private void initWorkers(List<Executable> lst) {
@@ -77,20 +95,15 @@ public class Manager extends AbstractActor<Tuple<Integer, Integer>> {
   @Override
   public void onReceive(Tuple<Integer, Integer> message,
                         Result<Actor<Tuple<Integer, Integer>>> sender) {
-    getContext().become(new Behavior(workList, resultHeap, 0));
+    getContext().become(new Behavior(workList));
   }
 
   class Behavior implements MessageProcessor<Tuple<Integer, Integer>> {
 
     private final List<Tuple<Integer, Integer>> workList;
-    private final Heap<Tuple<Integer, Integer>> resultHeap;
-    private final int expected;
 
-    private Behavior(List<Tuple<Integer, Integer>> workList,
-                     Heap<Tuple<Integer, Integer>> resultHeap, int expected) {
+    private Behavior(List<Tuple<Integer, Integer>> workList) {
       this.workList = workList;
-      this.resultHeap = resultHeap;
-      this.expected = expected;
     }
 
     @Override
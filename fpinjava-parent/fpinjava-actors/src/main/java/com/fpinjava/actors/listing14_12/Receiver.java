@@ -1,28 +1,16 @@
 package com.fpinjava.actors.listing14_12;
 
 
-import com.fpinjava.common.Effect;
-import com.fpinjava.common.Function;
 import com.fpinjava.common.List;
 import com.fpinjava.common.Result;
 
 public class Receiver extends AbstractActor<Integer> {
 
   private final Actor<List<Integer>> client;
-  private final Function<Receiver, Function<Behavior, Effect<Integer>>> receiverFunction;
 
   public Receiver(String id, Type type, Actor<List<Integer>> client) {
     super(id, type);
     this.client = client;
-    receiverFunction = receiver -> behavior -> i -> {
-      if (i == -1) {
-        this.client.tell(behavior.resultList.reverse());
-        shutdown();
-      } else {
-        receiver.getContext()
-            .become(new Behavior(behavior.resultList.cons(i)));
-      }
-    };
   }
 
   @Override
@@ -30,7 +18,12 @@ public class Receiver extends AbstractActor<Integer> {
     getContext().become(new Behavior(List.list(i)));
   }
 
-  class Behavior implements MessageProcessor<Integer> {
+  /*
+   * Results streamed by the manager arrive in batches, so the list is built
+   * locally and the behavior changed once per batch instead of once per
+   * result.
+   */
+  class Behavior implements BatchMessageProcessor<Integer> {
 
     private final List<Integer> resultList;
 
@@ -39,8 +32,15 @@ public class Receiver extends AbstractActor<Integer> {
     }
 
     @Override
-    public void process(Integer i, Result<Actor<Integer>> sender) {
-      receiverFunction.apply(Receiver.this).apply(Behavior.this).apply(i);
+    public void processAll(List<Integer> messages, Result<Actor<Integer>> sender) {
+      List<Integer> results = messages.takeWhile(i -> i != -1);
+      List<Integer> list = results.foldLeft(resultList, acc -> acc::cons);
+      if (results.length() < messages.length()) {
+        client.tell(list.reverse());
+        shutdown();
+      } else {
+        getContext().become(new Behavior(list));
+      }
     }
   }
 }
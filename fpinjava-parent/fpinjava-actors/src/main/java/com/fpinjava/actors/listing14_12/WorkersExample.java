@@ -11,6 +11,7 @@ public class WorkersExample {
   private static final Semaphore semaphore = new Semaphore(1);
   private static int listLength = 200_000;
   private static int workers = 4;
+  private static int prefetch = 2;
   private static final List<Integer> testList = SimpleRNG.doubles(listLength, new SimpleRNG.Simple(3))._1.map(x -> (int) (x * 30)).reverse();
 
   public static void main(String... args) throws InterruptedException {
@@ -27,9 +28,12 @@ public class WorkersExample {
     };
 
     final Receiver receiver = new Receiver("Receiver", Actor.Type.SERIAL, client);
-    final Manager manager = new Manager("Manager", testList, receiver, workers);
+    final Manager manager = new Manager("Manager", testList, receiver, workers, prefetch);
     manager.start();
     semaphore.acquire();
+    System.out.println("Manager: " + manager.metrics());
+    System.out.println("Pending results: " + manager.pendingResults() + ", max: " + manager.maxPendingResults());
+    System.out.println("Receiver: " + receiver.metrics());
   }
 
   private static void processFailure(String s) {
@@ -309,7 +309,7 @@ public class Countdown0 {
     return Op.ops.filter(op -> op.valid_(lx.value, ry.value)).map(op -> new Solution(Expr.expr(op, lx.expr, ry.expr), apply(op, lx.value, ry.value)));
   }
 
-  private static List<Expr> solutions_(List<Integer> ns, int n) {
+  static List<Expr> solutions_(List<Integer> ns, int n) {
     return choices(ns).flatMap(ns_ -> results_(ns_).filter(e -> e.value == n)).map(solution -> solution.expr);
   }
 
@@ -300,7 +300,7 @@ public class Countdown2 {
   }
 
 
-  private static List<Expr> solutions_(List<Integer> ns, int n) {
+  static List<Expr> solutions_(List<Integer> ns, int n) {
     return choices(ns).flatMap(ns_ -> results_(ns_).filter(e -> e.value == n)).map(solution -> solution.expr);
   }
 
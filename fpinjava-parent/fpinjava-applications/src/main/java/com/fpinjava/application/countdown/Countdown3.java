@@ -233,7 +233,7 @@ public class Countdown3 {
   }
 
 
-  private static List<Expr> solutions_(List<Integer> ns, int n) {
+  static List<Expr> solutions_(List<Integer> ns, int n) {
     return ns.choices().flatMap(ns_ -> results_(ns_).filter(e -> e.value == n)).map(solution -> solution.expr);
   }
 
@@ -0,0 +1,431 @@
+package com.fpinjava.application.countdown;
+
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Nothing;
+import com.fpinjava.common.Result;
+import com.fpinjava.io.Console;
+import com.fpinjava.io.IO;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Countdown3 computes the results of a list of numbers once for each of its
+ * permutations, and recomputes the results of each sub-list for every split
+ * in which it appears. This version computes the results of each sub-multiset
+ * of the given numbers exactly once, from the smallest to the largest. The
+ * results of a multiset are made by combining the results of each way of
+ * splitting it into two smaller multisets, which are already known. All the
+ * splits of the multisets of a given size are combined in parallel on a
+ * ForkJoinPool.
+ *
+ * Since all permutations are covered by the splits, an expression is only
+ * built once for each multiset, instead of once for each permutation (or more
+ * with duplicate numbers). Results are stored in arrays, and expressions for
+ * the largest multiset, which are never reused, are only built if they are
+ * solutions.
+ */
+public class Countdown4 {
+
+  private static IO<Long> getCpuTime() {
+    return System::currentTimeMillis;
+  }
+
+  private static Result<Integer> read(String s) {
+    return Result.of(() -> Integer.valueOf(s)).mapFailure("Invalid numeric format: " + s);
+  }
+
+  private static Result<List<Integer>> readNumbers(String s) {
+    return List.sequence(List.words(s).map(Countdown4::read));
+  }
+
+  /*
+   * On top of the rules of Countdown3 (commutativity and identity elements),
+   * x - y and x / y are rejected when their value is y: such an expression
+   * may always be replaced by y itself, which uses fewer numbers.
+   */
+  private static abstract class Op {
+    abstract boolean valid(int x, int y);
+    abstract int apply(int x, int y);
+    public static Op add = new Add();
+    public static Op sub = new Sub();
+    public static Op mul = new Mul();
+    public static Op div = new Div();
+    public static Op[] ops = {add, sub, mul, div};
+  }
+
+  private static class Add extends Op {
+    @Override
+    boolean valid(int x, int y) {
+      return x <= y;
+    }
+
+    @Override
+    int apply(int x, int y) {
+      return x + y;
+    }
+
+    @Override
+    public String toString() {
+      return "+";
+    }
+  }
+
+  private static class Sub extends Op {
+    @Override
+    boolean valid(int x, int y) {
+      return x > y && x - y != y;
+    }
+
+    @Override
+    int apply(int x, int y) {
+      return x - y;
+    }
+
+    @Override
+    public String toString() {
+      return "-";
+    }
+  }
+
+  private static class Mul extends Op {
+    @Override
+    boolean valid(int x, int y) {
+      return x != 1 && y != 1 && x <= y;
+    }
+
+    @Override
+    int apply(int x, int y) {
+      return x * y;
+    }
+
+    @Override
+    public String toString() {
+      return "*";
+    }
+  }
+
+  private static class Div extends Op {
+    @Override
+    boolean valid(int x, int y) {
+      return y != 1 && x % y == 0 && x / y != y;
+    }
+
+    @Override
+    int apply(int x, int y) {
+      return x / y;
+    }
+
+    @Override
+    public String toString() {
+      return "/";
+    }
+  }
+
+  private static abstract class Expr {
+
+    public static Expr expr(int n) {
+      return new Simple(n);
+    }
+
+    public static Expr expr(Op op, Expr expr1, Expr expr2) {
+      return new Composite(op, expr1, expr2);
+    }
+
+    public static class Simple extends Expr {
+      public final int value;
+
+      private Simple(int value) {
+        this.value = value;
+      }
+
+      @Override
+      public String toString() {
+        return Integer.toString(value);
+      }
+    }
+
+    public static class Composite extends Expr {
+      public final Op op;
+      public final Expr l;
+      public final Expr r;
+
+      private Composite(Op op, Expr x, Expr y) {
+        this.op = op;
+        this.l = x;
+        this.r = y;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("(%s %s %s)", l, op, r);
+      }
+    }
+  }
+
+  /*
+   * The results of a multiset, as two parallel arrays.
+   */
+  private static class Results {
+    private Expr[] exprs = new Expr[16];
+    private int[] values = new int[16];
+    private int size;
+
+    private void add(Expr expr, int value) {
+      if (size == values.length) {
+        exprs = Arrays.copyOf(exprs, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      exprs[size] = expr;
+      values[size++] = value;
+    }
+
+    private void addAll(Results results) {
+      for (int i = 0; i < results.size; i++) {
+        add(results.exprs[i], results.values[i]);
+      }
+    }
+  }
+
+  /*
+   * What the combination of one split produced: the results, if they are to
+   * be kept, and the solutions, in reverse order.
+   */
+  private static class Part {
+    private final Results results;
+    private List<Expr> solutions = List.list();
+
+    private Part(boolean keep) {
+      this.results = keep ? new Results() : null;
+    }
+  }
+
+  /*
+   * The given numbers are sorted, and a multiset is the bit mask of the
+   * positions of its numbers. Equal numbers are adjacent, and a multiset
+   * holding k of them always uses the first k positions, so that each
+   * multiset has a single mask.
+   */
+  private static class Solver {
+    private static final int MAX_NUMBERS = 16;
+    private final int[] numbers;
+    private final int target;
+    private final boolean firstOnly;
+    private final ForkJoinPool pool;
+    private final Results[] memo;
+    private final AtomicBoolean found = new AtomicBoolean();
+
+    private Solver(List<Integer> ns, int target, boolean firstOnly, ForkJoinPool pool) {
+      this.numbers = ns.toJavaList().stream().mapToInt(Integer::intValue).sorted().toArray();
+      if (numbers.length > MAX_NUMBERS) {
+        throw new IllegalArgumentException(String.format("At most %s numbers may be given", MAX_NUMBERS));
+      }
+      this.target = target;
+      this.firstOnly = firstOnly;
+      this.pool = pool;
+      this.memo = new Results[1 << numbers.length];
+    }
+
+    private List<Expr> solve() {
+      List<Expr> solutions = List.list();
+      for (int size = 1; size <= numbers.length && !(firstOnly && found.get()); size++) {
+        List<Integer> multisets = multisets(size);
+        boolean keep = size < numbers.length;
+        List<Part> parts = size == 1
+            ? multisets.map(this::leaf)
+            : combineAll(multisets, keep);
+        if (keep) {
+          gather(multisets, parts);
+        }
+        solutions = parts.foldLeft(solutions, acc -> part -> part.solutions.concat(acc));
+      }
+      return solutions.reverse();
+    }
+
+    private List<Part> combineAll(List<Integer> multisets, boolean keep) {
+      Result<List<Part>> result = multisets.flatMap(s -> splits(s).map(l -> new int[] {s, l}))
+          .parMap(pool, split -> combine(split[0], split[1], keep));
+      if (result.isFailure()) {
+        throw new IllegalStateException("Countdown search failed", result.failureValue());
+      }
+      return result.successValue();
+    }
+
+    private Part leaf(int s) {
+      Part part = new Part(true);
+      int n = numbers[Integer.numberOfTrailingZeros(s)];
+      if (n > 0) {
+        Expr expr = Expr.expr(n);
+        part.results.add(expr, n);
+        if (n == target) {
+          found.set(true);
+          part.solutions = List.list(expr);
+        }
+      }
+      return part;
+    }
+
+    /*
+     * Stores the results of each multiset, whose parts follow each other in
+     * the same order as the multisets.
+     */
+    private void gather(List<Integer> multisets, List<Part> parts) {
+      Iterator<Part> remaining = parts.toJavaList().iterator();
+      for (int s : multisets.toJavaList()) {
+        Results results = new Results();
+        int count = Integer.bitCount(s) == 1 ? 1 : splits(s).length();
+        for (int i = 0; i < count; i++) {
+          results.addAll(remaining.next().results);
+        }
+        memo[s] = results;
+      }
+    }
+
+    private Part combine(int s, int l, boolean keep) {
+      Part part = new Part(keep);
+      Results left = memo[l];
+      Results right = memo[canonical(s & ~l)];
+      for (int i = 0; i < left.size && !(firstOnly && found.get()); i++) {
+        int x = left.values[i];
+        for (int j = 0; j < right.size; j++) {
+          int y = right.values[j];
+          for (Op op : Op.ops) {
+            if (op.valid(x, y)) {
+              int value = op.apply(x, y);
+              if (keep || value == target) {
+                Expr expr = Expr.expr(op, left.exprs[i], right.exprs[j]);
+                if (keep) {
+                  part.results.add(expr, value);
+                }
+                if (value == target) {
+                  found.set(true);
+                  part.solutions = part.solutions.cons(expr);
+                }
+              }
+            }
+          }
+        }
+      }
+      return part;
+    }
+
+    private List<Integer> multisets(int size) {
+      List<Integer> result = List.list();
+      for (int s = memo.length - 1; s > 0; s--) {
+        if (Integer.bitCount(s) == size && s == canonical(s)) {
+          result = result.cons(s);
+        }
+      }
+      return result;
+    }
+
+    /*
+     * The left parts of the splits of s, each multiset being taken once,
+     * whatever the positions of the equal numbers it holds.
+     */
+    private List<Integer> splits(int s) {
+      List<Integer> result = List.list();
+      for (int l = (s - 1) & s; l > 0; l = (l - 1) & s) {
+        if (isPrefix(l, s)) {
+          result = result.cons(l);
+        }
+      }
+      return result;
+    }
+
+    /*
+     * Whether l takes, among the positions of s holding a given number, the
+     * first ones.
+     */
+    private boolean isPrefix(int l, int s) {
+      for (int i = 1; i < numbers.length; i++) {
+        if ((l & 1 << i) != 0 && numbers[i - 1] == numbers[i]) {
+          int j = i - 1;
+          while (j >= 0 && numbers[j] == numbers[i] && (s & 1 << j) == 0) {
+            j--;
+          }
+          if (j >= 0 && numbers[j] == numbers[i] && (l & 1 << j) == 0) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private int canonical(int s) {
+      int result = 0;
+      int i = 0;
+      while (i < numbers.length) {
+        int j = i;
+        int count = 0;
+        while (j < numbers.length && numbers[j] == numbers[i]) {
+          if ((s & 1 << j) != 0) {
+            count++;
+          }
+          j++;
+        }
+        for (int k = i; k < i + count; k++) {
+          result |= 1 << k;
+        }
+        i = j;
+      }
+      return result;
+    }
+  }
+
+  static List<Expr> solutions(List<Integer> ns, int n, ForkJoinPool pool) {
+    return new Solver(ns, n, false, pool).solve();
+  }
+
+  /*
+   * Stops as soon as a solution is found. The multisets are searched by
+   * increasing size, so it is one of the shortest solutions.
+   */
+  static Result<Expr> firstSolution(List<Integer> ns, int n, ForkJoinPool pool) {
+    return new Solver(ns, n, true, pool).solve().headOption();
+  }
+
+  private static IO<Nothing> display(List<Integer> ns, int n) {
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    return getCpuTime().flatMap(t0 -> IO.unit(firstSolution(ns, n, pool)).flatMap(first -> getCpuTime()
+        .flatMap(t1 -> first.map(expr -> displayFirstSolutionIO(expr, t1 - t0)
+            .flatMap(x -> Console.readLine("\nPress return to search all solutions..."))
+            .flatMap(x -> getCpuTime())
+            .flatMap(t2 -> IO.unit(solutions(ns, n, pool))
+                .flatMap(exprs -> getCpuTime().flatMap(t3 -> displaySolutionsWithTime(exprs, t3 - t2))))).getOrElse(displayNoSolutionIO(t1 - t0)))));
+  }
+
+  private static IO<Nothing> displayFirstSolutionIO(Expr expr, long time) {
+    return Console.printLine(String.format("\nOne possible solution is %s, found in %s ms.", expr, time));
+  }
+
+  private static IO<Nothing> displayNoSolutionIO(long time) {
+    return Console.printLine(String.format("\nThere are no solutions, verified in %s ms.", time));
+  }
+
+  private static IO<Nothing> displaySolutionsWithTime(List<Expr> exprs, long time) {
+    return Console.printLine(String.format("There are %s solutions in total, found in %s ms.", exprs.length(), time));
+  }
+
+  public static void main(String... args) {
+    // 6 50 75 25 5 3
+    // 298
+    doMain().run();
+  }
+
+  private static IO<Nothing> doMain() {
+    return Console.printLine("\nCOUNTDOWN NUMBERS GAME SOLVER")
+                  .flatMap(x -> Console.printLine("-----------------------------\n"))
+                  .flatMap(x -> Console.print("Enter the given numbers: "))
+                  .flatMap(Console::readLine)
+                  .map(Countdown4::readNumbers)
+                  .flatMap(ns -> Console.print("Enter the target number: ")
+                                        .flatMap(Console::readLine)
+                                        .map(Countdown4::read)
+                                        .map(n -> ns.flatMap(ns_ -> n.map(n_ -> display(ns_, n_)))))
+                  .flatMap(r -> r.getOrElse(() -> Console.printLine(r.failureValue().getMessage())));
+  }
+}
@@ -0,0 +1,93 @@
+package com.fpinjava.application.countdown;
+
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Result;
+
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Measures, for each version of the solver, the time to the first solution
+ * and the time to all solutions of a few games, keeping the best of several
+ * runs after a warmup. Countdown0 to Countdown3 build the whole list of
+ * solutions before returning it, so their time to the first solution is
+ * their time to all solutions.
+ *
+ * Usage: CountdownBenchmark [runs]
+ */
+public class CountdownBenchmark {
+
+  private interface Search {
+    List<?> solutions(List<Integer> ns, int n);
+  }
+
+  private interface FirstSearch {
+    Result<?> first(List<Integer> ns, int n);
+  }
+
+  private static class Game {
+    private final List<Integer> numbers;
+    private final int target;
+
+    private Game(int target, Integer... numbers) {
+      this.numbers = List.list(numbers);
+      this.target = target;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s -> %s", numbers.toJavaList(), target);
+    }
+  }
+
+  private static final List<Game> games = List.list(
+      new Game(298, 6, 50, 75, 25, 5, 3),
+      new Game(765, 1, 3, 7, 10, 25, 50),
+      new Game(952, 25, 50, 75, 100, 3, 6),
+      new Game(831, 1, 1, 2, 2, 3, 3));
+
+  public static void main(String... args) {
+    int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+    ForkJoinPool pool = new ForkJoinPool();
+    System.out.println(String.format("%-11s %-32s %10s %10s %10s", "solver", "game", "first (ms)", "all (ms)", "solutions"));
+    games.forEach(game -> {
+      report("Countdown0", game, runs, Countdown0::solutions_);
+      report("Countdown1", game, runs, Countdown1::solutions_);
+      report("Countdown2", game, runs, Countdown2::solutions_);
+      report("Countdown3", game, runs, Countdown3::solutions_);
+      report("Countdown4", game, runs,
+          (ns, n) -> Countdown4.firstSolution(ns, n, pool),
+          (ns, n) -> Countdown4.solutions(ns, n, pool));
+    });
+    pool.shutdown();
+  }
+
+  private static void report(String name, Game game, int runs, Search search) {
+    long[] all = time(game, runs, search);
+    print(name, game, all[0], all[0], all[1]);
+  }
+
+  private static void report(String name, Game game, int runs, FirstSearch firstSearch, Search search) {
+    long first = time(game, runs, (ns, n) -> firstSearch.first(ns, n).map(List::list).getOrElse(List.list()))[0];
+    long[] all = time(game, runs, search);
+    print(name, game, first, all[0], all[1]);
+  }
+
+  /*
+   * Returns the best time in nanoseconds and the number of solutions.
+   */
+  private static long[] time(Game game, int runs, Search search) {
+    int count = search.solutions(game.numbers, game.target).length();
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < runs; i++) {
+      long start = System.nanoTime();
+      search.solutions(game.numbers, game.target);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return new long[] {best, count};
+  }
+
+  private static void print(String name, Game game, long first, long all, long count) {
+    System.out.println(String.format("%-11s %-32s %10.1f %10.1f %10s", name, game, first / 1e6, all / 1e6, count));
+  }
+}
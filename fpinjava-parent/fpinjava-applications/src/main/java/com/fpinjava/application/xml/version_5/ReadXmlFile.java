@@ -5,11 +5,20 @@ import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.StAXStreamBuilder;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public class ReadXmlFile {
 
@@ -48,4 +57,122 @@ public static <T> Executable readXmlFile(Supplier<FilePath> sPath,
       return Result.failure(String.format("Unexpected error while reading XML data %s", stringDoc), e);
     }
   }
+
+  /*
+   * Same as readXmlFile, but the elements are read from the file one at a
+   * time, and each result is handed to e as soon as it is available, so the
+   * file may be of any size. Processing stops at the first failure, which is
+   * thrown, after e was applied to the results preceding it.
+   */
+  public static <T> Executable processXmlFile(Supplier<FilePath> sPath,
+                                              Supplier<ElementName> sElementName,
+                                              Function<Element, Result<T>> f,
+                                              Effect<T> e) {
+    return () -> sPath.get().value
+        .flatMap(path -> sElementName.get().value
+            .flatMap(elementName -> streamXmlFile(path, elementName, f, stream -> {
+              stream.forEach(result -> result.forEachOrThrow(e));
+              return Nothing.instance;
+            })))
+        .forEachOrThrow(x -> {});
+  }
+
+  /*
+   * Applies g to the lazy stream of the results of f for the children of the
+   * root element named elementName, which are parsed one at a time with a
+   * StAX reader, so that only the current element is in memory. The stream
+   * ends after the first failure, either of f or of the parser, which is its
+   * last element. It is only valid inside g, and may be traversed once: the
+   * file is closed when g returns.
+   */
+  public static <T, U> Result<U> streamXmlFile(String path,
+                                               String elementName,
+                                               Function<Element, Result<T>> f,
+                                               Function<Stream<Result<T>>, U> g) {
+    final XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(Paths.get(path)))) {
+      final XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+      try {
+        return Result.success(g.apply(Stream.fromIterator(new Elements<>(reader, elementName, f))));
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      return Result.failure(String.format("IO error while reading file %s", path), e);
+    } catch (XMLStreamException e) {
+      return Result.failure(String.format("Invalid XML data in file %s", path), e);
+    }
+  }
+
+  private static final class Elements<T> implements Iterator<Result<T>> {
+
+    private final XMLStreamReader reader;
+    private final String elementName;
+    private final Function<Element, Result<T>> f;
+    private final StAXStreamBuilder builder = new StAXStreamBuilder();
+    private int depth;
+    private int count;
+    private boolean pending;
+    private boolean done;
+    private Result<T> next;
+
+    private Elements(XMLStreamReader reader, String elementName, Function<Element, Result<T>> f) {
+      this.reader = reader;
+      this.elementName = elementName;
+      this.f = f;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null && !done) {
+        next = readNext();
+        done = next == null || next.isFailure();
+      }
+      return next != null;
+    }
+
+    @Override
+    public Result<T> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Result<T> result = next;
+      next = null;
+      return result;
+    }
+
+    /*
+     * Returns null at the end of the document. fragment leaves the reader on
+     * the event following the end tag of the element it builds, which must be
+     * looked at before reading the next one.
+     */
+    private Result<T> readNext() {
+      try {
+        while (pending || reader.hasNext()) {
+          int event = pending ? reader.getEventType() : reader.next();
+          pending = false;
+          switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+              if (++depth == 2 && reader.getLocalName().equals(elementName)) {
+                depth--;
+                Element element = (Element) builder.fragment(reader);
+                count++;
+                pending = true;
+                return f.apply(element);
+              }
+              break;
+            case XMLStreamConstants.END_ELEMENT:
+              depth--;
+              break;
+            default:
+              break;
+          }
+        }
+        return null;
+      } catch (XMLStreamException | JDOMException e) {
+        return Result.failure(String.format("Invalid XML data after %s '%s' elements", count, elementName), e);
+      }
+    }
+  }
 }
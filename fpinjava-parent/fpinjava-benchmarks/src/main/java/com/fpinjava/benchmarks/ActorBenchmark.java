@@ -0,0 +1,248 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.actors.AbstractActor;
+import com.fpinjava.actors.Actor;
+import com.fpinjava.actors.BatchMessageProcessor;
+import com.fpinjava.common.List;
+import com.fpinjava.common.Result;
+import com.fpinjava.common.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The PingPong and WorkersExample scenarios of chapter 14, plus one with many
+ * mostly idle actors, run with each actor type. VIRTUAL actors fall back to
+ * the default dispatcher on JVMs without virtual threads. Only the SERIAL
+ * type exists in versions of fpinjava-common that predate VIRTUAL.
+ *
+ * tellEach and tellAll send the same messages to an actor keeping its state
+ * in an immutable behavior, one at a time or in chunks of BATCH messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActorBenchmark {
+
+  @Param({"SERIAL", "VIRTUAL"})
+  public String type;
+
+  @Param({"100000"})
+  public int messages;
+
+  @Param({"10000"})
+  public int actors;
+
+  private static final int WORKERS = 4;
+
+  private static final int BATCH = 100;
+
+  static class Player extends AbstractActor<Integer> {
+
+    private final int last;
+    private final CountDownLatch done;
+
+    Player(String id, Type type, int last, CountDownLatch done) {
+      super(id, type);
+      this.last = last;
+      this.done = done;
+    }
+
+    @Override
+    public void onReceive(Integer message, Result<Actor<Integer>> sender) {
+      if (message >= last) {
+        done.countDown();
+      } else {
+        sender.forEach(actor -> actor.tell(message + 1, self()));
+      }
+    }
+  }
+
+  @Benchmark
+  public void pingPong() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    Actor.Type actorType = Actor.Type.valueOf(type);
+    Player ping = new Player("Ping", actorType, messages, done);
+    Player pong = new Player("Pong", actorType, messages, done);
+    ping.tell(0, pong);
+    done.await();
+    ping.shutdown();
+    pong.shutdown();
+  }
+
+  static class Worker extends AbstractActor<Tuple<Integer, Integer>> {
+
+    Worker(String id, Type type) {
+      super(id, type);
+    }
+
+    @Override
+    public void onReceive(Tuple<Integer, Integer> message, Result<Actor<Tuple<Integer, Integer>>> sender) {
+      sender.forEach(a -> a.tell(new Tuple<>(fibo(message._1), message._2), self()));
+    }
+
+    private static int fibo(int number) {
+      int a = 0;
+      int b = 1;
+      for (int i = 0; i < number; i++) {
+        int c = a + b;
+        a = b;
+        b = c;
+      }
+      return b;
+    }
+  }
+
+  static class Manager extends AbstractActor<Tuple<Integer, Integer>> {
+
+    private final int total;
+    private final CountDownLatch done;
+    private int sent;
+    private int received;
+
+    Manager(String id, Type type, int total, CountDownLatch done) {
+      super(id, type);
+      this.total = total;
+      this.done = done;
+    }
+
+    void start(Type type) {
+      for (int i = 0; i < WORKERS && sent < total; i++, sent++) {
+        new Worker("Worker " + i, type).tell(new Tuple<>(sent % 30, sent), self());
+      }
+    }
+
+    @Override
+    public void onReceive(Tuple<Integer, Integer> message, Result<Actor<Tuple<Integer, Integer>>> sender) {
+      if (++received == total) {
+        done.countDown();
+      }
+      sender.forEach(a -> {
+        if (sent < total) {
+          a.tell(new Tuple<>(sent % 30, sent++), self());
+        } else {
+          a.shutdown();
+        }
+      });
+    }
+  }
+
+  @Benchmark
+  public void workers() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    Actor.Type actorType = Actor.Type.valueOf(type);
+    Manager manager = new Manager("Manager", actorType, messages, done);
+    manager.start(actorType);
+    done.await();
+    manager.shutdown();
+  }
+
+  static class Idle extends AbstractActor<Integer> {
+
+    private final AtomicInteger count;
+    private final CountDownLatch done;
+
+    Idle(String id, Type type, AtomicInteger count, CountDownLatch done) {
+      super(id, type);
+      this.count = count;
+      this.done = done;
+    }
+
+    @Override
+    public void onReceive(Integer message, Result<Actor<Integer>> sender) {
+      if (count.decrementAndGet() == 0) {
+        done.countDown();
+      }
+    }
+  }
+
+  @Benchmark
+  public void manyActors() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    AtomicInteger count = new AtomicInteger(actors);
+    Actor.Type actorType = Actor.Type.valueOf(type);
+    Idle[] idle = new Idle[actors];
+    for (int i = 0; i < actors; i++) {
+      idle[i] = new Idle("Idle " + i, actorType, count, done);
+    }
+    for (Idle actor : idle) {
+      actor.tell(0);
+    }
+    done.await();
+    for (Idle actor : idle) {
+      actor.shutdown();
+    }
+  }
+
+  static class Accumulator extends AbstractActor<Integer> {
+
+    private final int total;
+    private final CountDownLatch done;
+
+    Accumulator(String id, Type type, int total, CountDownLatch done) {
+      super(id, type);
+      this.total = total;
+      this.done = done;
+    }
+
+    @Override
+    public void onReceive(Integer message, Result<Actor<Integer>> sender) {
+      getContext().become(new Count(1));
+    }
+
+    class Count implements BatchMessageProcessor<Integer> {
+
+      private final int count;
+
+      Count(int count) {
+        this.count = count;
+      }
+
+      @Override
+      public void processAll(List<Integer> messages, Result<Actor<Integer>> sender) {
+        int result = count + messages.length();
+        if (result == total) {
+          done.countDown();
+        }
+        getContext().become(new Count(result));
+      }
+    }
+  }
+
+  @Benchmark
+  public void tellEach() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    Accumulator accumulator = new Accumulator("Accumulator", Actor.Type.valueOf(type), messages, done);
+    for (int i = 0; i < messages; i++) {
+      accumulator.tell(i, Actor.noSender());
+    }
+    done.await();
+    accumulator.shutdown();
+  }
+
+  @Benchmark
+  public void tellAll() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    Accumulator accumulator = new Accumulator("Accumulator", Actor.Type.valueOf(type), messages, done);
+    List<Integer> batch = List.range(0, BATCH);
+    for (int i = 0; i < messages; i += BATCH) {
+      accumulator.tellAll(batch, Actor.noSender());
+    }
+    done.await();
+    accumulator.shutdown();
+  }
+}
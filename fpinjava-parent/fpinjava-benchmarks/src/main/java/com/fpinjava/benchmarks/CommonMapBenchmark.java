@@ -0,0 +1,99 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The persistent and concurrent implementations of com.fpinjava.common.Map,
+ * to be compared with the underlying com.fpinjava.map.Map measured by
+ * MapBenchmark. Each benchmark handles all the keys, so scores are per map,
+ * not per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonMapBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private String[] keys;
+  private Map<String, Integer> persistent;
+  private Map<String, Integer> concurrent;
+
+  @Setup
+  public void setup() {
+    keys = new String[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = "key" + i;
+    }
+    persistent = persistentPut();
+    concurrent = concurrentPut();
+  }
+
+  @Benchmark
+  public Map<String, Integer> persistentPut() {
+    Map<String, Integer> result = Map.empty();
+    for (int i = 0; i < keys.length; i++) {
+      result = result.put(keys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Map<String, Integer> persistentBuilder() {
+    Map.Builder<String, Integer> builder = Map.builder();
+    for (int i = 0; i < keys.length; i++) {
+      builder.add(keys[i], i);
+    }
+    return builder.build();
+  }
+
+  @Benchmark
+  public void persistentGet(Blackhole blackhole) {
+    for (String key : keys) {
+      blackhole.consume(persistent.get(key));
+    }
+  }
+
+  @Benchmark
+  public Map<String, Integer> persistentRemoveKey() {
+    Map<String, Integer> result = persistent;
+    for (String key : keys) {
+      result = result.removeKey(key);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Map<String, Integer> concurrentPut() {
+    Map<String, Integer> result = Map.concurrent();
+    for (int i = 0; i < keys.length; i++) {
+      result = result.put(keys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void concurrentGet(Blackhole blackhole) {
+    for (String key : keys) {
+      blackhole.consume(concurrent.get(key));
+    }
+  }
+}
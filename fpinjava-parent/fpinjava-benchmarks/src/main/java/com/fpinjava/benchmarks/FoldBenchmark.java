@@ -0,0 +1,76 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Tree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Curried folds against their uncurried Function2/Function3 overloads. The
+ * curried benchmarks also run against versions of fpinjava-common that
+ * predate the uncurried overloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoldBenchmark {
+
+  @Param({"100000"})
+  public int size;
+
+  private List<Integer> list;
+  private Tree<Integer> tree;
+
+  @Setup
+  public void setup() {
+    list = List.range(0, size);
+    tree = Tree.empty();
+    for (int i = 0; i < size; i++) {
+      tree = tree.insert(i);
+    }
+  }
+
+  @Benchmark
+  public Long listFoldLeftCurried() {
+    return list.foldLeft(0L, acc -> x -> acc + x);
+  }
+
+  @Benchmark
+  public Long listFoldRightCurried() {
+    return list.foldRight(0L, x -> acc -> acc + x);
+  }
+
+  @Benchmark
+  public Long treeFoldInOrderCurried() {
+    return tree.foldInOrder(0L, l -> v -> r -> l + v + r);
+  }
+
+  @Benchmark
+  public Long listFoldLeftUncurried() {
+    return list.foldLeft(0L, (acc, x) -> acc + x);
+  }
+
+  @Benchmark
+  public Long listFoldRightUncurried() {
+    return list.foldRight(0L, (x, acc) -> acc + x);
+  }
+
+  @Benchmark
+  public Long treeFoldInOrderUncurried() {
+    return tree.foldInOrder(0L, (l, v, r) -> l + v + r);
+  }
+}
@@ -0,0 +1,53 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List.groupBy and the map puts it relies on. Only uses API available
+ * before com.fpinjava.common.Map became persistent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupByBenchmark {
+
+  @Param({"1000000"})
+  public int size;
+
+  @Param({"10", "10000"})
+  public int groups;
+
+  private List<Integer> list;
+
+  @Setup
+  public void setup() {
+    list = List.range(0, size);
+  }
+
+  @Benchmark
+  public Map<Integer, List<Integer>> groupBy() {
+    return list.groupBy(x -> x % groups);
+  }
+
+  @Benchmark
+  public Map<Integer, List<Integer>> groupByImperative() {
+    return list.groupByImperative(x -> x % groups);
+  }
+}
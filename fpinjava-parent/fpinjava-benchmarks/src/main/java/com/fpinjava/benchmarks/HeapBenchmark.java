@@ -0,0 +1,60 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.Heap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leftist Heap inserts, in a random (but fixed) order, and removals of the
+ * head until the heap is empty, which is a heap sort.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private Integer[] elements;
+  private Heap<Integer> heap;
+
+  @Setup
+  public void setup() {
+    elements = TreeBenchmark.shuffled(size);
+    heap = insert();
+  }
+
+  @Benchmark
+  public Heap<Integer> insert() {
+    Heap<Integer> result = Heap.empty();
+    for (Integer element : elements) {
+      result = result.insert(element);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void tail(Blackhole blackhole) {
+    Heap<Integer> result = heap;
+    while (!result.isEmpty()) {
+      blackhole.consume(result.head());
+      result = result.tail().successValue();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Nothing;
+import com.fpinjava.common.Stream;
+import com.fpinjava.io.IO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IO programs of the given number of steps, built and run in each
+ * benchmark: left and right nested binds, and the looping combinators.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  @Benchmark
+  public Integer leftNestedFlatMap() {
+    IO<Integer> io = IO.unit(0);
+    for (int i = 0; i < size; i++) {
+      io = io.flatMap(x -> IO.unit(x + 1));
+    }
+    return io.run();
+  }
+
+  @Benchmark
+  public Integer rightNestedFlatMap() {
+    return count(0).run();
+  }
+
+  private IO<Integer> count(int n) {
+    return n == size
+        ? IO.unit(n)
+        : IO.unit(n + 1).flatMap(this::count);
+  }
+
+  @Benchmark
+  public Integer map() {
+    IO<Integer> io = () -> 0;
+    for (int i = 0; i < size; i++) {
+      io = io.map(x -> x + 1);
+    }
+    return io.run();
+  }
+
+  @Benchmark
+  public List<Integer> repeat() {
+    return IO.repeat(size, () -> 1).run();
+  }
+
+  @Benchmark
+  public Integer foldM() {
+    return IO.foldM(Stream.range(0, size), 0, acc -> x -> IO.unit(acc + x)).run();
+  }
+
+  @Benchmark
+  public Nothing doWhile() {
+    int[] counter = {0};
+    IO<Integer> increment = () -> ++counter[0];
+    return IO.doWhile(increment, n -> IO.unit(n < size)).run();
+  }
+}
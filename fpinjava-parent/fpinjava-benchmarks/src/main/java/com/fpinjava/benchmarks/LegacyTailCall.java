@@ -0,0 +1,79 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.Supplier;
+
+/**
+ * The ret/sus-only TailCall that predates map and flatMap, kept as a
+ * baseline for TailCallBenchmark.
+ */
+public abstract class LegacyTailCall<T> {
+
+  public abstract LegacyTailCall<T> resume();
+
+  public abstract T eval();
+
+  public abstract boolean isSuspend();
+
+  private LegacyTailCall() {
+  }
+
+  private static class Return<T> extends LegacyTailCall<T> {
+
+    private final T t;
+
+    private Return(T t) {
+      this.t = t;
+    }
+
+    @Override
+    public T eval() {
+      return t;
+    }
+
+    @Override
+    public boolean isSuspend() {
+      return false;
+    }
+
+    @Override
+    public LegacyTailCall<T> resume() {
+      throw new IllegalStateException("Return has no resume");
+    }
+  }
+
+  private static class Suspend<T> extends LegacyTailCall<T> {
+
+    private final Supplier<LegacyTailCall<T>> resume;
+
+    private Suspend(Supplier<LegacyTailCall<T>> resume) {
+      this.resume = resume;
+    }
+
+    @Override
+    public T eval() {
+      LegacyTailCall<T> tailRec = this;
+      while(tailRec.isSuspend()) {
+        tailRec = tailRec.resume();
+      }
+      return tailRec.eval();
+    }
+
+    @Override
+    public boolean isSuspend() {
+      return true;
+    }
+
+    @Override
+    public LegacyTailCall<T> resume() {
+      return resume.get();
+    }
+  }
+
+  public static <T> Return<T> ret(T t) {
+    return new Return<>(t);
+  }
+
+  public static <T> Suspend<T> sus(Supplier<LegacyTailCall<T>> s) {
+    return new Suspend<>(s);
+  }
+}
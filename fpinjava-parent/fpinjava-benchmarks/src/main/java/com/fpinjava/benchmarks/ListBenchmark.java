@@ -0,0 +1,86 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The basic List operations, each on a whole list of the given size.
+ * groupBy is measured by GroupByBenchmark, and the curried and uncurried
+ * folds are compared by FoldBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private List<Integer> list;
+
+  @Setup
+  public void setup() {
+    list = List.range(0, size);
+  }
+
+  @Benchmark
+  public List<Integer> range() {
+    return List.range(0, size);
+  }
+
+  @Benchmark
+  public Long foldLeft() {
+    return list.foldLeft(0L, (acc, x) -> acc + x);
+  }
+
+  @Benchmark
+  public Long foldRight() {
+    return list.foldRight(0L, (x, acc) -> acc + x);
+  }
+
+  @Benchmark
+  public List<Integer> reverse() {
+    return list.reverse();
+  }
+
+  @Benchmark
+  public List<Integer> concat() {
+    return list.concat(list);
+  }
+
+  @Benchmark
+  public List<Integer> map() {
+    return list.map(x -> x + 1);
+  }
+
+  @Benchmark
+  public List<Integer> filter() {
+    return list.filter(x -> x % 2 == 0);
+  }
+
+  @Benchmark
+  public int length() {
+    return list.length();
+  }
+
+  @Benchmark
+  public Result<Integer> getAtMiddle() {
+    return list.getAt(size / 2);
+  }
+}
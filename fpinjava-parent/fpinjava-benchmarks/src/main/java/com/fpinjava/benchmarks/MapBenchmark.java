@@ -0,0 +1,106 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.map.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.fpinjava.map.Map (a HAMT) against the TreeHashMap it replaced. Each
+ * benchmark handles all the keys, so scores are per map, not per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private String[] keys;
+  private Map<String, Integer> map;
+  private TreeHashMap<String, Integer> treeMap;
+
+  @Setup
+  public void setup() {
+    keys = new String[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = "key" + i;
+    }
+    map = hamtAdd();
+    treeMap = treeAdd();
+  }
+
+  @Benchmark
+  public Map<String, Integer> hamtAdd() {
+    Map<String, Integer> result = Map.empty();
+    for (int i = 0; i < keys.length; i++) {
+      result = result.add(keys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Map<String, Integer> hamtBuilder() {
+    Map.Builder<String, Integer> builder = Map.builder();
+    for (int i = 0; i < keys.length; i++) {
+      builder.add(keys[i], i);
+    }
+    return builder.build();
+  }
+
+  @Benchmark
+  public void hamtGet(Blackhole blackhole) {
+    for (String key : keys) {
+      blackhole.consume(map.get(key));
+    }
+  }
+
+  @Benchmark
+  public Map<String, Integer> hamtRemove() {
+    Map<String, Integer> result = map;
+    for (String key : keys) {
+      result = result.remove(key);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public TreeHashMap<String, Integer> treeAdd() {
+    TreeHashMap<String, Integer> result = TreeHashMap.empty();
+    for (int i = 0; i < keys.length; i++) {
+      result = result.add(keys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void treeGet(Blackhole blackhole) {
+    for (String key : keys) {
+      blackhole.consume(treeMap.get(key));
+    }
+  }
+
+  @Benchmark
+  public TreeHashMap<String, Integer> treeRemove() {
+    TreeHashMap<String, Integer> result = treeMap;
+    for (String key : keys) {
+      result = result.remove(key);
+    }
+    return result;
+  }
+}
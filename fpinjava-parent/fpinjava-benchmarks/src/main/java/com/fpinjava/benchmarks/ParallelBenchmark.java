@@ -0,0 +1,85 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parallel folds and maps on List, through an ExecutorService and through a
+ * ForkJoinPool. The ExecutorService benchmarks also run against versions of
+ * fpinjava-common that predate the ForkJoinPool overloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+
+  @Param({"100000"})
+  public int size;
+
+  private List<Integer> list;
+  private ExecutorService es;
+  private ForkJoinPool pool;
+
+  @Setup
+  public void setup() {
+    list = List.range(0, size);
+    es = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    pool = new ForkJoinPool();
+  }
+
+  @TearDown
+  public void tearDown() {
+    es.shutdown();
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public Result<Long> executorFoldLeft() {
+    return list.parFoldLeft(es, 0L, acc -> x -> acc + x, a -> b -> a + b);
+  }
+
+  @Benchmark
+  public Result<List<Integer>> executorMap() {
+    return list.parMap(es, x -> x * 2);
+  }
+
+  @Benchmark
+  public Result<Long> forkJoinFoldLeft() {
+    return list.parFoldLeft(pool, 0L, (acc, x) -> acc + x, (a, b) -> a + b);
+  }
+
+  @Benchmark
+  public Result<List<Integer>> forkJoinMap() {
+    return list.parMap(pool, x -> x * 2);
+  }
+
+  @Benchmark
+  public Result<List<Integer>> forkJoinFilter() {
+    return list.parFilter(pool, x -> x % 2 == 0);
+  }
+
+  @Benchmark
+  public Result<Integer> forkJoinReduce() {
+    return list.parReduce(pool, Integer::sum);
+  }
+}
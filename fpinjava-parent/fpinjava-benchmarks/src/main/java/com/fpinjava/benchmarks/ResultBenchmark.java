@@ -0,0 +1,72 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chains of Result operations of the given length, on a success and on a
+ * failure, and sequence and traverse on lists of the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private List<Integer> list;
+  private List<Result<Integer>> results;
+
+  @Setup
+  public void setup() {
+    list = List.range(0, size);
+    results = list.map(Result::success);
+  }
+
+  private Result<Integer> chain(Result<Integer> start) {
+    Result<Integer> result = start;
+    for (int i = 0; i < size; i++) {
+      result = result.map(x -> x + 1)
+                     .flatMap(x -> x >= 0 ? Result.success(x) : Result.failure("negative"))
+                     .filter(x -> x != -1);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Result<Integer> successChain() {
+    return chain(Result.success(0));
+  }
+
+  @Benchmark
+  public Result<Integer> failureChain() {
+    return chain(Result.failure("failure"));
+  }
+
+  @Benchmark
+  public Result<List<Integer>> sequence() {
+    return List.sequence(results);
+  }
+
+  @Benchmark
+  public Result<List<Integer>> traverseFailingLast() {
+    return List.traverse(list, x -> x < size - 1 ? Result.success(x) : Result.failure("last"));
+  }
+}
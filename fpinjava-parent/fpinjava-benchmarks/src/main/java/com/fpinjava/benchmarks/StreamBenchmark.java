@@ -0,0 +1,68 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Nothing;
+import com.fpinjava.common.Stream;
+import com.fpinjava.io.IO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Five stage Stream pipelines consumed by the usual terminals. Only uses
+ * the Stream API that predates pipeline fusion, so the same class can be
+ * run against older versions of fpinjava-common.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamBenchmark {
+
+  @Param({"1000", "10000"})
+  public int size;
+
+  private Stream<Integer> pipeline() {
+    return Stream.range(0, size)
+                 .map(x -> x + 1)
+                 .filter(x -> x % 3 != 0)
+                 .map(x -> x * 2)
+                 .takeWhile(x -> x >= 0)
+                 .flatMap(x -> Stream.stream(x, x + 1));
+  }
+
+  @Benchmark
+  public List<Integer> toList() {
+    return pipeline().toList();
+  }
+
+  @Benchmark
+  public boolean exists() {
+    return pipeline().exists(x -> x < 0);
+  }
+
+  @Benchmark
+  public Integer headOfInfinite() {
+    return Stream.from(0).map(x -> x + 1).filter(x -> x > size).map(x -> x * 2).head()._1;
+  }
+
+  @Benchmark
+  public void ioForEach(Blackhole blackhole) {
+    IO.forEach(pipeline().take(1_000), x -> () -> {
+      blackhole.consume(x);
+      return Nothing.instance;
+    }).run();
+  }
+}
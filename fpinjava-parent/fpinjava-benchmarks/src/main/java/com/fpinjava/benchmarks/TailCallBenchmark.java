@@ -0,0 +1,77 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Result;
+import com.fpinjava.common.TailCall;
+import com.fpinjava.common.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TailCall trampoline against LegacyTailCall, for plain tail calls, and
+ * its flatMap support for recursions that are not tail recursive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TailCallBenchmark {
+
+  @Param({"100000"})
+  public int size;
+
+  private static LegacyTailCall<Long> legacySum(long acc, int n) {
+    return n == 0
+        ? LegacyTailCall.ret(acc)
+        : LegacyTailCall.sus(() -> legacySum(acc + n, n - 1));
+  }
+
+  private static TailCall<Long> sum(long acc, int n) {
+    return n == 0
+        ? TailCall.ret(acc)
+        : TailCall.sus(() -> sum(acc + n, n - 1));
+  }
+
+  private static TailCall<Long> sumNonTail(int n) {
+    return n == 0
+        ? TailCall.ret(0L)
+        : TailCall.sus(() -> sumNonTail(n - 1)).map(x -> x + n);
+  }
+
+  @Benchmark
+  public Long legacyTailCalls() {
+    return legacySum(0, size).eval();
+  }
+
+  @Benchmark
+  public Long tailCalls() {
+    return sum(0, size).eval();
+  }
+
+  @Benchmark
+  public Long nonTailRecursion() {
+    return sumNonTail(size).eval();
+  }
+
+  @Benchmark
+  public List<Integer> unfoldNonTail() {
+    return List.unfold_(0, x -> x < size ? Result.success(new Tuple<>(x, x + 1)) : Result.empty());
+  }
+
+  @Benchmark
+  public List<Integer> unfold() {
+    return List.unfold(0, x -> x < size ? Result.success(new Tuple<>(x, x + 1)) : Result.empty());
+  }
+}
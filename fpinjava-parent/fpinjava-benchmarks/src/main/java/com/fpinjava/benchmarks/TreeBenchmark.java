@@ -0,0 +1,173 @@
+package com.fpinjava.benchmarks;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Tree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Red-black Tree updates and lookups. The elements are inserted in a random
+ * (but fixed) order, and each benchmark handles all of them, so scores are
+ * per tree, not per operation, except for range, headTree and topTen, which
+ * are single queries. The set operations combine the tree with another one of
+ * the same size, half of whose elements are shared, or with a small one of
+ * one hundredth of its size, and are compared with inserting the elements
+ * of the other tree one by one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private Integer[] elements;
+  private Tree<Integer> tree;
+  private Tree<Integer> other;
+  private Tree<Integer> small;
+
+  @Setup
+  public void setup() {
+    elements = shuffled(size);
+    tree = insert();
+    other = Tree.empty();
+    small = Tree.empty();
+    for (Integer element : elements) {
+      other = other.insert(element + size / 2);
+      if (element % 100 == 0) {
+        small = small.insert(element * 2 + 1);
+      }
+    }
+  }
+
+  static Integer[] shuffled(int size) {
+    Integer[] result = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = i;
+    }
+    Random random = new Random(0);
+    for (int i = size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      Integer tmp = result[i];
+      result[i] = result[j];
+      result[j] = tmp;
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Tree<Integer> insert() {
+    Tree<Integer> result = Tree.empty();
+    for (Integer element : elements) {
+      result = result.insert(element);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Tree<Integer> delete() {
+    Tree<Integer> result = tree;
+    for (Integer element : elements) {
+      result = result.delete(element);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void member(Blackhole blackhole) {
+    for (Integer element : elements) {
+      blackhole.consume(tree.member(element));
+    }
+  }
+
+  @Benchmark
+  public Long foldInOrder() {
+    return tree.foldInOrder(0L, (l, v, r) -> l + v + r);
+  }
+
+  @Benchmark
+  public void rank(Blackhole blackhole) {
+    for (Integer element : elements) {
+      blackhole.consume(tree.rank(element));
+    }
+  }
+
+  @Benchmark
+  public void select(Blackhole blackhole) {
+    for (int i = 0; i < size; i++) {
+      blackhole.consume(tree.select(i));
+    }
+  }
+
+  @Benchmark
+  public Integer range() {
+    return tree.range(size / 2, size / 2 + 100).foldLeft(0, acc -> x -> acc + x);
+  }
+
+  @Benchmark
+  public Tree<Integer> headTree() {
+    return tree.headTree(size / 2);
+  }
+
+  @Benchmark
+  public Tree<Integer> union() {
+    return tree.union(other);
+  }
+
+  @Benchmark
+  public Tree<Integer> unionViaInsert() {
+    return other.toList().foldLeft(tree, t -> t::insert);
+  }
+
+  @Benchmark
+  public Tree<Integer> unionSmall() {
+    return tree.union(small);
+  }
+
+  @Benchmark
+  public Tree<Integer> unionSmallViaInsert() {
+    return small.toList().foldLeft(tree, t -> t::insert);
+  }
+
+  @Benchmark
+  public Tree<Integer> intersection() {
+    return tree.intersection(other);
+  }
+
+  @Benchmark
+  public Tree<Integer> difference() {
+    return tree.difference(other);
+  }
+
+  @Benchmark
+  public Long stream() {
+    return tree.stream().foldLeft(0L, acc -> x -> acc + x);
+  }
+
+  @Benchmark
+  public List<Integer> topTen() {
+    return tree.reverseStream().take(10).toList();
+  }
+
+  @Benchmark
+  public List<Integer> topTenViaToList() {
+    return tree.toList().takeAtMost(10);
+  }
+}
@@ -0,0 +1,50 @@
+package com.fpinjava.benchmarks;
+
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Result;
+import com.fpinjava.common.Tree;
+import com.fpinjava.common.Tuple;
+import com.fpinjava.map.MapEntry;
+
+/**
+ * The former implementation of com.fpinjava.map.Map, a red-black tree of
+ * collision lists indexed by hash code, kept as a baseline for MapBenchmark.
+ */
+public class TreeHashMap<K, V> {
+
+  private final Tree<MapEntry<Integer, List<Tuple<K, V>>>> delegate;
+
+  private TreeHashMap(Tree<MapEntry<Integer, List<Tuple<K, V>>>> delegate) {
+    this.delegate = delegate;
+  }
+
+  public TreeHashMap<K, V> add(K key, V value) {
+    Tuple<K, V> tuple = new Tuple<>(key, value);
+    List<Tuple<K, V>> ltkv = getAll(key).map(lt -> lt.foldLeft(List.list(tuple), l -> t -> t._1.equals(key) ? l : l.cons(t))).getOrElse(() -> List.list(tuple));
+    return new TreeHashMap<>(delegate.insert(MapEntry.mapEntry(key.hashCode(), ltkv)));
+  }
+
+  public boolean contains(K key) {
+    return getAll(key).map(lt -> lt.exists(t -> t._1.equals(key))).getOrElse(false);
+  }
+
+  public TreeHashMap<K, V> remove(K key) {
+    List<Tuple<K, V>> ltkv = getAll(key).map(lt -> lt.foldLeft(List.<Tuple<K, V>>list(), l -> t -> t._1.equals(key) ? l : l.cons(t))).getOrElse(List::list);
+    return ltkv.isEmpty()
+        ? new TreeHashMap<>(delegate.delete(MapEntry.mapEntry(key.hashCode())))
+        : new TreeHashMap<>(delegate.insert(MapEntry.mapEntry(key.hashCode(), ltkv)));
+  }
+
+  public Result<Tuple<K, V>> get(K key) {
+    return getAll(key).flatMap(lt -> lt.first(t -> t._1.equals(key)));
+  }
+
+  private Result<List<Tuple<K, V>>> getAll(K key) {
+    return delegate.get(MapEntry.mapEntry(key.hashCode())).flatMap(x -> x.value.map(lt -> lt.map(t -> t)));
+  }
+
+  public static <K, V> TreeHashMap<K, V> empty() {
+    return new TreeHashMap<>(Tree.empty());
+  }
+}
@@ -1,31 +1,45 @@
 package com.fpinjava.actors;
 
 
+import com.fpinjava.common.List;
+import com.fpinjava.common.Nothing;
 import com.fpinjava.common.Result;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.RejectedExecutionException;
-
 
 public abstract class AbstractActor<T> implements Actor<T> {
 
   private final ActorContext<T> context;
   protected final String id;
-  private final ExecutorService executor;
+  private final Mailbox<T, Result<Actor<T>>> mailbox;
+  /*
+   * Always the same instance, so that the mailbox can recognize consecutive
+   * messages sent by this actor.
+   */
+  private final Result<Actor<T>> self = Result.success(this);
 
   public AbstractActor(String id, Type type) {
+    this(id, type, type == Type.VIRTUAL
+        ? Dispatcher.virtualDispatcher()
+        : Dispatcher.defaultDispatcher());
+  }
+
+  public AbstractActor(String id, Type type, Dispatcher dispatcher) {
+    this(id, type, dispatcher, Mailbox.UNBOUNDED, Mailbox.Overflow.BLOCK);
+  }
+
+  public AbstractActor(String id, Type type, Dispatcher dispatcher, int capacity, Mailbox.Overflow overflow) {
     super();
     this.id = id;
-    this.executor = type == Type.SERIAL
-        ? Executors.newSingleThreadExecutor(new DaemonThreadFactory())
-        : Executors.newCachedThreadPool(new DaemonThreadFactory());
+    this.mailbox = type == Type.PARALLEL
+        ? Mailbox.parallel(dispatcher, this::process, this::processAll, this::batching, capacity, overflow)
+        : Mailbox.serial(dispatcher, this::process, this::processAll, this::batching, capacity, overflow);
 
     this.context = new ActorContext<T>() {
-      private MessageProcessor<T> behavior =
+      private volatile MessageProcessor<T> behavior =
           AbstractActor.this::onReceive;
       @Override
       public synchronized void become(MessageProcessor<T> behavior) {
+        mailbox.metrics().become();
         this.behavior = behavior;
       }
 
@@ -39,7 +53,7 @@ public abstract class AbstractActor<T> implements Actor<T> {
   public abstract void onReceive(T message, Result<Actor<T>> sender);
 
   public Result<Actor<T>> self() {
-    return Result.success(this);
+    return self;
   }
 
   public ActorContext<T> getContext() {
@@ -48,21 +62,45 @@ public abstract class AbstractActor<T> implements Actor<T> {
 
   @Override
   public void shutdown() {
-    this.executor.shutdown();
+    this.mailbox.close();
   }
 
-  public synchronized void tell(final T message, Result<Actor<T>> sender) {
-    executor.execute(() -> {
-      try {
-        context.getBehavior().process(message, sender);
-      } catch (RejectedExecutionException e) {
-        /*
-         * This is probably normal and means all pending tasks
-         * were canceled because the actor was stopped.
-         */
-      } catch (Exception e) {
-        throw new RuntimeException(e);
-      }
-    });
+  public void tell(final T message, Result<Actor<T>> sender) {
+    mailbox.post(message, sender);
+  }
+
+  @Override
+  public void tellAll(List<T> messages, Result<Actor<T>> sender) {
+    mailbox.postAll(messages, sender);
+  }
+
+  /*
+   * Same as tell, but returns a failure if the message was rejected, because
+   * the mailbox is full and its overflow policy is FAIL_FAST, or because the
+   * actor was shut down.
+   */
+  public Result<Nothing> offer(final T message, Result<Actor<T>> sender) {
+    return mailbox.post(message, sender);
+  }
+
+  public ActorMetrics metrics() {
+    return mailbox.metrics();
+  }
+
+  private void process(T message, Result<Actor<T>> sender) {
+    context.getBehavior().process(message, sender);
+  }
+
+  private boolean batching() {
+    return context.getBehavior() instanceof BatchMessageProcessor;
+  }
+
+  private void processAll(List<T> messages, Result<Actor<T>> sender) {
+    MessageProcessor<T> behavior = context.getBehavior();
+    if (behavior instanceof BatchMessageProcessor) {
+      ((BatchMessageProcessor<T>) behavior).processAll(messages, sender);
+    } else {
+      messages.forEach(message -> process(message, sender));
+    }
   }
 }
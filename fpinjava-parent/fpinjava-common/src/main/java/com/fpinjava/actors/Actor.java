@@ -1,6 +1,7 @@
 package com.fpinjava.actors;
 
 
+import com.fpinjava.common.List;
 import com.fpinjava.common.Result;
 
 public interface Actor<T> {
@@ -19,11 +20,27 @@ public interface Actor<T> {
 
   void tell(T message, Result<Actor<T>> sender);
 
+  default void tellAll(List<T> messages) {
+    tellAll(messages, self());
+  }
+
+  /*
+   * Sends all messages, in order. Actors may override this to enqueue them
+   * in a single operation.
+   */
+  default void tellAll(List<T> messages, Result<Actor<T>> sender) {
+    messages.forEach(message -> tell(message, sender));
+  }
+
   void shutdown();
 
   default void tell(T message, Actor<T> sender) {
     tell(message, Result.of(sender));
   }
 
-  enum Type {SERIAL, PARALLEL} // <7>
+  /*
+   * VIRTUAL actors process their messages serially, as SERIAL ones, but on
+   * the virtual thread dispatcher when the JVM supports virtual threads.
+   */
+  enum Type {SERIAL, PARALLEL, VIRTUAL} // <7>
 }
@@ -0,0 +1,157 @@
+package com.fpinjava.actors;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters kept by a mailbox for its actor. Updating them costs a few
+ * uncontended atomic additions per message, so they are always on. Rates are
+ * computed from two snapshots taken at different times.
+ *
+ * Processing times are recorded in a histogram with one bucket per power of
+ * two nanoseconds: bucket i counts the messages which took from 2^(i-1)
+ * (included) to 2^i (excluded) nanoseconds to process, bucket 0 those which
+ * took no measurable time.
+ */
+public final class ActorMetrics {
+
+  public static final int BUCKETS = 64;
+
+  private final LongAdder enqueued = new LongAdder();
+  private final LongAdder dequeued = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder becomes = new LongAdder();
+  private final AtomicLongArray processingTimes = new AtomicLongArray(BUCKETS);
+  private final IntSupplier queueDepth;
+
+  ActorMetrics(IntSupplier queueDepth) {
+    this.queueDepth = queueDepth;
+  }
+
+  void enqueued(int count) {
+    enqueued.add(count);
+  }
+
+  /*
+   * Messages handled as a batch are all recorded with the average time.
+   */
+  void dequeued(int count, long nanos) {
+    dequeued.add(count);
+    processingTimes.addAndGet(bucket(nanos / count), count);
+  }
+
+  void dropped(int count) {
+    dropped.add(count);
+  }
+
+  void rejected(int count) {
+    rejected.add(count);
+  }
+
+  /*
+   * Public because behaviors are changed through the ActorContext, which
+   * actors implement themselves.
+   */
+  public void become() {
+    becomes.increment();
+  }
+
+  static int bucket(long nanos) {
+    return nanos <= 0
+        ? 0
+        : BUCKETS - Long.numberOfLeadingZeros(nanos);
+  }
+
+  public int queueDepth() {
+    return queueDepth.getAsInt();
+  }
+
+  public Snapshot snapshot() {
+    long[] histogram = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      histogram[i] = processingTimes.get(i);
+    }
+    return new Snapshot(System.nanoTime(), queueDepth(), enqueued.sum(), dequeued.sum(),
+        dropped.sum(), rejected.sum(), becomes.sum(), histogram);
+  }
+
+  @Override
+  public String toString() {
+    return snapshot().toString();
+  }
+
+  public static final class Snapshot {
+
+    public final long timestamp;
+    public final int queueDepth;
+    public final long enqueued;
+    public final long dequeued;
+    public final long dropped;
+    public final long rejected;
+    public final long becomes;
+    private final long[] histogram;
+
+    private Snapshot(long timestamp, int queueDepth, long enqueued, long dequeued,
+                     long dropped, long rejected, long becomes, long[] histogram) {
+      this.timestamp = timestamp;
+      this.queueDepth = queueDepth;
+      this.enqueued = enqueued;
+      this.dequeued = dequeued;
+      this.dropped = dropped;
+      this.rejected = rejected;
+      this.becomes = becomes;
+      this.histogram = histogram;
+    }
+
+    public long[] histogram() {
+      return histogram.clone();
+    }
+
+    /*
+     * Messages per second enqueued since the earlier snapshot.
+     */
+    public double enqueueRate(Snapshot earlier) {
+      return rate(enqueued - earlier.enqueued, earlier);
+    }
+
+    public double dequeueRate(Snapshot earlier) {
+      return rate(dequeued - earlier.dequeued, earlier);
+    }
+
+    private double rate(long count, Snapshot earlier) {
+      long nanos = timestamp - earlier.timestamp;
+      return nanos <= 0
+          ? 0.0
+          : count * 1_000_000_000.0 / nanos;
+    }
+
+    /*
+     * An upper bound, in nanoseconds, of the time it took to process the
+     * given fraction of the messages, or 0 if no message was processed.
+     */
+    public long processingTimePercentile(double fraction) {
+      long total = 0;
+      for (long count : histogram) {
+        total += count;
+      }
+      long target = (long) Math.ceil(total * fraction);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += histogram[i];
+        if (seen >= target && seen > 0) {
+          return i == 0 ? 0 : i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("ActorMetrics(depth: %s, enqueued: %s, dequeued: %s, dropped: %s, rejected: %s, becomes: %s, p50: %sns, p99: %sns)",
+          queueDepth, enqueued, dequeued, dropped, rejected, becomes,
+          processingTimePercentile(0.5), processingTimePercentile(0.99));
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.fpinjava.actors;
+
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Result;
+
+/**
+ * A behavior able to process several messages at once. Serial actors hand it
+ * the messages sent with tellAll, as well as runs of messages sent in a row by
+ * the same sender, so that it may update its state once per batch instead of
+ * once per message. Messages are always given in the order they were sent.
+ */
+public interface BatchMessageProcessor<T> extends MessageProcessor<T> {
+
+  void processAll(List<T> messages, Result<Actor<T>> sender);
+
+  @Override
+  default void process(T t, Result<Actor<T>> sender) {
+    processAll(List.list(t), sender);
+  }
+}
@@ -0,0 +1,116 @@
+package com.fpinjava.actors;
+
+import com.fpinjava.common.Result;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A fixed pool of worker threads shared by many actors. Actors don't own any
+ * thread: each one has a Mailbox which is scheduled on the dispatcher when it
+ * receives a message, and which then processes at most throughput messages
+ * before giving its thread back to the other actors.
+ *
+ * On JVMs supporting them, a dispatcher may also run each scheduled mailbox
+ * on a new virtual thread. Idle actors then cost no thread at all, and an
+ * actor blocking, for example on a full mailbox with the BLOCK policy, only
+ * parks its virtual thread instead of holding one of the pool threads.
+ */
+public final class Dispatcher {
+
+  public static final int DEFAULT_THROUGHPUT = 64;
+
+  private static final Dispatcher DEFAULT =
+      new Dispatcher(Runtime.getRuntime().availableProcessors(), DEFAULT_THROUGHPUT);
+
+  private final ExecutorService pool;
+  private final int parallelism;
+  private final int throughput;
+  private final boolean virtual;
+
+  /*
+   * All scheduled mailboxes wait in a single FIFO queue, whichever thread
+   * scheduled them. A work-stealing pool would run the mailboxes scheduled
+   * by its own workers first, so two actors talking to each other could
+   * starve the ones scheduled from outside of the pool indefinitely.
+   */
+  public Dispatcher(int parallelism, int throughput) {
+    if (parallelism < 1 || throughput < 1) {
+      throw new IllegalArgumentException(String.format("Invalid dispatcher parameters: parallelism = %s, throughput = %s", parallelism, throughput));
+    }
+    this.pool = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory());
+    this.parallelism = parallelism;
+    this.throughput = throughput;
+    this.virtual = false;
+  }
+
+  private Dispatcher(ExecutorService pool, int throughput) {
+    this.pool = pool;
+    this.parallelism = Runtime.getRuntime().availableProcessors();
+    this.throughput = throughput;
+    this.virtual = true;
+  }
+
+  public static Dispatcher defaultDispatcher() {
+    return DEFAULT;
+  }
+
+  /*
+   * Virtual threads are looked up by reflection, since this code must still
+   * compile and run on JVMs that don't have them.
+   */
+  public static Result<Dispatcher> virtualThreads(int throughput) {
+    if (throughput < 1) {
+      return Result.failure(String.format("Invalid dispatcher parameters: throughput = %s", throughput));
+    }
+    try {
+      ExecutorService pool = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      return Result.success(new Dispatcher(pool, throughput));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return Result.failure("Virtual threads are not available on this JVM", e);
+    }
+  }
+
+  /*
+   * The shared virtual thread dispatcher, or the default one if virtual
+   * threads are not available.
+   */
+  public static Dispatcher virtualDispatcher() {
+    return VirtualHolder.VIRTUAL;
+  }
+
+  private static final class VirtualHolder {
+    private static final Dispatcher VIRTUAL = virtualThreads(DEFAULT_THROUGHPUT).getOrElse(DEFAULT);
+  }
+
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  public int throughput() {
+    return throughput;
+  }
+
+  public int parallelism() {
+    return parallelism;
+  }
+
+  void execute(Runnable task) {
+    pool.execute(task);
+  }
+
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  /*
+   * A failing message must neither kill the worker thread nor leave its
+   * mailbox scheduled forever, so exceptions are caught and reported as if
+   * they had reached the top of the thread, as they did when each actor had
+   * its own executor.
+   */
+  static void reportFailure(Throwable e) {
+    Thread thread = Thread.currentThread();
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+  }
+}
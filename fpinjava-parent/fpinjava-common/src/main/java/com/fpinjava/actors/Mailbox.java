@@ -0,0 +1,530 @@
+package com.fpinjava.actors;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Nothing;
+import com.fpinjava.common.Result;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The queue of messages sent to an actor, together with its scheduling state.
+ * A serial mailbox is a lock-free multiple producers, single consumer queue:
+ * any thread may post, and messages are handled one at a time, in the order
+ * they were posted, by whatever dispatcher thread is currently running the
+ * mailbox. A parallel mailbox hands each message to the dispatcher as soon as
+ * it is posted, so messages may be handled concurrently and in any order.
+ *
+ * A mailbox may be given a capacity, which is the number of messages waiting
+ * to be handled, and an Overflow policy telling what post does when it is
+ * full. Under DROP_OLDEST, post evicts the oldest waiting messages itself,
+ * so that a slow consumer never lets the mailbox grow past its capacity. The
+ * queue is then locked while taking or evicting messages. Messages posted
+ * after close() are rejected. Messages posted before are still handled, as
+ * tasks submitted to an executor before shutdown() were.
+ *
+ * A mailbox may also have a batch handler, used whenever its batching
+ * condition holds. A serial mailbox then hands it whole chunks of messages:
+ * the lists posted with postAll, and runs of single messages posted in a row
+ * with the same sender instance, up to the dispatcher throughput.
+ */
+public abstract class Mailbox<M, S> {
+
+  public enum Overflow {
+    /*
+     * Wait until there is room. This must not be used for a mailbox posted
+     * to from the dispatcher it runs on, since all its threads could end up
+     * waiting for each other.
+     */
+    BLOCK,
+    /*
+     * Accept the message, and drop the oldest waiting one instead.
+     */
+    DROP_OLDEST,
+    /*
+     * Reject the message, and return a failure.
+     */
+    FAIL_FAST
+  }
+
+  public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  final Dispatcher dispatcher;
+  private final BiConsumer<M, S> handler;
+  private final BiConsumer<List<M>, S> batchHandler;
+  private final BooleanSupplier batching;
+  private final int capacity;
+  private final Overflow overflow;
+  private final AtomicInteger size = new AtomicInteger();
+  private final Semaphore permits;
+  /*
+   * Under DROP_OLDEST, producers evict the oldest waiting messages
+   * themselves. Taking a message and evicting one then hold this lock, so
+   * that both never get the same message. It is null for the other policies.
+   */
+  final Object evictionLock;
+  private final ActorMetrics metrics;
+  private volatile boolean closed;
+
+  private Mailbox(Dispatcher dispatcher, BiConsumer<M, S> handler, BiConsumer<List<M>, S> batchHandler,
+                  BooleanSupplier batching, int capacity, Overflow overflow) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Mailbox capacity must be positive: " + capacity);
+    }
+    this.dispatcher = dispatcher;
+    this.handler = handler;
+    this.batchHandler = batchHandler;
+    this.batching = batching;
+    this.capacity = capacity;
+    this.overflow = overflow;
+    this.permits = overflow == Overflow.BLOCK && capacity != UNBOUNDED
+        ? new Semaphore(capacity)
+        : null;
+    this.evictionLock = overflow == Overflow.DROP_OLDEST && capacity != UNBOUNDED
+        ? new Object()
+        : null;
+    this.metrics = new ActorMetrics(size::get);
+  }
+
+  abstract void enqueue(M message, List<M> batch, S sender);
+
+  /*
+   * Drops up to max of the oldest waiting messages, and returns how many
+   * were dropped. Called with evictionLock held.
+   */
+  abstract int evict(int max);
+
+  public Result<Nothing> post(M message, S sender) {
+    return post(message, null, 1, sender);
+  }
+
+  /*
+   * Posts all messages at once, as a single chunk. They are admitted or
+   * rejected together, so that a batch is never partially delivered because
+   * of the overflow policy. Under DROP_OLDEST, they may still be dropped
+   * individually, as any other waiting message.
+   */
+  public Result<Nothing> postAll(List<M> messages, S sender) {
+    int count = messages.length();
+    return count == 0
+        ? Result.success(Nothing.instance)
+        : post(null, messages, count, sender);
+  }
+
+  private Result<Nothing> post(M message, List<M> batch, int count, S sender) {
+    if (closed) {
+      metrics.rejected(count);
+      return Result.failure("Mailbox closed");
+    }
+    Result<Nothing> admitted = admit(count);
+    if (admitted.isSuccess()) {
+      metrics.enqueued(count);
+      enqueue(message, batch, sender);
+      if (evictionLock != null) {
+        trim();
+      }
+    } else {
+      metrics.rejected(count);
+    }
+    return admitted;
+  }
+
+  private Result<Nothing> admit(int count) {
+    if (capacity == UNBOUNDED) {
+      size.addAndGet(count);
+      return Result.success(Nothing.instance);
+    }
+    switch (overflow) {
+      case BLOCK:
+        if (count > capacity) {
+          return Result.failure(String.format("Can't post %s messages at once to a mailbox of capacity %s", count, capacity));
+        }
+        try {
+          permits.acquire(count);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return Result.failure("Interrupted while waiting for room in mailbox", e);
+        }
+        size.addAndGet(count);
+        return Result.success(Nothing.instance);
+      case DROP_OLDEST:
+        size.addAndGet(count);
+        return Result.success(Nothing.instance);
+      default:
+        while (true) {
+          int current = size.get();
+          if (current > capacity - count) {
+            return Result.failure(String.format("Mailbox full (capacity %s)", capacity));
+          }
+          if (size.compareAndSet(current, current + count)) {
+            return Result.success(Nothing.instance);
+          }
+        }
+    }
+  }
+
+  /*
+   * Brings the mailbox back to its capacity after a message was enqueued
+   * under DROP_OLDEST. Messages admitted by other producers but not linked
+   * yet can't be evicted here: their producers trim after linking them.
+   */
+  private void trim() {
+    synchronized (evictionLock) {
+      int over = size.get() - capacity;
+      if (over > 0) {
+        int evicted = evict(over);
+        if (evicted > 0) {
+          size.addAndGet(-evicted);
+          metrics.dropped(evicted);
+        }
+      }
+    }
+  }
+
+  boolean batching() {
+    return batchHandler != null && batching.getAsBoolean();
+  }
+
+  /*
+   * Handles a chunk of count messages. If the batching condition no longer
+   * holds, because the actor changed its behavior since the chunk was built,
+   * messages are handled one by one.
+   */
+  void deliverAll(List<M> messages, int count, S sender) {
+    if (batching()) {
+      long start = System.nanoTime();
+      try {
+        batchHandler.accept(messages, sender);
+      } catch (Throwable e) {
+        Dispatcher.reportFailure(e);
+      }
+      metrics.dequeued(count, System.nanoTime() - start);
+    } else {
+      messages.forEach(m -> deliver(m, sender));
+    }
+  }
+
+  void deliver(M message, S sender) {
+    long start = System.nanoTime();
+    try {
+      handler.accept(message, sender);
+    } catch (Throwable e) {
+      /*
+       * Errors are caught too: letting one escape would leave the mailbox
+       * scheduled forever, and the actor would never receive anything again.
+       */
+      Dispatcher.reportFailure(e);
+    }
+    metrics.dequeued(1, System.nanoTime() - start);
+  }
+
+  /*
+   * Called when messages are taken to be handled, with evictionLock held
+   * under DROP_OLDEST.
+   */
+  void release(int count) {
+    size.addAndGet(-count);
+    if (permits != null) {
+      permits.release(count);
+    }
+  }
+
+  public void close() {
+    closed = true;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public ActorMetrics metrics() {
+    return metrics;
+  }
+
+  public static <M, S> Mailbox<M, S> serial(Dispatcher dispatcher, BiConsumer<M, S> handler) {
+    return serial(dispatcher, handler, UNBOUNDED, Overflow.BLOCK);
+  }
+
+  public static <M, S> Mailbox<M, S> serial(Dispatcher dispatcher, BiConsumer<M, S> handler, int capacity, Overflow overflow) {
+    return new Serial<>(dispatcher, handler, null, () -> false, capacity, overflow);
+  }
+
+  public static <M, S> Mailbox<M, S> serial(Dispatcher dispatcher, BiConsumer<M, S> handler, BiConsumer<List<M>, S> batchHandler,
+                                            BooleanSupplier batching, int capacity, Overflow overflow) {
+    return new Serial<>(dispatcher, handler, batchHandler, batching, capacity, overflow);
+  }
+
+  public static <M, S> Mailbox<M, S> parallel(Dispatcher dispatcher, BiConsumer<M, S> handler) {
+    return parallel(dispatcher, handler, UNBOUNDED, Overflow.BLOCK);
+  }
+
+  public static <M, S> Mailbox<M, S> parallel(Dispatcher dispatcher, BiConsumer<M, S> handler, int capacity, Overflow overflow) {
+    return new Parallel<>(dispatcher, handler, null, () -> false, capacity, overflow);
+  }
+
+  public static <M, S> Mailbox<M, S> parallel(Dispatcher dispatcher, BiConsumer<M, S> handler, BiConsumer<List<M>, S> batchHandler,
+                                              BooleanSupplier batching, int capacity, Overflow overflow) {
+    return new Parallel<>(dispatcher, handler, batchHandler, batching, capacity, overflow);
+  }
+
+  private static final class Serial<M, S> extends Mailbox<M, S> implements Runnable {
+
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+
+    /*
+     * A Vyukov queue. Producers swap themselves in as the tail and then link
+     * the previous tail to their node. The consumer owns head, which is always
+     * a stub whose message has already been handled or dropped. Under
+     * DROP_OLDEST, producers also move head when evicting, so both do it
+     * with evictionLock held.
+     */
+    private final AtomicReference<Node<M, S>> tail;
+    private Node<M, S> head;
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    private Serial(Dispatcher dispatcher, BiConsumer<M, S> handler, BiConsumer<List<M>, S> batchHandler,
+                   BooleanSupplier batching, int capacity, Overflow overflow) {
+      super(dispatcher, handler, batchHandler, batching, capacity, overflow);
+      this.head = new Node<>(null, null, null);
+      this.tail = new AtomicReference<>(head);
+    }
+
+    @Override
+    void enqueue(M message, List<M> batch, S sender) {
+      Node<M, S> node = new Node<>(message, batch, sender);
+      tail.getAndSet(node).next = node;
+      schedule();
+    }
+
+    private void schedule() {
+      if (state.compareAndSet(IDLE, SCHEDULED)) {
+        dispatcher.execute(this);
+      }
+    }
+
+    @Override
+    int evict(int max) {
+      int evicted = 0;
+      Node<M, S> next;
+      while (evicted < max && (next = head.next) != null) {
+        int size = next.size();
+        if (size <= max - evicted) {
+          next.clear();
+          head = next;
+          evicted += size;
+        } else {
+          next.batch = next.batch.drop(max - evicted);
+          evicted = max;
+        }
+      }
+      return evicted;
+    }
+
+    /*
+     * Takes the next node, if any. When sender is given, only takes it if it
+     * holds a single message posted by this sender.
+     */
+    private Node<M, S> take(boolean sameSender, S sender) {
+      if (evictionLock == null) {
+        return takeNext(sameSender, sender);
+      }
+      synchronized (evictionLock) {
+        return takeNext(sameSender, sender);
+      }
+    }
+
+    private Node<M, S> takeNext(boolean sameSender, S sender) {
+      Node<M, S> next = head.next;
+      if (next == null || sameSender && (next.batch != null || next.sender != sender)) {
+        return null;
+      }
+      head = next;
+      release(next.size());
+      return next;
+    }
+
+    private Node<M, S> head() {
+      if (evictionLock == null) {
+        return head;
+      }
+      synchronized (evictionLock) {
+        return head;
+      }
+    }
+
+    @Override
+    public void run() {
+      int budget = dispatcher.throughput();
+      while (budget > 0) {
+        Node<M, S> next = take(false, null);
+        if (next == null) {
+          break;
+        }
+        S sender = next.sender;
+        if (next.batch != null) {
+          List<M> batch = next.batch;
+          next.clear();
+          int count = batch.length();
+          deliverAll(batch, count, sender);
+          budget -= count;
+        } else if (batching()) {
+          List.Builder<M> chunk = List.builder();
+          chunk.add(next.message);
+          next.clear();
+          Node<M, S> following;
+          while (chunk.length() < budget
+              && (following = take(true, sender)) != null) {
+            chunk.add(following.message);
+            following.clear();
+          }
+          int count = chunk.length();
+          deliverAll(chunk.build(), count, sender);
+          budget -= count;
+        } else {
+          M message = next.message;
+          next.clear();
+          deliver(message, sender);
+          budget--;
+        }
+      }
+      if (head().next != null) {
+        /*
+         * Throughput limit reached: let other mailboxes run before going on,
+         * while staying scheduled so that producers don't submit us twice.
+         */
+        dispatcher.execute(this);
+      } else {
+        state.set(IDLE);
+        /*
+         * A producer may have swapped the tail after we found next == null,
+         * and then failed to schedule us because we were still SCHEDULED.
+         */
+        if (tail.get() != head()) {
+          schedule();
+        }
+      }
+    }
+  }
+
+  private static final class Parallel<M, S> extends Mailbox<M, S> {
+
+    /*
+     * Under DROP_OLDEST, messages wait here rather than in the dispatcher
+     * queue, so that producers can evict them. There are never more tasks
+     * submitted than waiting nodes, and each one handles the oldest node.
+     */
+    private final ArrayDeque<Node<M, S>> waiting;
+    private int tasks;
+
+    private Parallel(Dispatcher dispatcher, BiConsumer<M, S> handler, BiConsumer<List<M>, S> batchHandler,
+                     BooleanSupplier batching, int capacity, Overflow overflow) {
+      super(dispatcher, handler, batchHandler, batching, capacity, overflow);
+      this.waiting = evictionLock != null
+          ? new ArrayDeque<>()
+          : null;
+    }
+
+    @Override
+    void enqueue(M message, List<M> batch, S sender) {
+      if (waiting != null) {
+        boolean submit;
+        synchronized (evictionLock) {
+          waiting.addLast(new Node<>(message, batch, sender));
+          submit = tasks < waiting.size();
+          if (submit) {
+            tasks++;
+          }
+        }
+        if (submit) {
+          dispatcher.execute(this::deliverOldest);
+        }
+      } else if (batch == null) {
+        dispatcher.execute(() -> {
+          release(1);
+          deliver(message, sender);
+        });
+      } else {
+        dispatcher.execute(() -> {
+          int count = batch.length();
+          release(count);
+          deliverAll(batch, count, sender);
+        });
+      }
+    }
+
+    @Override
+    int evict(int max) {
+      int evicted = 0;
+      Node<M, S> oldest;
+      while (evicted < max && (oldest = waiting.peekFirst()) != null) {
+        int size = oldest.size();
+        if (size <= max - evicted) {
+          waiting.pollFirst();
+          evicted += size;
+        } else {
+          oldest.batch = oldest.batch.drop(max - evicted);
+          evicted = max;
+        }
+      }
+      return evicted;
+    }
+
+    private void deliverOldest() {
+      Node<M, S> oldest;
+      synchronized (evictionLock) {
+        tasks--;
+        oldest = waiting.pollFirst();
+        if (oldest == null) {
+          return;
+        }
+        release(oldest.size());
+      }
+      if (oldest.batch == null) {
+        deliver(oldest.message, oldest.sender);
+      } else {
+        deliverAll(oldest.batch, oldest.batch.length(), oldest.sender);
+      }
+    }
+  }
+
+  private static final class Node<M, S> {
+
+    private M message;
+    private List<M> batch;
+    private S sender;
+    private volatile Node<M, S> next;
+
+    private Node(M message, List<M> batch, S sender) {
+      this.message = message;
+      this.batch = batch;
+      this.sender = sender;
+    }
+
+    /*
+     * The node becomes the stub, and may stay in the queue for a long time,
+     * so it must not retain the message.
+     */
+    private void clear() {
+      message = null;
+      batch = null;
+      sender = null;
+    }
+
+    private int size() {
+      return batch == null ? 1 : batch.length();
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.fpinjava.actors;
+
+import com.fpinjava.common.List;
+
+/**
+ * Puts back in order values numbered from 0 (or any first number) which
+ * arrive out of order, such as the results of tasks dispatched to several
+ * workers. Each value given to add is held until all the values before it
+ * have arrived, and add returns the run of values which may be delivered.
+ *
+ * Values are held in a ring buffer indexed by their sequence number, which
+ * doubles when a value arrives too far ahead of the expected one. A value
+ * arriving in order while nothing is pending costs no more than a list
+ * allocation, and draining a run of n values costs O(n).
+ *
+ * Values must not be null. A reorder buffer is mutable, and meant to be
+ * owned by a single serial actor. Only pending() and maxPending() may be read
+ * from other threads.
+ */
+public final class ReorderBuffer<T> {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private Object[] slots;
+  private int mask;
+  private int next;
+  private volatile int pending;
+  private volatile int maxPending;
+
+  public ReorderBuffer() {
+    this(0);
+  }
+
+  public ReorderBuffer(int first) {
+    this.slots = new Object[INITIAL_CAPACITY];
+    this.mask = INITIAL_CAPACITY - 1;
+    this.next = first;
+  }
+
+  /*
+   * Returns the values which are now in order, starting with the one
+   * numbered next(), or an empty list if value is ahead of it. Adding a
+   * sequence number which was already added is a programming error.
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> add(int sequence, T value) {
+    int distance = sequence - next;
+    if (distance < 0 || distance < slots.length && slots[sequence & mask] != null) {
+      throw new IllegalArgumentException(String.format("Sequence number %s was already added", sequence));
+    }
+    if (distance > 0) {
+      if (distance >= slots.length) {
+        grow(distance);
+      }
+      slots[sequence & mask] = value;
+      int count = pending + 1;
+      pending = count;
+      if (count > maxPending) {
+        maxPending = count;
+      }
+      return List.list();
+    }
+    next++;
+    if (pending == 0) {
+      return List.list(value);
+    }
+    List.Builder<T> run = List.builder();
+    run.add(value);
+    Object following;
+    while ((following = slots[next & mask]) != null) {
+      slots[next & mask] = null;
+      run.add((T) following);
+      next++;
+    }
+    pending -= run.length() - 1;
+    return run.build();
+  }
+
+  private void grow(int distance) {
+    int capacity = slots.length;
+    while (capacity <= distance) {
+      capacity *= 2;
+    }
+    Object[] newSlots = new Object[capacity];
+    int newMask = capacity - 1;
+    for (int i = 0; i < slots.length; i++) {
+      int sequence = next + i;
+      newSlots[sequence & newMask] = slots[sequence & mask];
+    }
+    slots = newSlots;
+    mask = newMask;
+  }
+
+  /*
+   * The sequence number of the next value to deliver.
+   */
+  public int next() {
+    return next;
+  }
+
+  /*
+   * The number of values held because some value before them is missing.
+   */
+  public int pending() {
+    return pending;
+  }
+
+  /*
+   * The highest number of values ever held at once, which tells how out of
+   * order values arrive.
+   */
+  public int maxPending() {
+    return maxPending;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ReorderBuffer(next: %s, pending: %s, max pending: %s)", next, pending, maxPending);
+  }
+}
@@ -0,0 +1,5 @@
+package com.fpinjava.common;
+
+public interface DoubleBinaryOp {
+  double apply(double a, double b);
+}
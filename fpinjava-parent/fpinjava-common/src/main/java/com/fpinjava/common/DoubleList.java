@@ -0,0 +1,267 @@
+package com.fpinjava.common;
+
+import java.util.Arrays;
+
+/**
+ * A persistent singly linked list of unboxed doubles. Folds, maps and filters
+ * work on primitive values through DoubleBinaryOp, DoubleUnaryOp and DoublePredicate,
+ * so no Double is ever allocated except when bridging to List<Double>.
+ */
+public abstract class DoubleList {
+
+  private static final DoubleList NIL = new Nil();
+
+  public abstract double head();
+  public abstract DoubleList tail();
+  public abstract boolean isEmpty();
+  public abstract int length();
+
+  public DoubleList cons(double h) {
+    return new Cons(h, this);
+  }
+
+  public Result<Double> headOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(head());
+  }
+
+  public double foldLeft(double identity, DoubleBinaryOp f) {
+    double acc = identity;
+    for (DoubleList list = this; !list.isEmpty(); list = list.tail()) {
+      acc = f.apply(acc, list.head());
+    }
+    return acc;
+  }
+
+  public double foldRight(double identity, DoubleBinaryOp f) {
+    double[] array = toArray();
+    double acc = identity;
+    for (int i = array.length - 1; i >= 0; i--) {
+      acc = f.apply(array[i], acc);
+    }
+    return acc;
+  }
+
+  public DoubleList map(DoubleUnaryOp f) {
+    double[] array = toArray();
+    for (int i = 0; i < array.length; i++) {
+      array[i] = f.apply(array[i]);
+    }
+    return fromArray(array, array.length);
+  }
+
+  public DoubleList filter(DoublePredicate p) {
+    double[] array = new double[length()];
+    int size = 0;
+    for (DoubleList list = this; !list.isEmpty(); list = list.tail()) {
+      if (p.test(list.head())) {
+        array[size++] = list.head();
+      }
+    }
+    return size == length()
+        ? this
+        : fromArray(array, size);
+  }
+
+  public boolean exists(DoublePredicate p) {
+    for (DoubleList list = this; !list.isEmpty(); list = list.tail()) {
+      if (p.test(list.head())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean forAll(DoublePredicate p) {
+    return !exists(x -> !p.test(x));
+  }
+
+  public double sum() {
+    return foldLeft(0.0, (a, b) -> a + b);
+  }
+
+  /*
+   * Throws an IllegalStateException if the list is empty, as List.max does.
+   */
+  public double max() {
+    if (isEmpty()) {
+      throw new IllegalStateException("max called on an empty list");
+    }
+    return tail().foldLeft(head(), Math::max);
+  }
+
+  public double min() {
+    if (isEmpty()) {
+      throw new IllegalStateException("min called on an empty list");
+    }
+    return tail().foldLeft(head(), Math::min);
+  }
+
+  public Result<Double> maxOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(max());
+  }
+
+  public Result<Double> minOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(min());
+  }
+
+  public DoubleList sort() {
+    double[] array = toArray();
+    Arrays.sort(array);
+    return fromArray(array, array.length);
+  }
+
+  public DoubleList reverse() {
+    DoubleList result = empty();
+    for (DoubleList list = this; !list.isEmpty(); list = list.tail()) {
+      result = result.cons(list.head());
+    }
+    return result;
+  }
+
+  public double[] toArray() {
+    double[] array = new double[length()];
+    int i = 0;
+    for (DoubleList list = this; !list.isEmpty(); list = list.tail()) {
+      array[i++] = list.head();
+    }
+    return array;
+  }
+
+  public List<Double> toList() {
+    List.Builder<Double> builder = List.builder(length());
+    for (DoubleList list = this; !list.isEmpty(); list = list.tail()) {
+      builder.add(list.head());
+    }
+    return builder.build();
+  }
+
+  public String mkStr(String sep) {
+    StringBuilder sb = new StringBuilder();
+    for (DoubleList list = this; !list.isEmpty(); list = list.tail()) {
+      sb.append(list.head());
+      if (!list.tail().isEmpty()) {
+        sb.append(sep);
+      }
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return isEmpty()
+        ? "[NIL]"
+        : String.format("[%s, NIL]", mkStr(", "));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof DoubleList)) return false;
+    DoubleList that = (DoubleList) o;
+    if (length() != that.length()) return false;
+    for (DoubleList l1 = this, l2 = that; !l1.isEmpty(); l1 = l1.tail(), l2 = l2.tail()) {
+      if (Double.compare(l1.head(), l2.head()) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = 1;
+    for (DoubleList list = this; !list.isEmpty(); list = list.tail()) {
+      h = 31 * h + Double.hashCode(list.head());
+    }
+    return h;
+  }
+
+  private static class Nil extends DoubleList {
+
+    private Nil() {}
+
+    @Override
+    public double head() {
+      throw new IllegalStateException("head called on empty list");
+    }
+
+    @Override
+    public DoubleList tail() {
+      throw new IllegalStateException("tail called on empty list");
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return true;
+    }
+
+    @Override
+    public int length() {
+      return 0;
+    }
+  }
+
+  private static class Cons extends DoubleList {
+
+    private final double head;
+    private final DoubleList tail;
+    private final int length;
+
+    private Cons(double head, DoubleList tail) {
+      this.head = head;
+      this.tail = tail;
+      this.length = tail.length() + 1;
+    }
+
+    @Override
+    public double head() {
+      return head;
+    }
+
+    @Override
+    public DoubleList tail() {
+      return tail;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return false;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+  }
+
+  public static DoubleList empty() {
+    return NIL;
+  }
+
+  public static DoubleList list(double... a) {
+    return fromArray(a, a.length);
+  }
+
+  public static DoubleList fromList(List<Double> list) {
+    double[] array = new double[list.length()];
+    int i = 0;
+    for (List<Double> workList = list; !workList.isEmpty(); workList = workList.tail()) {
+      array[i++] = workList.head();
+    }
+    return fromArray(array, array.length);
+  }
+
+  private static DoubleList fromArray(double[] array, int size) {
+    DoubleList result = empty();
+    for (int i = size - 1; i >= 0; i--) {
+      result = result.cons(array[i]);
+    }
+    return result;
+  }
+}
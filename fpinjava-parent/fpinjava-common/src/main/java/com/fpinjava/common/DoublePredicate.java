@@ -0,0 +1,5 @@
+package com.fpinjava.common;
+
+public interface DoublePredicate {
+  boolean test(double a);
+}
@@ -0,0 +1,5 @@
+package com.fpinjava.common;
+
+public interface DoubleUnaryOp {
+  double apply(double a);
+}
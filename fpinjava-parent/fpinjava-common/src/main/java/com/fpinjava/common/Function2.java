@@ -0,0 +1,18 @@
+package com.fpinjava.common;
+
+/*
+ * An uncurried function of two arguments. Applying it does not build an
+ * intermediate Function, which makes it the preferred form for folds.
+ */
+public interface Function2<T, U, R> {
+
+  R apply(T t, U u);
+
+  default Function<T, Function<U, R>> curried() {
+    return t -> u -> apply(t, u);
+  }
+
+  static <T, U, R> Function2<T, U, R> uncurried(Function<T, Function<U, R>> f) {
+    return (t, u) -> f.apply(t).apply(u);
+  }
+}
@@ -0,0 +1,14 @@
+package com.fpinjava.common;
+
+public interface Function3<T, U, V, R> {
+
+  R apply(T t, U u, V v);
+
+  default Function<T, Function<U, Function<V, R>>> curried() {
+    return t -> u -> v -> apply(t, u, v);
+  }
+
+  static <T, U, V, R> Function3<T, U, V, R> uncurried(Function<T, Function<U, Function<V, R>>> f) {
+    return (t, u, v) -> f.apply(t).apply(u).apply(v);
+  }
+}
@@ -13,7 +13,6 @@ public abstract class Heap<A> {
   protected abstract A headOrThrow();
   protected abstract Heap<A> tailOrThrow();
 
-  public abstract Result<A> get(int index);
   public abstract Result<A> head();
   public abstract Result<Heap<A>> tail();
   public abstract int length();
@@ -26,6 +25,18 @@ public abstract class Heap<A> {
     return merge(this, heap(element, this.comparator()));
   }
 
+  public Result<A> get(int index) {
+    return get(this, index).eval();
+  }
+
+  private static <A> TailCall<Result<A>> get(Heap<A> heap, int index) {
+    return heap.isEmpty() || index < 0
+        ? TailCall.ret(Result.failure(new IndexOutOfBoundsException("Index " + index + " out of heap bounds")))
+        : index == 0
+            ? TailCall.ret(heap.head())
+            : TailCall.sus(() -> get(heap.tailOrThrow(), index - 1));
+  }
+
   public List<A> toList() {
     return toList(List.list(), this).eval();
   }
@@ -68,11 +79,6 @@ public abstract class Heap<A> {
       return 0;
     }
 
-    @Override
-    public Result<A> get(int index) {
-      throw new IllegalStateException("To be implemented");
-    }
-
     @Override
     public Result<A> head() {
       return Result.failure(new NoSuchElementException("Method head() called on empty heap"));
@@ -156,13 +162,6 @@ public abstract class Heap<A> {
       return this.rank;
     }
 
-    @Override
-    public Result<A> get(int index) {
-      return index == 0
-          ? head()
-          : tail().flatMap(x -> x.get(index - 1));
-    }
-
     @Override
     public Result<A> head() {
       return Result.success(this.head);
@@ -0,0 +1,5 @@
+package com.fpinjava.common;
+
+public interface IntBinaryOp {
+  int apply(int a, int b);
+}
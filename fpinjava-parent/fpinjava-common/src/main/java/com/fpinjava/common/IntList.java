@@ -0,0 +1,274 @@
+package com.fpinjava.common;
+
+import java.util.Arrays;
+
+/**
+ * A persistent singly linked list of unboxed ints. Folds, maps and filters
+ * work on primitive values through IntBinaryOp, IntUnaryOp and IntPredicate,
+ * so no Integer is ever allocated except when bridging to List<Integer>.
+ */
+public abstract class IntList {
+
+  private static final IntList NIL = new Nil();
+
+  public abstract int head();
+  public abstract IntList tail();
+  public abstract boolean isEmpty();
+  public abstract int length();
+
+  public IntList cons(int h) {
+    return new Cons(h, this);
+  }
+
+  public Result<Integer> headOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(head());
+  }
+
+  public int foldLeft(int identity, IntBinaryOp f) {
+    int acc = identity;
+    for (IntList list = this; !list.isEmpty(); list = list.tail()) {
+      acc = f.apply(acc, list.head());
+    }
+    return acc;
+  }
+
+  public int foldRight(int identity, IntBinaryOp f) {
+    int[] array = toArray();
+    int acc = identity;
+    for (int i = array.length - 1; i >= 0; i--) {
+      acc = f.apply(array[i], acc);
+    }
+    return acc;
+  }
+
+  public IntList map(IntUnaryOp f) {
+    int[] array = toArray();
+    for (int i = 0; i < array.length; i++) {
+      array[i] = f.apply(array[i]);
+    }
+    return fromArray(array, array.length);
+  }
+
+  public IntList filter(IntPredicate p) {
+    int[] array = new int[length()];
+    int size = 0;
+    for (IntList list = this; !list.isEmpty(); list = list.tail()) {
+      if (p.test(list.head())) {
+        array[size++] = list.head();
+      }
+    }
+    return size == length()
+        ? this
+        : fromArray(array, size);
+  }
+
+  public boolean exists(IntPredicate p) {
+    for (IntList list = this; !list.isEmpty(); list = list.tail()) {
+      if (p.test(list.head())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean forAll(IntPredicate p) {
+    return !exists(x -> !p.test(x));
+  }
+
+  public int sum() {
+    return foldLeft(0, (a, b) -> a + b);
+  }
+
+  /*
+   * Throws an IllegalStateException if the list is empty, as List.max does.
+   */
+  public int max() {
+    if (isEmpty()) {
+      throw new IllegalStateException("max called on an empty list");
+    }
+    return tail().foldLeft(head(), Math::max);
+  }
+
+  public int min() {
+    if (isEmpty()) {
+      throw new IllegalStateException("min called on an empty list");
+    }
+    return tail().foldLeft(head(), Math::min);
+  }
+
+  public Result<Integer> maxOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(max());
+  }
+
+  public Result<Integer> minOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(min());
+  }
+
+  public IntList sort() {
+    int[] array = toArray();
+    Arrays.sort(array);
+    return fromArray(array, array.length);
+  }
+
+  public IntList reverse() {
+    IntList result = empty();
+    for (IntList list = this; !list.isEmpty(); list = list.tail()) {
+      result = result.cons(list.head());
+    }
+    return result;
+  }
+
+  public int[] toArray() {
+    int[] array = new int[length()];
+    int i = 0;
+    for (IntList list = this; !list.isEmpty(); list = list.tail()) {
+      array[i++] = list.head();
+    }
+    return array;
+  }
+
+  public List<Integer> toList() {
+    List.Builder<Integer> builder = List.builder(length());
+    for (IntList list = this; !list.isEmpty(); list = list.tail()) {
+      builder.add(list.head());
+    }
+    return builder.build();
+  }
+
+  public String mkStr(String sep) {
+    StringBuilder sb = new StringBuilder();
+    for (IntList list = this; !list.isEmpty(); list = list.tail()) {
+      sb.append(list.head());
+      if (!list.tail().isEmpty()) {
+        sb.append(sep);
+      }
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return isEmpty()
+        ? "[NIL]"
+        : String.format("[%s, NIL]", mkStr(", "));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof IntList)) return false;
+    IntList that = (IntList) o;
+    if (length() != that.length()) return false;
+    for (IntList l1 = this, l2 = that; !l1.isEmpty(); l1 = l1.tail(), l2 = l2.tail()) {
+      if (l1.head() != l2.head()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return foldLeft(1, (h, x) -> 31 * h + x);
+  }
+
+  private static class Nil extends IntList {
+
+    private Nil() {}
+
+    @Override
+    public int head() {
+      throw new IllegalStateException("head called on empty list");
+    }
+
+    @Override
+    public IntList tail() {
+      throw new IllegalStateException("tail called on empty list");
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return true;
+    }
+
+    @Override
+    public int length() {
+      return 0;
+    }
+  }
+
+  private static class Cons extends IntList {
+
+    private final int head;
+    private final IntList tail;
+    private final int length;
+
+    private Cons(int head, IntList tail) {
+      this.head = head;
+      this.tail = tail;
+      this.length = tail.length() + 1;
+    }
+
+    @Override
+    public int head() {
+      return head;
+    }
+
+    @Override
+    public IntList tail() {
+      return tail;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return false;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+  }
+
+  public static IntList empty() {
+    return NIL;
+  }
+
+  public static IntList list(int... a) {
+    return fromArray(a, a.length);
+  }
+
+  /*
+   * Returns the ints from start (included) to end (excluded), like List.range.
+   */
+  public static IntList range(int start, int end) {
+    IntList result = empty();
+    for (int i = end - 1; i >= start; i--) {
+      result = result.cons(i);
+    }
+    return result;
+  }
+
+  public static IntList fromList(List<Integer> list) {
+    int[] array = new int[list.length()];
+    int i = 0;
+    for (List<Integer> workList = list; !workList.isEmpty(); workList = workList.tail()) {
+      array[i++] = workList.head();
+    }
+    return fromArray(array, array.length);
+  }
+
+  private static IntList fromArray(int[] array, int size) {
+    IntList result = empty();
+    for (int i = size - 1; i >= 0; i--) {
+      result = result.cons(array[i]);
+    }
+    return result;
+  }
+}
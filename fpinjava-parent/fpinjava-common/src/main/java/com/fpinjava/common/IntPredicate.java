@@ -0,0 +1,5 @@
+package com.fpinjava.common;
+
+public interface IntPredicate {
+  boolean test(int a);
+}
@@ -0,0 +1,5 @@
+package com.fpinjava.common;
+
+public interface IntUnaryOp {
+  int apply(int a);
+}
@@ -3,9 +3,10 @@ package com.fpinjava.common;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Objects;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 
 import static com.fpinjava.common.TailCall.ret;
@@ -40,16 +41,32 @@ public abstract class List<A> {
   public abstract Result<Tuple<A, List<A>>> headAndTail();
   public abstract Stream<A> toStream();
 
+  public <B> B foldLeft(B identity, Function2<B, A, B> f) {
+    B acc = identity;
+    for (List<A> list = this; !list.isEmpty(); list = list.tail()) {
+      acc = f.apply(acc, list.head());
+    }
+    return acc;
+  }
+
+  public <B> B foldRight(B identity, Function2<A, B, B> f) {
+    B acc = identity;
+    for (List<A> list = reverse(); !list.isEmpty(); list = list.tail()) {
+      acc = f.apply(list.head(), acc);
+    }
+    return acc;
+  }
+
   public <B> List<B> map(Function<A, B> f) {
-    return foldRight(list(), h -> t -> new Cons<>(f.apply(h),t));
+    return foldRight(list(), (h, t) -> new Cons<>(f.apply(h), t));
   }
 
   public List<A> filter(Function<A, Boolean> f) {
-    return foldRight(list(), h -> t -> f.apply(h) ? new Cons<>(h,t) : t);
+    return foldRight(list(), (h, t) -> f.apply(h) ? new Cons<>(h, t) : t);
   }
 
   public <B> List<B> flatMap(Function<A, List<B>> f) {
-    return foldRight(list(), h -> t -> concat(f.apply(h), t));
+    return foldRight(list(), (h, t) -> concat(f.apply(h), t));
   }
 
   public List<List<A>> choices() {
@@ -69,13 +86,13 @@ public abstract class List<A> {
   }
 
   public static <B> List<B> iterate(B seed, Function<B, B> f, int n) {
-    List<B> result = list();
+    Builder<B> builder = builder(n);
     B temp = seed;
     for (int i = 0; i < n; i++) {
-      result = List.cons(temp, result);
+      builder.add(temp);
       temp = f.apply(temp);
     }
-    return result.reverse();
+    return builder.build();
   }
 
   public <B> Result<List<Tuple<A, B>>> zip(List<B> listB) {
@@ -260,11 +277,16 @@ public abstract class List<A> {
     return m;
   }
 
+  /*
+   * Groups are accumulated in a local mutable map, then the result is built in
+   * one pass. Each group keeps the order of the original list.
+   */
   public <B> Map<B, List<A>> groupBy(Function<A, B> f) {
-    return foldRight(Map.empty(), t -> mt -> {
-      final B k = f.apply(t);
-      return mt.put(k, mt.get(k).getOrElse(list()).cons(t));
-    });
+    java.util.Map<B, Builder<A>> groups = new HashMap<>();
+    forEach(a -> groups.computeIfAbsent(f.apply(a), k -> builder()).add(a));
+    Map.Builder<B, List<A>> builder = Map.builder();
+    groups.forEach((k, group) -> builder.add(k, group.build()));
+    return builder.build();
   }
 
   public boolean forAll(Function<A, Boolean> p) {
@@ -330,17 +352,8 @@ public abstract class List<A> {
   }
 
   public<B> Result<B> parFoldLeft(ExecutorService es, B identity, Function<B, Function<A, B>> f, Function<B, Function<B, B>> m) {
-    final int chunks = 1024;
-    final List<List<A>> dList = divide(chunks);
     try {
-      List<B> result = dList.map(x -> es.submit(() -> x.foldLeft(identity, f))).map(x -> {
-        try {
-          return x.get();
-        } catch (InterruptedException | ExecutionException e) {
-          throw new RuntimeException(e);
-        }
-      });
-      return Result.success(result.foldLeft(identity, m));
+      return Result.success(Parallel.foldLeft(es, this, identity, f, m));
     } catch (Exception e) {
       return Result.failure(e.getMessage(), e);
     }
@@ -348,13 +361,47 @@ public abstract class List<A> {
 
   public <B> Result<List<B>> parMap(ExecutorService es, Function<A, B> g) {
     try {
-      return Result.success(this.map(x -> es.submit(() -> g.apply(x))).map(x -> {
-        try {
-          return x.get();
-        } catch (InterruptedException | ExecutionException e) {
-          throw new RuntimeException(e);
-        }
-      }));
+      return Result.success(Parallel.map(es, this, g));
+    } catch (Exception e) {
+      return Result.failure(e.getMessage(), e);
+    }
+  }
+
+  /*
+   * The ForkJoinPool versions split the list by index and let idle workers
+   * steal leaves. m must be associative, and identity must be an identity
+   * for m, since it is used once per leaf.
+   */
+  public <B> Result<B> parFoldLeft(ForkJoinPool pool, B identity, Function2<B, A, B> f, Function2<B, B, B> m) {
+    try {
+      return Result.success(Parallel.foldLeft(pool, this, identity, f, m));
+    } catch (Exception e) {
+      return Result.failure(e.getMessage(), e);
+    }
+  }
+
+  public Result<A> parReduce(ForkJoinPool pool, Function2<A, A, A> f) {
+    if (isEmpty()) {
+      return Result.empty();
+    }
+    try {
+      return Result.success(Parallel.reduce(pool, this, f));
+    } catch (Exception e) {
+      return Result.failure(e.getMessage(), e);
+    }
+  }
+
+  public <B> Result<List<B>> parMap(ForkJoinPool pool, Function<A, B> f) {
+    try {
+      return Result.success(Parallel.map(pool, this, f));
+    } catch (Exception e) {
+      return Result.failure(e.getMessage(), e);
+    }
+  }
+
+  public Result<List<A>> parFilter(ForkJoinPool pool, Function<A, Boolean> p) {
+    try {
+      return Result.success(Parallel.filter(pool, this, p));
     } catch (Exception e) {
       return Result.failure(e.getMessage(), e);
     }
@@ -382,11 +429,11 @@ public abstract class List<A> {
     private Nil() {}
 
     public A head() {
-      throw new IllegalStateException("head called en empty list");
+      throw new IllegalStateException("head called on empty list");
     }
 
     public List<A> tail() {
-      throw new IllegalStateException("tail called en empty list");
+      throw new IllegalStateException("tail called on empty list");
     }
 
     public boolean isEmpty() {
@@ -395,7 +442,7 @@ public abstract class List<A> {
 
     @Override
     public List<A> setHead(A h) {
-      throw new IllegalStateException("setHead called en empty list");
+      throw new IllegalStateException("setHead called on empty list");
     }
 
     public String toString() {
@@ -584,13 +631,11 @@ public abstract class List<A> {
 
     @Override
     public List<A> reverse() {
-      return reverse_(list(), this).eval();
-    }
-
-    private TailCall<List<A>> reverse_(List<A> acc, List<A> list) {
-      return list.isEmpty()
-          ? ret(acc)
-          : sus(() -> reverse_(new Cons<>(list.head(), acc), list.tail()));
+      List<A> acc = list();
+      for (List<A> list = this; !list.isEmpty(); list = list.tail()) {
+        acc = new Cons<>(list.head(), acc);
+      }
+      return acc;
     }
 
     @Override
@@ -605,13 +650,7 @@ public abstract class List<A> {
 
     @Override
     public <B> B foldLeft(B identity, Function<B, Function<A, B>> f) {
-      return foldLeft(identity, this, f).eval();
-    }
-
-    private <B> TailCall<B> foldLeft(B acc, List<A> list, Function<B, Function<A, B>> f) {
-      return list.isEmpty()
-          ? ret(acc)
-          : sus(() -> foldLeft(f.apply(acc).apply(list.head()), list.tail(), f));
+      return foldLeft(identity, Function2.uncurried(f));
     }
 
     @Override
@@ -627,7 +666,7 @@ public abstract class List<A> {
 
     @Override
     public <B> B foldRight(B identity, Function<A, Function<B, B>> f) {
-      return reverse().foldLeft(identity, x -> y -> f.apply(y).apply(x));
+      return foldRight(identity, Function2.uncurried(f));
     }
 
     @Override
@@ -647,7 +686,7 @@ public abstract class List<A> {
 
     @Override
     public String mkStr(String sep) {
-      return head.toString() + tail.foldLeft("", s -> e -> s + sep + e.toString());
+      return tail.foldLeft(new StringBuilder(head.toString()), (sb, e) -> sb.append(sep).append(e)).toString();
     }
 
     @Override
@@ -724,7 +763,7 @@ public abstract class List<A> {
     }
 
     private List<Tuple<List<A>, List<A>>> split_(List<A> list) {
-      List<Tuple<List<A>, List<A>>> yss = list.tail().split();
+      List<Tuple<List<A>, List<A>>> yss = list.split();
       return yss.map(t -> new Tuple<>(t._1.cons(head), t._2)).cons(new Tuple<>(list(head), tail));
     }
   }
@@ -743,6 +782,74 @@ public abstract class List<A> {
     return n;
   }
 
+  public static <A> Builder<A> builder() {
+    return new Builder<>(16);
+  }
+
+  public static <A> Builder<A> builder(int expectedLength) {
+    return new Builder<>(expectedLength);
+  }
+
+  /**
+   * A transient list builder. Elements are accumulated in a mutable array
+   * owned by the builder, and the persistent list is only created by build(),
+   * which allocates exactly one Cons per element. A builder must not be shared
+   * between threads, and can't be used any more once build() has been called.
+   */
+  public static final class Builder<A> {
+
+    private Object[] elements;
+    private int length;
+
+    private Builder(int expectedLength) {
+      this.elements = new Object[Math.max(expectedLength, 1)];
+    }
+
+    public Builder<A> add(A a) {
+      checkNotBuilt();
+      if (length == elements.length) {
+        elements = Arrays.copyOf(elements, length * 2);
+      }
+      elements[length++] = a;
+      return this;
+    }
+
+    public Builder<A> addAll(List<A> list) {
+      for (List<A> workList = list; !workList.isEmpty(); workList = workList.tail()) {
+        add(workList.head());
+      }
+      return this;
+    }
+
+    public Builder<A> addAll(Iterable<? extends A> iterable) {
+      for (A a : iterable) {
+        add(a);
+      }
+      return this;
+    }
+
+    public int length() {
+      return length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<A> build() {
+      checkNotBuilt();
+      List<A> result = list();
+      for (int i = length - 1; i >= 0; i--) {
+        result = new Cons<>((A) elements[i], result);
+      }
+      elements = null;
+      return result;
+    }
+
+    private void checkNotBuilt() {
+      if (elements == null) {
+        throw new IllegalStateException("Builder used after build() was called");
+      }
+    }
+  }
+
   public static <A, B> B foldRight(List<A> list, B n, Function<A, Function<B, B>> f ) {
     return list.foldRight(n, f);
   }
@@ -836,51 +943,55 @@ public abstract class List<A> {
                 : ret(Boolean.FALSE);
   }
 
-  /**
-   * Caution: not stack safe
-   */
   public static <A, S> List<A> unfold_(S z, Function<S, Result<Tuple<A, S>>> f) {
-    return f.apply(z).map(x -> unfold_(x._2, f).cons(x._1)).getOrElse(list());
+    return unfoldRec(z, f).eval();
   }
 
-  public static <A, S> List<A> unfold(S z, Function<S, Result<Tuple<A, S>>> f) {
-    return unfold(list(), z, f).eval().reverse();
+  private static <A, S> TailCall<List<A>> unfoldRec(S z, Function<S, Result<Tuple<A, S>>> f) {
+    return f.apply(z).map(x -> sus(() -> unfoldRec(x._2, f)).map(l -> l.cons(x._1))).getOrElse(ret(list()));
   }
 
-  private static <A, S> TailCall<List<A>> unfold(List<A> acc, S z, Function<S, Result<Tuple<A, S>>> f) {
+  public static <A, S> List<A> unfold(S z, Function<S, Result<Tuple<A, S>>> f) {
+    Builder<A> builder = builder();
     Result<Tuple<A, S>> r = f.apply(z);
-    Result<TailCall<List<A>>> result = r.map(rt -> sus(() -> unfold(acc.cons(rt._1), rt._2, f)));
-    return result.getOrElse(ret(acc));
+    while (r.isSuccess()) {
+      Tuple<A, S> t = r.successValue();
+      builder.add(t._1);
+      r = f.apply(t._2);
+    }
+    return builder.build();
   }
 
   public static List<Integer> range(int start, int end) {
-    return List.unfold(start, i -> i < end
-        ? Result.success(new Tuple<>(i, i + 1))
-        : Result.empty());
+    Builder<Integer> builder = builder(end - start);
+    for (int i = start; i < end; i++) {
+      builder.add(i);
+    }
+    return builder.build();
   }
 
   public static <A> List<A> fill(int n, Supplier<A> s) {
-    return range(0, n).map(ignore -> s.get());
+    Builder<A> builder = builder(n);
+    for (int i = 0; i < n; i++) {
+      builder.add(s.get());
+    }
+    return builder.build();
   }
 
   public static <T> List<T> fromCollection(Collection<T> ct) {
-    List<T> lt = list();
-    for (T t : ct) {
-      lt = lt.cons(t);
-    }
-    return lt.reverse();
+    return List.<T>builder(ct.size()).addAll(ct).build();
   }
 
   public static Result<Integer> maxOption(List<Integer> list) {
     return list.isEmpty()
         ? Result.empty()
-        : Result.success(list.tail().foldRight(list.head(), x -> y -> x > y ? x : y));
+        : Result.success(list.tail().foldLeft(list.head(), Math::max));
   }
 
   public static Result<Integer> minOption(List<Integer> list) {
     return list.isEmpty()
         ? Result.empty()
-        : Result.success(list.tail().foldRight(list.head(), x -> y -> x < y ? x : y));
+        : Result.success(list.tail().foldLeft(list.head(), Math::min));
   }
 
   /*
@@ -888,17 +999,21 @@ public abstract class List<A> {
    * is used in chapter 10.
    */
   public static int max(List<Integer> list) {
-    return list.tail().foldRight(list.head(), x -> y -> x > y ? x : y);
+    return list.tail().foldLeft(list.head(), Math::max);
   }
 
   public static int min(List<Integer> list) {
-    return list.tail().foldRight(list.head(), x -> y -> x < y ? x : y);
+    return list.tail().foldLeft(list.head(), Math::min);
   }
 
   public static List<String> fromSeparatedString(String string, char separator) {
     return List.fromCollection(Arrays.asList(string.split("\\s*" + separator + "\\s*")));
   }
 
+  public Vector<A> toVector() {
+    return Vector.fromList(this);
+  }
+
   public java.util.List<A> toJavaList() {
     java.util.List<A> s = new ArrayList<>();
     List<A> workList = this;
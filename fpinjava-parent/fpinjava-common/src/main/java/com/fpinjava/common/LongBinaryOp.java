@@ -0,0 +1,5 @@
+package com.fpinjava.common;
+
+public interface LongBinaryOp {
+  long apply(long a, long b);
+}
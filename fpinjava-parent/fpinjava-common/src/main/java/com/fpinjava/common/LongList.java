@@ -0,0 +1,274 @@
+package com.fpinjava.common;
+
+import java.util.Arrays;
+
+/**
+ * A persistent singly linked list of unboxed longs. Folds, maps and filters
+ * work on primitive values through LongBinaryOp, LongUnaryOp and LongPredicate,
+ * so no Long is ever allocated except when bridging to List<Long>.
+ */
+public abstract class LongList {
+
+  private static final LongList NIL = new Nil();
+
+  public abstract long head();
+  public abstract LongList tail();
+  public abstract boolean isEmpty();
+  public abstract int length();
+
+  public LongList cons(long h) {
+    return new Cons(h, this);
+  }
+
+  public Result<Long> headOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(head());
+  }
+
+  public long foldLeft(long identity, LongBinaryOp f) {
+    long acc = identity;
+    for (LongList list = this; !list.isEmpty(); list = list.tail()) {
+      acc = f.apply(acc, list.head());
+    }
+    return acc;
+  }
+
+  public long foldRight(long identity, LongBinaryOp f) {
+    long[] array = toArray();
+    long acc = identity;
+    for (int i = array.length - 1; i >= 0; i--) {
+      acc = f.apply(array[i], acc);
+    }
+    return acc;
+  }
+
+  public LongList map(LongUnaryOp f) {
+    long[] array = toArray();
+    for (int i = 0; i < array.length; i++) {
+      array[i] = f.apply(array[i]);
+    }
+    return fromArray(array, array.length);
+  }
+
+  public LongList filter(LongPredicate p) {
+    long[] array = new long[length()];
+    int size = 0;
+    for (LongList list = this; !list.isEmpty(); list = list.tail()) {
+      if (p.test(list.head())) {
+        array[size++] = list.head();
+      }
+    }
+    return size == length()
+        ? this
+        : fromArray(array, size);
+  }
+
+  public boolean exists(LongPredicate p) {
+    for (LongList list = this; !list.isEmpty(); list = list.tail()) {
+      if (p.test(list.head())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean forAll(LongPredicate p) {
+    return !exists(x -> !p.test(x));
+  }
+
+  public long sum() {
+    return foldLeft(0, (a, b) -> a + b);
+  }
+
+  /*
+   * Throws an IllegalStateException if the list is empty, as List.max does.
+   */
+  public long max() {
+    if (isEmpty()) {
+      throw new IllegalStateException("max called on an empty list");
+    }
+    return tail().foldLeft(head(), Math::max);
+  }
+
+  public long min() {
+    if (isEmpty()) {
+      throw new IllegalStateException("min called on an empty list");
+    }
+    return tail().foldLeft(head(), Math::min);
+  }
+
+  public Result<Long> maxOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(max());
+  }
+
+  public Result<Long> minOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(min());
+  }
+
+  public LongList sort() {
+    long[] array = toArray();
+    Arrays.sort(array);
+    return fromArray(array, array.length);
+  }
+
+  public LongList reverse() {
+    LongList result = empty();
+    for (LongList list = this; !list.isEmpty(); list = list.tail()) {
+      result = result.cons(list.head());
+    }
+    return result;
+  }
+
+  public long[] toArray() {
+    long[] array = new long[length()];
+    int i = 0;
+    for (LongList list = this; !list.isEmpty(); list = list.tail()) {
+      array[i++] = list.head();
+    }
+    return array;
+  }
+
+  public List<Long> toList() {
+    List.Builder<Long> builder = List.builder(length());
+    for (LongList list = this; !list.isEmpty(); list = list.tail()) {
+      builder.add(list.head());
+    }
+    return builder.build();
+  }
+
+  public String mkStr(String sep) {
+    StringBuilder sb = new StringBuilder();
+    for (LongList list = this; !list.isEmpty(); list = list.tail()) {
+      sb.append(list.head());
+      if (!list.tail().isEmpty()) {
+        sb.append(sep);
+      }
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return isEmpty()
+        ? "[NIL]"
+        : String.format("[%s, NIL]", mkStr(", "));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof LongList)) return false;
+    LongList that = (LongList) o;
+    if (length() != that.length()) return false;
+    for (LongList l1 = this, l2 = that; !l1.isEmpty(); l1 = l1.tail(), l2 = l2.tail()) {
+      if (l1.head() != l2.head()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) foldLeft(1, (h, x) -> 31 * h + Long.hashCode(x));
+  }
+
+  private static class Nil extends LongList {
+
+    private Nil() {}
+
+    @Override
+    public long head() {
+      throw new IllegalStateException("head called on empty list");
+    }
+
+    @Override
+    public LongList tail() {
+      throw new IllegalStateException("tail called on empty list");
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return true;
+    }
+
+    @Override
+    public int length() {
+      return 0;
+    }
+  }
+
+  private static class Cons extends LongList {
+
+    private final long head;
+    private final LongList tail;
+    private final int length;
+
+    private Cons(long head, LongList tail) {
+      this.head = head;
+      this.tail = tail;
+      this.length = tail.length() + 1;
+    }
+
+    @Override
+    public long head() {
+      return head;
+    }
+
+    @Override
+    public LongList tail() {
+      return tail;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return false;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+  }
+
+  public static LongList empty() {
+    return NIL;
+  }
+
+  public static LongList list(long... a) {
+    return fromArray(a, a.length);
+  }
+
+  /*
+   * Returns the longs from start (included) to end (excluded), like List.range.
+   */
+  public static LongList range(long start, long end) {
+    LongList result = empty();
+    for (long i = end - 1; i >= start; i--) {
+      result = result.cons(i);
+    }
+    return result;
+  }
+
+  public static LongList fromList(List<Long> list) {
+    long[] array = new long[list.length()];
+    int i = 0;
+    for (List<Long> workList = list; !workList.isEmpty(); workList = workList.tail()) {
+      array[i++] = workList.head();
+    }
+    return fromArray(array, array.length);
+  }
+
+  private static LongList fromArray(long[] array, int size) {
+    LongList result = empty();
+    for (int i = size - 1; i >= 0; i--) {
+      result = result.cons(array[i]);
+    }
+    return result;
+  }
+}
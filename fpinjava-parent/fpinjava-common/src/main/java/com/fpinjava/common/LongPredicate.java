@@ -0,0 +1,5 @@
+package com.fpinjava.common;
+
+public interface LongPredicate {
+  boolean test(long a);
+}
@@ -0,0 +1,5 @@
+package com.fpinjava.common;
+
+public interface LongUnaryOp {
+  long apply(long a);
+}
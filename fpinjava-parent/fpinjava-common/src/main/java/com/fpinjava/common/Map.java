@@ -5,32 +5,61 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.Consumer;
 
-public class Map<T, U> {
+/**
+ * A map with two implementations. The one returned by empty() is persistent:
+ * put, removeKey and the other updates return a new map sharing most of its
+ * structure with the original one, which is left unchanged. The one returned
+ * by concurrent() wraps a ConcurrentHashMap that is updated in place, and
+ * update methods return the same instance. It should only be used when a map
+ * has to be shared and updated by several threads.
+ */
+public abstract class Map<T, U> {
 
   private static String NULL_KEY = "Map key can't be null";
   private static String NULL_VALUE = "Map value can't be null";
 
-  private final ConcurrentMap<T, U> map = new ConcurrentHashMap<>();
+  @SuppressWarnings("rawtypes")
+  private static final Map EMPTY = new Persistent<>(com.fpinjava.map.Map.empty());
 
+  private Map() {}
+
+  @SuppressWarnings("unchecked")
   public static <T, U> Map<T, U> empty() {
-    return new Map<>();
+    return EMPTY;
+  }
+
+  public static <T, U> Map<T, U> concurrent() {
+    return new Concurrent<>();
+  }
+
+  public static <T, U> Builder<T, U> builder() {
+    return new Builder<>(com.fpinjava.map.Map.builder());
   }
 
   public static <T, U> Map<T, U> add(Map<T, U> m, T t, U u) {
     Objects.requireNonNull(t, NULL_KEY);
     Objects.requireNonNull(u, NULL_VALUE);
-    m.map.put(t, u);
-    return m;
+    return m.add(t, u);
   }
 
-  public Result<U> get(final T t) {
-    return t == null
-        ? Result.failure(NULL_KEY, new IllegalArgumentException(NULL_KEY))
-        : Result.of(() -> this.map.get(t), String.format("Key %s not found in map", t));
-  }
+  abstract Map<T, U> add(T t, U u);
+
+  public abstract Result<U> get(final T t);
+
+  public abstract boolean containsKey(final T t);
+
+  public abstract Map<T, U> removeKey(T t);
+
+  public abstract List<T> keys();
+
+  public abstract List<U> values();
+
+  public abstract int size();
 
-  public boolean containsKey(final T t) {
-    return this.map.containsKey(t);
+  public abstract void foreach(Consumer<Tuple<T, U>> c);
+
+  public boolean isEmpty() {
+    return size() == 0;
   }
 
   public Map<T, U> put(Tuple<T, U> e) {
@@ -45,25 +74,194 @@ public class Map<T, U> {
     return put(e);
   }
 
-  public Map<T, U> removeKey(T t) {
-    this.map.remove(t);
-    return this;
+  /*
+   * Associates t with u if t is not in the map, or with f(current value, u)
+   * otherwise.
+   */
+  public Map<T, U> merge(T t, U u, Function2<U, U, U> f) {
+    return put(t, get(t).map(v -> f.apply(v, u)).getOrElse(u));
+  }
+
+  public Map<T, U> putAll(List<Tuple<T, U>> entries) {
+    return putAll_(entries::forEach);
   }
 
-  public List<T> keys() {
-    return List.fromCollection(this.map.keySet());
+  public Map<T, U> putAll(Map<T, U> m) {
+    return putAll_(m::foreach);
+  }
+
+  abstract Map<T, U> putAll_(Effect<Consumer<Tuple<T, U>>> entries);
+
+  private static <T, U> Result<U> notFound(T t) {
+    return Result.failure(String.format("Key %s not found in map", t));
   }
 
-  public List<U> values() {
-    return List.fromCollection(this.map.values());
+  private static <T, U> Result<U> nullKey() {
+    return Result.failure(NULL_KEY, new IllegalArgumentException(NULL_KEY));
   }
 
-  public int size() {
-    return this.map.size();
+  private static final class Persistent<T, U> extends Map<T, U> {
+
+    private final com.fpinjava.map.Map<T, U> delegate;
+
+    private Persistent(com.fpinjava.map.Map<T, U> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    Map<T, U> add(T t, U u) {
+      com.fpinjava.map.Map<T, U> map = delegate.add(t, u);
+      return map == delegate
+          ? this
+          : new Persistent<>(map);
+    }
+
+    @Override
+    public Result<U> get(T t) {
+      if (t == null) {
+        return nullKey();
+      }
+      Result<Tuple<T, U>> rt = delegate.get(t);
+      return rt.isSuccess()
+          ? Result.success(rt.successValue()._2)
+          : notFound(t);
+    }
+
+    @Override
+    public boolean containsKey(T t) {
+      return delegate.contains(t);
+    }
+
+    @Override
+    public Map<T, U> removeKey(T t) {
+      com.fpinjava.map.Map<T, U> map = delegate.remove(t);
+      return map == delegate
+          ? this
+          : new Persistent<>(map);
+    }
+
+    @Override
+    public List<T> keys() {
+      return delegate.toList().map(e -> e._1);
+    }
+
+    @Override
+    public List<U> values() {
+      return delegate.toList().map(e -> e._2);
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public void foreach(Consumer<Tuple<T, U>> c) {
+      delegate.toList().forEach(c);
+    }
+
+    @Override
+    Map<T, U> putAll_(Effect<Consumer<Tuple<T, U>>> entries) {
+      Builder<T, U> builder = new Builder<>(delegate.toBuilder());
+      entries.apply(e -> builder.add(e._1, e._2));
+      return builder.build();
+    }
+
+    @Override
+    public String toString() {
+      return delegate.toString();
+    }
   }
 
-  public void foreach(Consumer<Tuple<T, U>> c) {
-    this.map.entrySet().forEach(e -> c.accept(new Tuple<>(e.getKey(), e.getValue())));
+  private static final class Concurrent<T, U> extends Map<T, U> {
+
+    private final ConcurrentMap<T, U> map = new ConcurrentHashMap<>();
+
+    @Override
+    Map<T, U> add(T t, U u) {
+      map.put(t, u);
+      return this;
+    }
+
+    @Override
+    public Result<U> get(final T t) {
+      return t == null
+          ? nullKey()
+          : Result.of(() -> this.map.get(t), String.format("Key %s not found in map", t));
+    }
+
+    @Override
+    public boolean containsKey(final T t) {
+      return this.map.containsKey(t);
+    }
+
+    @Override
+    public Map<T, U> removeKey(T t) {
+      this.map.remove(t);
+      return this;
+    }
+
+    @Override
+    public List<T> keys() {
+      return List.fromCollection(this.map.keySet());
+    }
+
+    @Override
+    public List<U> values() {
+      return List.fromCollection(this.map.values());
+    }
+
+    @Override
+    public int size() {
+      return this.map.size();
+    }
+
+    @Override
+    public void foreach(Consumer<Tuple<T, U>> c) {
+      this.map.entrySet().forEach(e -> c.accept(new Tuple<>(e.getKey(), e.getValue())));
+    }
+
+    /*
+     * Atomic for each key, but not for the whole map.
+     */
+    @Override
+    public Map<T, U> merge(T t, U u, Function2<U, U, U> f) {
+      Objects.requireNonNull(t, NULL_KEY);
+      Objects.requireNonNull(u, NULL_VALUE);
+      this.map.merge(t, u, f::apply);
+      return this;
+    }
+
+    @Override
+    Map<T, U> putAll_(Effect<Consumer<Tuple<T, U>>> entries) {
+      entries.apply(this::put);
+      return this;
+    }
   }
 
+  /**
+   * A transient builder for persistent maps. See com.fpinjava.map.Map.Builder.
+   */
+  public static final class Builder<T, U> {
+
+    private final com.fpinjava.map.Map.Builder<T, U> builder;
+
+    private Builder(com.fpinjava.map.Map.Builder<T, U> builder) {
+      this.builder = builder;
+    }
+
+    public Builder<T, U> add(T t, U u) {
+      Objects.requireNonNull(t, NULL_KEY);
+      Objects.requireNonNull(u, NULL_VALUE);
+      builder.add(t, u);
+      return this;
+    }
+
+    public Map<T, U> build() {
+      com.fpinjava.map.Map<T, U> map = builder.build();
+      return map.isEmpty()
+          ? empty()
+          : new Persistent<>(map);
+    }
+  }
 }
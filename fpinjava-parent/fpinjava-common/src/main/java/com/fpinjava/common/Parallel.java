@@ -0,0 +1,275 @@
+package com.fpinjava.common;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The engine behind the parallel List operations. The list is copied once
+ * into an array, which is then split by index, so splitting is free and no
+ * intermediate lists are created. Leaves are sized from the number of
+ * elements and the parallelism of the pool, so that each worker gets several
+ * leaves to steal from, and partial results are always combined in list
+ * order, which makes the result deterministic for associative combiners.
+ */
+final class Parallel {
+
+  /*
+   * Number of leaves per worker thread. More leaves balance the load better
+   * when elements don't all cost the same, at the price of more tasks.
+   */
+  private static final int LEAVES_PER_THREAD = 8;
+
+  private Parallel() {}
+
+  static int threshold(int length, int parallelism) {
+    return Math.max(1, length / (Math.max(1, parallelism) * LEAVES_PER_THREAD));
+  }
+
+  static Object[] toArray(List<?> list) {
+    Object[] array = new Object[list.length()];
+    int i = 0;
+    for (List<?> workList = list; !workList.isEmpty(); workList = workList.tail()) {
+      array[i++] = workList.head();
+    }
+    return array;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <A> List<A> fromArray(Object[] array) {
+    List<A> result = List.list();
+    for (int i = array.length - 1; i >= 0; i--) {
+      result = result.cons((A) array[i]);
+    }
+    return result;
+  }
+
+  static <A, B> List<B> map(ForkJoinPool pool, List<A> list, Function<A, B> f) {
+    Object[] array = toArray(list);
+    pool.invoke(new MapTask<>(array, array, 0, array.length, threshold(array.length, pool.getParallelism()), f));
+    return fromArray(array);
+  }
+
+  @SuppressWarnings("unchecked")
+  static <A> List<A> filter(ForkJoinPool pool, List<A> list, Function<A, Boolean> p) {
+    Object[] array = toArray(list);
+    boolean[] keep = new boolean[array.length];
+    pool.invoke(new FilterTask<>(array, keep, 0, array.length, threshold(array.length, pool.getParallelism()), p));
+    List.Builder<A> builder = List.builder(array.length);
+    for (int i = 0; i < array.length; i++) {
+      if (keep[i]) {
+        builder.add((A) array[i]);
+      }
+    }
+    return builder.length() == array.length
+        ? list
+        : builder.build();
+  }
+
+  static <A, B> B foldLeft(ForkJoinPool pool, List<A> list, B identity, Function2<B, A, B> f, Function2<B, B, B> m) {
+    Object[] array = toArray(list);
+    return pool.invoke(new FoldTask<>(array, 0, array.length, threshold(array.length, pool.getParallelism()), identity, f, m));
+  }
+
+  static <A> A reduce(ForkJoinPool pool, List<A> list, Function2<A, A, A> f) {
+    Object[] array = toArray(list);
+    return pool.invoke(new ReduceTask<>(array, 0, array.length, threshold(array.length, pool.getParallelism()), f));
+  }
+
+  /*
+   * ExecutorService variants. An ExecutorService doesn't tell its size, so
+   * leaves are sized from the number of available processors. All chunks are
+   * submitted before waiting for any of them.
+   */
+  @SuppressWarnings("unchecked")
+  static <A, B> B foldLeft(ExecutorService es, List<A> list, B identity, Function<B, Function<A, B>> f, Function<B, Function<B, B>> m) throws InterruptedException, ExecutionException {
+    Object[] array = toArray(list);
+    int chunk = threshold(array.length, Runtime.getRuntime().availableProcessors());
+    java.util.List<Future<B>> futures = new ArrayList<>();
+    for (int lo = 0; lo < array.length; lo += chunk) {
+      int from = lo;
+      int to = Math.min(lo + chunk, array.length);
+      futures.add(es.submit(() -> {
+        B acc = identity;
+        for (int i = from; i < to; i++) {
+          acc = f.apply(acc).apply((A) array[i]);
+        }
+        return acc;
+      }));
+    }
+    B result = identity;
+    for (Future<B> future : futures) {
+      result = m.apply(result).apply(future.get());
+    }
+    return result;
+  }
+
+  static <A, B> List<B> map(ExecutorService es, List<A> list, Function<A, B> f) throws InterruptedException, ExecutionException {
+    Object[] array = toArray(list);
+    int chunk = threshold(array.length, Runtime.getRuntime().availableProcessors());
+    java.util.List<Future<?>> futures = new ArrayList<>();
+    for (int lo = 0; lo < array.length; lo += chunk) {
+      int from = lo;
+      int to = Math.min(lo + chunk, array.length);
+      futures.add(es.submit(() -> mapRange(array, array, from, to, f)));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    return fromArray(array);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <A, B> void mapRange(Object[] src, Object[] dst, int lo, int hi, Function<A, B> f) {
+    for (int i = lo; i < hi; i++) {
+      dst[i] = f.apply((A) src[i]);
+    }
+  }
+
+  private static final class MapTask<A, B> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] src;
+    private final Object[] dst;
+    private final int lo;
+    private final int hi;
+    private final int threshold;
+    private final Function<A, B> f;
+
+    private MapTask(Object[] src, Object[] dst, int lo, int hi, int threshold, Function<A, B> f) {
+      this.src = src;
+      this.dst = dst;
+      this.lo = lo;
+      this.hi = hi;
+      this.threshold = threshold;
+      this.f = f;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo <= threshold) {
+        mapRange(src, dst, lo, hi, f);
+      } else {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new MapTask<>(src, dst, lo, mid, threshold, f),
+                  new MapTask<>(src, dst, mid, hi, threshold, f));
+      }
+    }
+  }
+
+  private static final class FilterTask<A> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] array;
+    private final boolean[] keep;
+    private final int lo;
+    private final int hi;
+    private final int threshold;
+    private final Function<A, Boolean> p;
+
+    private FilterTask(Object[] array, boolean[] keep, int lo, int hi, int threshold, Function<A, Boolean> p) {
+      this.array = array;
+      this.keep = keep;
+      this.lo = lo;
+      this.hi = hi;
+      this.threshold = threshold;
+      this.p = p;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void compute() {
+      if (hi - lo <= threshold) {
+        for (int i = lo; i < hi; i++) {
+          keep[i] = p.apply((A) array[i]);
+        }
+      } else {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new FilterTask<>(array, keep, lo, mid, threshold, p),
+                  new FilterTask<>(array, keep, mid, hi, threshold, p));
+      }
+    }
+  }
+
+  private static final class FoldTask<A, B> extends RecursiveTask<B> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] array;
+    private final int lo;
+    private final int hi;
+    private final int threshold;
+    private final B identity;
+    private final Function2<B, A, B> f;
+    private final Function2<B, B, B> m;
+
+    private FoldTask(Object[] array, int lo, int hi, int threshold, B identity, Function2<B, A, B> f, Function2<B, B, B> m) {
+      this.array = array;
+      this.lo = lo;
+      this.hi = hi;
+      this.threshold = threshold;
+      this.identity = identity;
+      this.f = f;
+      this.m = m;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected B compute() {
+      if (hi - lo <= threshold) {
+        B acc = identity;
+        for (int i = lo; i < hi; i++) {
+          acc = f.apply(acc, (A) array[i]);
+        }
+        return acc;
+      }
+      int mid = (lo + hi) >>> 1;
+      FoldTask<A, B> left = new FoldTask<>(array, lo, mid, threshold, identity, f, m);
+      left.fork();
+      B right = new FoldTask<>(array, mid, hi, threshold, identity, f, m).compute();
+      return m.apply(left.join(), right);
+    }
+  }
+
+  private static final class ReduceTask<A> extends RecursiveTask<A> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] array;
+    private final int lo;
+    private final int hi;
+    private final int threshold;
+    private final Function2<A, A, A> f;
+
+    private ReduceTask(Object[] array, int lo, int hi, int threshold, Function2<A, A, A> f) {
+      this.array = array;
+      this.lo = lo;
+      this.hi = hi;
+      this.threshold = threshold;
+      this.f = f;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected A compute() {
+      if (hi - lo <= threshold) {
+        A acc = (A) array[lo];
+        for (int i = lo + 1; i < hi; i++) {
+          acc = f.apply(acc, (A) array[i]);
+        }
+        return acc;
+      }
+      int mid = (lo + hi) >>> 1;
+      ReduceTask<A> left = new ReduceTask<>(array, lo, mid, threshold, f);
+      left.fork();
+      A right = new ReduceTask<>(array, mid, hi, threshold, f).compute();
+      return f.apply(left.join(), right);
+    }
+  }
+}
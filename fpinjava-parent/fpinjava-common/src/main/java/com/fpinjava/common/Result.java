@@ -23,6 +23,8 @@ public abstract class Result<T> implements Serializable {
   public abstract T getOrElse(final Supplier<T> defaultValue);
   public abstract <V> V foldLeft(final V identity, Function<V, Function<T, V>> f);
   public abstract <V> V foldRight(final V identity, Function<T, Function<V, V>> f);
+  public abstract <V> V foldLeft(final V identity, Function2<V, T, V> f);
+  public abstract <V> V foldRight(final V identity, Function2<T, V, V> f);
   public abstract T successValue();
   public abstract Exception failureValue();
   public abstract void forEach(Effect<T> c);
@@ -339,6 +341,16 @@ public abstract class Result<T> implements Serializable {
       return identity;
     }
 
+    @Override
+    public <V> V foldLeft(V identity, Function2<V, T, V> f) {
+      return identity;
+    }
+
+    @Override
+    public <V> V foldRight(V identity, Function2<T, V, V> f) {
+      return identity;
+    }
+
     @Override
     public IO<Nothing> tryIO(Function<T, IO<Nothing>> success, Function<String, IO<Nothing>> failure) {
       return failure.apply("Empty Result");
@@ -499,6 +511,16 @@ public abstract class Result<T> implements Serializable {
       return f.apply(successValue()).apply(identity);
     }
 
+    @Override
+    public <V> V foldLeft(V identity, Function2<V, T, V> f) {
+      return f.apply(identity, successValue());
+    }
+
+    @Override
+    public <V> V foldRight(V identity, Function2<T, V, V> f) {
+      return f.apply(successValue(), identity);
+    }
+
     @Override
     public IO<Nothing> tryIO(Function<T, IO<Nothing>> success, Function<String, IO<Nothing>> failure) {
       return success.apply(this.value);
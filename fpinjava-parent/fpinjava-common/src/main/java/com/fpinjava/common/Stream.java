@@ -41,10 +41,22 @@ public abstract class Stream<A> {
   }
 
   public Result<A> find(Function<A, Boolean> p) {
-    return filter(p).headOption()._1;
+    Ref<Result<A>> result = new Ref<>(Result.empty());
+    pushTo(a -> {
+      if (p.apply(a)) {
+        result.value = Result.success(a);
+        return false;
+      }
+      return true;
+    });
+    return result.value;
   }
 
   public <B> Stream<B> flatMap(Function<A, Stream<B>> f) {
+    return fuse(downstream -> a -> f.apply(a).pushTo(downstream), () -> flatMapViaFoldRight(f));
+  }
+
+  public <B> Stream<B> flatMapViaFoldRight(Function<A, Stream<B>> f) {
     return foldRight(Stream::empty, a -> b -> f.apply(a).append(b));
   }
 
@@ -53,10 +65,14 @@ public abstract class Stream<A> {
   }
 
   public Stream<A> filter(Function<A, Boolean> p) {
+    return fuse(downstream -> a -> !p.apply(a) || downstream.accept(a), () -> filterViaDropWhile(p));
+  }
+
+  public Stream<A> filterViaDropWhile(Function<A, Boolean> p) {
     Stream<A> stream = this.dropWhile(x -> !p.apply(x));
     return stream.isEmpty()
         ? stream
-        : cons(() -> stream.head()._1, () -> stream.tail().filter(p));
+        : cons(() -> stream.head()._1, () -> stream.tail().filterViaDropWhile(p));
   }
 
   public Stream<A> filter_(Function<A, Boolean> p) {
@@ -65,6 +81,10 @@ public abstract class Stream<A> {
   }
 
   public <B> Stream<B> map(Function<A, B> f) {
+    return fuse(downstream -> a -> downstream.accept(f.apply(a)), () -> mapViaFoldRight(f));
+  }
+
+  public <B> Stream<B> mapViaFoldRight(Function<A, B> f) {
     return foldRight(Stream::empty, a -> b -> cons(() -> f.apply(a), b));
   }
 
@@ -79,6 +99,10 @@ public abstract class Stream<A> {
   }
 
   public Stream<A> takeWhile(Function<A, Boolean> f) {
+    return fuse(downstream -> a -> f.apply(a) && downstream.accept(a), () -> takeWhileViaFoldRight(f));
+  }
+
+  public Stream<A> takeWhileViaFoldRight(Function<A, Boolean> f) {
     return foldRight(Stream::empty, a -> b -> f.apply(a)
         ? cons(() -> a, b)
         : empty());
@@ -97,15 +121,7 @@ public abstract class Stream<A> {
   }
 
   public boolean exists(Function<A, Boolean> p) {
-    return exists(this, p).eval();
-  }
-
-  private TailCall<Boolean> exists(Stream<A> s, Function<A, Boolean> p) {
-    return s.isEmpty()
-        ? ret(false)
-        : p.apply(s.head()._1)
-            ? ret(true)
-            : sus(() -> exists(s.tail(), p));
+    return !pushTo(a -> !p.apply(a));
   }
 
   public Stream<A> dropWhile(Function<A, Boolean> f) {
@@ -121,13 +137,32 @@ public abstract class Stream<A> {
   }
 
   public List<A> toList() {
-    return toList(this, List.list()).eval().reverse();
+    List.Builder<A> builder = List.builder();
+    pushTo(a -> {
+      builder.add(a);
+      return true;
+    });
+    return builder.build();
   }
 
-  private TailCall<List<A>> toList(Stream<A> s, List<A> acc) {
-    return s.isEmpty()
-        ? ret(acc)
-        : sus(() -> toList(s.tail(), List.cons(s.head()._1, acc)));
+  public <B> B foldLeft(B identity, Function<B, Function<A, B>> f) {
+    return foldLeft(identity, Function2.uncurried(f));
+  }
+
+  public <B> B foldLeft(B identity, Function2<B, A, B> f) {
+    Ref<B> acc = new Ref<>(identity);
+    pushTo(a -> {
+      acc.value = f.apply(acc.value, a);
+      return true;
+    });
+    return acc.value;
+  }
+
+  public void forEach(Effect<A> effect) {
+    pushTo(a -> {
+      effect.apply(a);
+      return true;
+    });
   }
 
   public boolean hasSubSequence(Stream<A> s) {
@@ -162,6 +197,54 @@ public abstract class Stream<A> {
         : Result.success(new Tuple<>(x.tail(), x.tail())))); // Result<Tuple<Stream<A>,Stream<A>>>
   }
 
+  /*
+   * Operator fusion: map, filter, takeWhile and flatMap don't build a new
+   * stream of Cons cells and thunks. They return a Fused stream made of a
+   * Source, which pushes elements into a Sink, and of the Stage describing
+   * the operation, which wraps the downstream Sink into a Sink for the upstream
+   * elements. Terminal operations (toList, foldLeft, forEach, exists, find)
+   * build the chain of sinks once and then run a single loop over the source.
+   * A fused stream that is used structurally (head, tail, isEmpty, foldRight...)
+   * is converted once into a classic lazy stream.
+   */
+  interface Sink<A> {
+
+    /*
+     * Returns false if no more elements are wanted.
+     */
+    boolean accept(A a);
+  }
+
+  interface Stage<A, B> {
+    Sink<A> wrap(Sink<B> downstream);
+  }
+
+  interface Source<A> {
+    boolean pushTo(Sink<A> sink);
+  }
+
+  private static final class Ref<T> {
+    private T value;
+
+    private Ref(T value) {
+      this.value = value;
+    }
+  }
+
+  /*
+   * Pushes the elements of this stream to the sink, until the stream is
+   * exhausted (returns true) or the sink refuses an element (returns false).
+   */
+  abstract boolean pushTo(Sink<A> sink);
+
+  <B> Stream<B> fuse(Stage<A, B> stage, Supplier<Stream<B>> unfused) {
+    return new Fused<>(sink -> pushTo(stage.wrap(sink)), unfused);
+  }
+
+  static <A> Stream<A> fused(Source<A> source, Supplier<Stream<A>> unfused) {
+    return new Fused<>(source, unfused);
+  }
+
   private Stream() {}
 
   private static class Empty<A> extends Stream<A> {
@@ -205,24 +288,26 @@ public abstract class Stream<A> {
     public <B> B foldRight(Supplier<B> z, Function<A, Function<Supplier<B>, B>> f) {
       return z.get();
     }
+
+    @Override
+    boolean pushTo(Sink<A> sink) {
+      return true;
+    }
   }
 
   private static class Cons<A> extends Stream<A> {
 
     private final Supplier<A> head;
-    private final Result<A> h;
     private final Supplier<Stream<A>> tail;
 
     private Cons(Supplier<A> h, Supplier<Stream<A>> t) {
-      head = h;
+      head = h instanceof Memo ? h : new Memo<>(h);
       tail = t;
-      this.h = Result.empty();
     }
 
     private Cons(A h, Supplier<Stream<A>> t) {
       head = () -> h;
       tail = t;
-      this.h = Result.success(h);
     }
 
     @Override
@@ -238,10 +323,7 @@ public abstract class Stream<A> {
 
     @Override
     public Tuple<A, Stream<A>> head() {
-      A a = h.getOrElse(head.get());
-      return h.isEmpty()
-          ? new Tuple<>(a, new Cons<>(a, tail))
-          : new Tuple<>(a, this);
+      return new Tuple<>(head.get(), this);
     }
 
     @Override
@@ -278,6 +360,83 @@ public abstract class Stream<A> {
           ? ret(acc)
           : sus(() -> drop(acc.tail(), n - 1));
     }
+
+    @Override
+    boolean pushTo(Sink<A> sink) {
+      Stream<A> s = this;
+      while (s instanceof Cons) {
+        Cons<A> cons = (Cons<A>) s;
+        if (!sink.accept(cons.head.get())) {
+          return false;
+        }
+        s = cons.tail();
+      }
+      return s.pushTo(sink);
+    }
+  }
+
+  private static class Fused<A> extends Stream<A> {
+
+    private final Source<A> source;
+    private final Supplier<Stream<A>> unfused;
+    private Stream<A> stream;
+
+    private Fused(Source<A> source, Supplier<Stream<A>> unfused) {
+      this.source = source;
+      this.unfused = unfused;
+    }
+
+    private Stream<A> stream() {
+      if (stream == null) {
+        stream = unfused.get();
+      }
+      return stream;
+    }
+
+    @Override
+    public Tuple<A, Stream<A>> head() {
+      return stream().head();
+    }
+
+    @Override
+    public Stream<A> tail() {
+      return stream().tail();
+    }
+
+    @Override
+    public Boolean isEmpty() {
+      return stream().isEmpty();
+    }
+
+    @Override
+    public Tuple<Result<A>, Stream<A>> headOption() {
+      return stream().headOption();
+    }
+
+    @Override
+    public Stream<A> take(int n) {
+      return stream().take(n);
+    }
+
+    @Override
+    public Stream<A> drop(int n) {
+      return stream().drop(n);
+    }
+
+    @Override
+    public Stream<A> takeWhile_(Function<A, Boolean> f) {
+      return stream().takeWhile_(f);
+    }
+
+    @Override
+    public <B> B foldRight(Supplier<B> z, Function<A, Function<Supplier<B>, B>> f) {
+      return stream().foldRight(z, f);
+    }
+
+    @Override
+    boolean pushTo(Sink<A> sink) {
+      return source.pushTo(sink);
+    }
   }
 
   static <A> Stream<A> cons(Supplier<A> hd, Supplier<Stream<A>> tl) {
@@ -299,9 +458,7 @@ public abstract class Stream<A> {
   }
 
   public static<T> Stream<T> of(List<T> list) {
-    return list.isEmpty()
-        ? Stream.empty()
-        : cons(list::head, () -> of(list.tail()));
+    return stream(list);
   }
 
   @SafeVarargs
@@ -310,13 +467,85 @@ public abstract class Stream<A> {
   }
 
   public static <A> Stream<A> stream(List<A> list) {
+    return fused(sink -> {
+      for (List<A> workList = list; !workList.isEmpty(); workList = workList.tail()) {
+        if (!sink.accept(workList.head())) {
+          return false;
+        }
+      }
+      return true;
+    }, () -> streamViaCons(list));
+  }
+
+  private static <A> Stream<A> streamViaCons(List<A> list) {
     return list.isEmpty()
         ? empty()
-        : cons(list::head, () -> stream(list.tail()));
+        : cons(list::head, () -> streamViaCons(list.tail()));
+  }
+
+  /*
+   * A stream taking its elements from iterator, which may only be traversed
+   * once. Terminal operations pull the elements in a loop without creating
+   * stream cells, so a stream over a large source, such as the lines of a
+   * file, is processed in constant memory. Using the stream structurally
+   * (head, tail...) builds cells, each one remembering its tail, since the
+   * iterator can't be read again.
+   */
+  public static <A> Stream<A> fromIterator(java.util.Iterator<A> iterator) {
+    return fused(sink -> {
+      while (iterator.hasNext()) {
+        if (!sink.accept(iterator.next())) {
+          return false;
+        }
+      }
+      return true;
+    }, () -> fromIteratorViaCons(iterator));
+  }
+
+  private static <A> Stream<A> fromIteratorViaCons(java.util.Iterator<A> iterator) {
+    if (!iterator.hasNext()) {
+      return empty();
+    }
+    A a = iterator.next();
+    return new Cons<>(a, new Memo<>(() -> fromIteratorViaCons(iterator)));
+  }
+
+  /*
+   * The value is written before the supplier is cleared, so a thread seeing
+   * a null supplier also sees the value. Two threads may both compute it.
+   */
+  private static final class Memo<T> implements Supplier<T> {
+
+    private volatile Supplier<T> supplier;
+    private T value;
+
+    private Memo(Supplier<T> supplier) {
+      this.supplier = supplier;
+    }
+
+    @Override
+    public T get() {
+      Supplier<T> s = supplier;
+      if (s != null) {
+        value = s.get();
+        supplier = null;
+      }
+      return value;
+    }
   }
 
   public static Stream<Integer> from(int i) {
-    return cons(() -> i, () -> from(i + 1));
+    return fused(sink -> {
+      for (int n = i; ; n++) {
+        if (!sink.accept(n)) {
+          return false;
+        }
+      }
+    }, () -> fromViaCons(i));
+  }
+
+  private static Stream<Integer> fromViaCons(int i) {
+    return cons(() -> i, () -> fromViaCons(i + 1));
   }
 
   public static Stream<Integer> from(Supplier<Integer> n) {
@@ -332,9 +561,20 @@ public abstract class Stream<A> {
   }
 
   public static Stream<Integer> range(int start, int end) {
+    return fused(sink -> {
+      for (int i = start; i <= end; i++) {
+        if (!sink.accept(i)) {
+          return false;
+        }
+      }
+      return true;
+    }, () -> rangeViaCons(start, end));
+  }
+
+  private static Stream<Integer> rangeViaCons(int start, int end) {
     return start > end
         ? Stream.empty()
-        : cons(() -> start, () -> range(start + 1, end));
+        : cons(() -> start, () -> rangeViaCons(start + 1, end));
   }
 
   public static <A> Stream<A> repeat(A a) {
@@ -354,7 +594,17 @@ public abstract class Stream<A> {
   }
 
   public static <A> Stream<A> iterate(A seed, Function<A, A> f) {
-    return cons(() -> seed, () -> iterate(f.apply(seed), f));
+    return fused(sink -> {
+      for (A a = seed; ; a = f.apply(a)) {
+        if (!sink.accept(a)) {
+          return false;
+        }
+      }
+    }, () -> iterateViaCons(seed, f));
+  }
+
+  private static <A> Stream<A> iterateViaCons(A seed, Function<A, A> f) {
+    return cons(() -> seed, () -> iterateViaCons(f.apply(seed), f));
   }
 
   public static <A, S> Stream<A> unfold(S z, Function<S, Result<Tuple<A, S>>> f) {
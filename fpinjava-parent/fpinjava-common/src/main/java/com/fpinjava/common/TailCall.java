@@ -1,16 +1,67 @@
 package com.fpinjava.common;
 
+import java.util.Arrays;
+
+/**
+ * A trampoline. ret and sus describe tail calls, and map and flatMap allow
+ * composing computations whose recursive call is not in tail position, such
+ * as f(x) = g(f(x - 1)). eval runs everything in a single loop, keeping the
+ * pending continuations on an explicit heap-allocated stack, so it never
+ * consumes more than a constant amount of Java stack.
+ */
 public abstract class TailCall<T> {
 
   public abstract TailCall<T> resume();
 
-  public abstract T eval();
-
   public abstract boolean isSuspend();
 
   private TailCall() {
   }
 
+  public <U> TailCall<U> flatMap(Function<T, TailCall<U>> f) {
+    return new FlatMap<>(this, f);
+  }
+
+  public <U> TailCall<U> map(Function<T, U> f) {
+    return new FlatMap<>(this, t -> ret(f.apply(t)));
+  }
+
+  /*
+   * Binds are not re-associated by rebuilding the structure, which would
+   * allocate one node per step. Instead, each continuation met while
+   * descending into the left side of a FlatMap is pushed on a stack, and is
+   * popped when a value is returned. The stack is only allocated when the
+   * first FlatMap is met, so plain ret/sus loops don't pay for it.
+   */
+  @SuppressWarnings("unchecked")
+  public T eval() {
+    TailCall<Object> current = (TailCall<Object>) this;
+    Object[] stack = null;
+    int size = 0;
+    while (true) {
+      if (current instanceof Suspend) {
+        current = ((Suspend<Object>) current).resume.get();
+      } else if (current instanceof FlatMap) {
+        FlatMap<Object, Object> flatMap = (FlatMap<Object, Object>) current;
+        if (stack == null) {
+          stack = new Object[16];
+        } else if (size == stack.length) {
+          stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size++] = flatMap.f;
+        current = flatMap.sub;
+      } else {
+        Object value = ((Return<Object>) current).t;
+        if (size == 0) {
+          return (T) value;
+        }
+        Function<Object, TailCall<Object>> f = (Function<Object, TailCall<Object>>) stack[--size];
+        stack[size] = null;
+        current = f.apply(value);
+      }
+    }
+  }
+
   private static class Return<T> extends TailCall<T> {
 
     private final T t;
@@ -44,12 +95,24 @@ public abstract class TailCall<T> {
     }
 
     @Override
-    public T eval() {
-      TailCall<T> tailRec = this;
-      while(tailRec.isSuspend()) {
-        tailRec = tailRec.resume();
-      }
-      return tailRec.eval();
+    public boolean isSuspend() {
+      return true;
+    }
+
+    @Override
+    public TailCall<T> resume() {
+      return resume.get();
+    }
+  }
+
+  private static class FlatMap<S, T> extends TailCall<T> {
+
+    private final TailCall<S> sub;
+    private final Function<S, TailCall<T>> f;
+
+    private FlatMap(TailCall<S> sub, Function<S, TailCall<T>> f) {
+      this.sub = sub;
+      this.f = f;
     }
 
     @Override
@@ -57,17 +120,30 @@ public abstract class TailCall<T> {
       return true;
     }
 
+    /*
+     * Single step, for callers driving the trampoline themselves. Left nested
+     * binds are re-associated to the right: (m >>= g) >>= f becomes
+     * m >>= (x -> g(x) >>= f).
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public TailCall<T> resume() {
-      return resume.get();
+      if (sub instanceof Return) {
+        return f.apply(((Return<S>) sub).t);
+      } else if (sub instanceof Suspend) {
+        return sub.resume().flatMap(f);
+      } else {
+        FlatMap<Object, S> inner = (FlatMap<Object, S>) sub;
+        return inner.sub.flatMap(x -> inner.f.apply(x).flatMap(f));
+      }
     }
   }
 
-  public static <T> Return<T> ret(T t) {
+  public static <T> TailCall<T> ret(T t) {
     return new Return<>(t);
   }
 
-  public static <T> Suspend<T> sus(Supplier<TailCall<T>> s) {
+  public static <T> TailCall<T> sus(Supplier<TailCall<T>> s) {
     return new Suspend<>(s);
   }
 }
@@ -1,5 +1,10 @@
 package com.fpinjava.common;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /*
  * see http://www.cs.cmu.edu/~rwh/theses/okasaki.pdf
@@ -45,6 +50,7 @@ public abstract class Tree<A extends Comparable<A>> {
 
   public abstract int size();
   public abstract int height();
+  abstract int blackHeight();
   public abstract boolean isEmpty();
 
   public abstract <B> B foldLeft(B identity, Function<B, Function<A, B>> f, Function<B, Function<B, B>> g);
@@ -53,6 +59,10 @@ public abstract class Tree<A extends Comparable<A>> {
   public abstract <B> B foldInReverseOrder(B identity, Function<B, Function<A, Function<B, B>>> f);
   public abstract <B> B foldPreOrder(B identity, Function<A, Function<B, Function<B, B>>> f);
   public abstract <B> B foldPostOrder(B identity, Function<B, Function<B, Function<A, B>>> f);
+  public abstract <B> B foldLeft(B identity, Function2<B, A, B> f, Function2<B, B, B> g);
+  public abstract <B> B foldRight(B identity, Function2<A, B, B> f, Function2<B, B, B> g);
+  public abstract <B> B foldInOrder(B identity, Function3<B, A, B, B> f);
+  public abstract <B> B foldInReverseOrder(B identity, Function3<B, A, B, B> f);
 
   abstract Tree<A> right();
   abstract Tree<A> left();
@@ -72,10 +82,16 @@ public abstract class Tree<A extends Comparable<A>> {
 
   abstract Tree<A> del(A value);
 
-  protected Tree<A> blacken(Tree<A> t) {
+  /*
+   * Returns t with a black root. t is returned as is when its root is
+   * already black, so that callers can check whether anything changed.
+   */
+  protected static <A extends Comparable<A>> Tree<A> blacken(Tree<A> t) {
     return t.isEmpty()
-        ? E
-        : new T<>(B, t.left(), t.value(), t.right());
+        ? e()
+        : t.isB()
+            ? t
+            : new T<>(B, t.left(), t.value(), t.right());
   }
 
   protected Tree<A> redden(Tree<A> t) {
@@ -83,11 +99,497 @@ public abstract class Tree<A extends Comparable<A>> {
     return new T<>(R, t.left(), t.value(), t.right());
   }
 
-  private Function<List<A>, Function<List<A>, List<A>>> g = a -> b -> List.concat(a, b);
-  private Function<List<A>, Function<A, List<A>>> f = l -> l::cons;
-
   public List<A> toList() {
-    return foldLeft(List.list(), f, g);
+    return foldLeft(List.list(), (l, a) -> l.cons(a), (a, b) -> List.concat(a, b));
+  }
+
+  /*
+   * Order statistics and range queries. They follow a single path from the
+   * root, using the sizes cached in the nodes, so they run in O(log n).
+   */
+
+  /*
+   * The number of elements strictly lower than a, which is also the index
+   * of a in the tree if it is a member.
+   */
+  public int rank(A a) {
+    int rank = 0;
+    Tree<A> t = this;
+    while (!t.isEmpty()) {
+      int c = a.compareTo(t.value());
+      if (c < 0) {
+        t = t.left();
+      } else if (c > 0) {
+        rank += t.left().size() + 1;
+        t = t.right();
+      } else {
+        return rank + t.left().size();
+      }
+    }
+    return rank;
+  }
+
+  /*
+   * The element of index index, in increasing order, starting from 0.
+   */
+  public Result<A> select(int index) {
+    if (index < 0 || index >= size()) {
+      return Result.failure("Index out of bound");
+    }
+    Tree<A> t = this;
+    int i = index;
+    while (true) {
+      int leftSize = t.left().size();
+      if (i < leftSize) {
+        t = t.left();
+      } else if (i > leftSize) {
+        i -= leftSize + 1;
+        t = t.right();
+      } else {
+        return Result.success(t.value());
+      }
+    }
+  }
+
+  /*
+   * The number of elements from lo (inclusive) to hi (exclusive).
+   */
+  public int rangeCount(A lo, A hi) {
+    return Math.max(0, rank(hi) - rank(lo));
+  }
+
+  /*
+   * The greatest element lower than or equal to a.
+   */
+  public Result<A> floor(A a) {
+    Tree<A> candidate = e();
+    Tree<A> t = this;
+    while (!t.isEmpty()) {
+      int c = a.compareTo(t.value());
+      if (c < 0) {
+        t = t.left();
+      } else if (c > 0) {
+        candidate = t;
+        t = t.right();
+      } else {
+        return Result.success(t.value());
+      }
+    }
+    return candidate.isEmpty() ? Result.empty() : Result.success(candidate.value());
+  }
+
+  /*
+   * The smallest element greater than or equal to a.
+   */
+  public Result<A> ceiling(A a) {
+    return seekPath(a, false).headOption().map(Tree::value);
+  }
+
+  /*
+   * The elements from lo (inclusive) to hi (exclusive), in increasing order.
+   */
+  public Stream<A> range(A lo, A hi) {
+    return streamFrom(lo).takeWhile(a -> a.compareTo(hi) < 0);
+  }
+
+  /*
+   * Lazy streams of the elements, in increasing or decreasing order, all of
+   * them or starting from a given element. Unlike toList and the folds,
+   * nothing is done before elements are asked for: finding the first one
+   * costs O(log n), and each following one O(1) amortized, so reading k
+   * elements costs O(log n + k). Terminal operations and fused operations
+   * use a Cursor. Structural operations (head, tail...) use a persistent
+   * stack of the nodes still to be visited, so that each stream cell can be
+   * traversed again.
+   */
+  public Stream<A> stream() {
+    return stream(() -> cursor(), () -> spine(this, List.list(), false), false);
+  }
+
+  public Stream<A> reverseStream() {
+    return stream(() -> reverseCursor(), () -> spine(this, List.list(), true), true);
+  }
+
+  /*
+   * The elements greater than or equal to a, in increasing order.
+   */
+  public Stream<A> streamFrom(A a) {
+    return stream(() -> cursor().seek(a), () -> seekPath(a, false), false);
+  }
+
+  /*
+   * The elements lower than or equal to a, in decreasing order.
+   */
+  public Stream<A> reverseStreamFrom(A a) {
+    return stream(() -> reverseCursor().seek(a), () -> seekPath(a, true), true);
+  }
+
+  private static <A extends Comparable<A>> Stream<A> stream(Supplier<Cursor<A>> cursor, Supplier<List<Tree<A>>> stack, boolean reverse) {
+    return Stream.fused(sink -> {
+      for (Cursor<A> c = cursor.get(); c.hasNext(); ) {
+        if (!sink.accept(c.next())) {
+          return false;
+        }
+      }
+      return true;
+    }, () -> streamViaCons(stack.get(), reverse));
+  }
+
+  private static <A extends Comparable<A>> Stream<A> streamViaCons(List<Tree<A>> stack, boolean reverse) {
+    return stack.isEmpty()
+        ? Stream.empty()
+        : Stream.cons(() -> stack.head().value(), () -> streamViaCons(next(stack, reverse), reverse));
+  }
+
+  /*
+   * The nodes on the path from the root to the ceiling of a (or the floor of
+   * a if reverse), which are those still to be visited when starting from a,
+   * the ceiling (or floor) being on top.
+   */
+  private List<Tree<A>> seekPath(A a, boolean reverse) {
+    List<Tree<A>> path = List.list();
+    Tree<A> t = this;
+    while (!t.isEmpty()) {
+      int c = a.compareTo(t.value());
+      if (c == 0) {
+        return path.cons(t);
+      } else if (c < 0 != reverse) {
+        path = path.cons(t);
+        t = reverse ? t.right() : t.left();
+      } else {
+        t = reverse ? t.left() : t.right();
+      }
+    }
+    return path;
+  }
+
+  private static <A extends Comparable<A>> List<Tree<A>> next(List<Tree<A>> stack, boolean reverse) {
+    Tree<A> t = stack.head();
+    return spine(reverse ? t.left() : t.right(), stack.tail(), reverse);
+  }
+
+  /*
+   * Pushes the left spine of tree (or the right one if reverse) on stack.
+   */
+  private static <A extends Comparable<A>> List<Tree<A>> spine(Tree<A> tree, List<Tree<A>> stack, boolean reverse) {
+    List<Tree<A>> path = stack;
+    for (Tree<A> t = tree; !t.isEmpty(); t = reverse ? t.right() : t.left()) {
+      path = path.cons(t);
+    }
+    return path;
+  }
+
+  public Cursor<A> cursor() {
+    return new Cursor<>(this, false);
+  }
+
+  public Cursor<A> reverseCursor() {
+    return new Cursor<>(this, true);
+  }
+
+  /**
+   * An iterator over the elements of a tree, in increasing order, or in
+   * decreasing order for a reverse cursor. The nodes still to be visited
+   * are kept on an array stack, which never holds more than the height of
+   * the tree plus one nodes, so walking the tree allocates nothing. seek
+   * moves the cursor to a given element in O(log n). A cursor is mutable:
+   * it must not be shared between threads.
+   */
+  public static final class Cursor<A extends Comparable<A>> implements Iterator<A> {
+
+    private final Tree<A> tree;
+    private final boolean reverse;
+    private final Object[] stack;
+    private int size;
+
+    private Cursor(Tree<A> tree, boolean reverse) {
+      this.tree = tree;
+      this.reverse = reverse;
+      this.stack = new Object[tree.height() + 1];
+      pushSpine(tree);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return size > 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public A next() {
+      if (size == 0) {
+        throw new NoSuchElementException();
+      }
+      Tree<A> t = (Tree<A>) stack[--size];
+      stack[size] = null;
+      pushSpine(reverse ? t.left() : t.right());
+      return t.value();
+    }
+
+    /*
+     * Moves the cursor so that the next element is the smallest one greater
+     * than or equal to a, or the greatest one lower than or equal to a for a
+     * reverse cursor. The cursor may be moved backward as well as forward.
+     */
+    public Cursor<A> seek(A a) {
+      Arrays.fill(stack, 0, size, null);
+      size = 0;
+      Tree<A> t = tree;
+      while (!t.isEmpty()) {
+        int c = a.compareTo(t.value());
+        if (c == 0) {
+          stack[size++] = t;
+          return this;
+        } else if (c < 0 != reverse) {
+          stack[size++] = t;
+          t = reverse ? t.right() : t.left();
+        } else {
+          t = reverse ? t.left() : t.right();
+        }
+      }
+      return this;
+    }
+
+    private void pushSpine(Tree<A> tree) {
+      for (Tree<A> t = tree; !t.isEmpty(); t = reverse ? t.right() : t.left()) {
+        stack[size++] = t;
+      }
+    }
+  }
+
+  /*
+   * The tree of the elements strictly lower than a. The result shares most
+   * of its nodes with this tree, and is built in O(log n) by splitting this
+   * tree on a.
+   */
+  public Tree<A> headTree(A a) {
+    return blacken(split(this, a)._1);
+  }
+
+  /*
+   * The tree of the elements greater than or equal to a, also in O(log n).
+   */
+  public Tree<A> tailTree(A a) {
+    Tuple3<Tree<A>, Result<A>, Tree<A>> split = split(this, a);
+    return blacken(split._2.map(value -> join(e(), value, split._3)).getOrElse(split._3));
+  }
+
+  /*
+   * The elements lower than a, the element equal to a if any, and the
+   * elements greater than a. The trees on each side of the path to a are
+   * joined back together.
+   */
+  private static <A extends Comparable<A>> Tuple3<Tree<A>, Result<A>, Tree<A>> split(Tree<A> t, A a) {
+    if (t.isEmpty()) {
+      return new Tuple3<>(e(), Result.empty(), e());
+    }
+    int c = a.compareTo(t.value());
+    if (c < 0) {
+      Tuple3<Tree<A>, Result<A>, Tree<A>> split = split(t.left(), a);
+      return new Tuple3<>(split._1, split._2, join(split._3, t.value(), t.right()));
+    } else if (c > 0) {
+      Tuple3<Tree<A>, Result<A>, Tree<A>> split = split(t.right(), a);
+      return new Tuple3<>(join(t.left(), t.value(), split._1), split._2, split._3);
+    } else {
+      return new Tuple3<>(t.left(), Result.success(t.value()), t.right());
+    }
+  }
+
+  /*
+   * The tree made of the elements of left, value and the elements of right,
+   * all the elements of left being lower than value, and those of right
+   * greater. The tree of lower black height is hung at the place of a node
+   * of the same black height on the inner spine of the other one, then the
+   * red-red violations are fixed going back up. Each step is O(1) since black
+   * heights are cached, so this is O(1 + difference of black heights). The
+   * result may have a red root.
+   */
+  private static <A extends Comparable<A>> Tree<A> join(Tree<A> left, A value, Tree<A> right) {
+    Tree<A> l = blacken(left);
+    Tree<A> r = blacken(right);
+    if (l.blackHeight() > r.blackHeight()) {
+      return blackRedRoot(joinRight(l, value, r));
+    } else if (l.blackHeight() < r.blackHeight()) {
+      return blackRedRoot(joinLeft(l, value, r));
+    } else {
+      return new T<>(R, l, value, r);
+    }
+  }
+
+  private static <A extends Comparable<A>> Tree<A> joinRight(Tree<A> l, A value, Tree<A> r) {
+    if (l.blackHeight() == r.blackHeight() && !l.isTR()) {
+      return new T<>(R, l, value, r);
+    }
+    Tree<A> right = joinRight(l.right(), value, r);
+    return l.isTB() && right.isTR() && right.right().isTR()
+        ? new T<>(R, new T<>(B, l.left(), l.value(), right.left()), right.value(), blacken(right.right()))
+        : new T<>(l.color(), l.left(), l.value(), right);
+  }
+
+  private static <A extends Comparable<A>> Tree<A> joinLeft(Tree<A> l, A value, Tree<A> r) {
+    if (l.blackHeight() == r.blackHeight() && !r.isTR()) {
+      return new T<>(R, l, value, r);
+    }
+    Tree<A> left = joinLeft(l, value, r.left());
+    return r.isTB() && left.isTR() && left.left().isTR()
+        ? new T<>(R, blacken(left.left()), left.value(), new T<>(B, left.right(), r.value(), r.right()))
+        : new T<>(r.color(), left, r.value(), r.right());
+  }
+
+  /*
+   * The tree made of the elements of left followed by those of right, all
+   * lower.
+   */
+  private static <A extends Comparable<A>> Tree<A> concat(Tree<A> left, Tree<A> right) {
+    if (left.isEmpty()) {
+      return right;
+    }
+    Tuple<Tree<A>, A> split = splitLast(left);
+    return join(split._1, split._2, right);
+  }
+
+  private static <A extends Comparable<A>> Tuple<Tree<A>, A> splitLast(Tree<A> t) {
+    if (t.right().isEmpty()) {
+      return new Tuple<>(t.left(), t.value());
+    }
+    Tuple<Tree<A>, A> split = splitLast(t.right());
+    return new Tuple<>(join(t.left(), t.value(), split._1), split._2);
+  }
+
+  /*
+   * Bulk operations. Rather than inserting or deleting the elements of one
+   * tree one by one in the other, which costs O(m log(n + m)), the other tree
+   * is split on the root of the first one, the operation is applied to both
+   * halves, and the results are joined back. For trees of sizes m and n,
+   * m <= n, this costs O(m log(n / m + 1)), which is O(m + n) at worst,
+   * and much less when m is small. Subtrees which are not modified are
+   * shared. When an element is in both trees, the one from this tree is
+   * kept.
+   */
+  public Tree<A> union(Tree<A> other) {
+    return blacken(setOperation(SetOperation.UNION, this, other, Integer.MAX_VALUE));
+  }
+
+  public Tree<A> intersection(Tree<A> other) {
+    return blacken(setOperation(SetOperation.INTERSECTION, this, other, Integer.MAX_VALUE));
+  }
+
+  /*
+   * The elements of this tree which are not in other.
+   */
+  public Tree<A> difference(Tree<A> other) {
+    return blacken(setOperation(SetOperation.DIFFERENCE, this, other, Integer.MAX_VALUE));
+  }
+
+  /*
+   * The parallel versions handle both halves in parallel, as long as the
+   * trees are large enough for the number of workers of the pool.
+   */
+  public Result<Tree<A>> parUnion(ForkJoinPool pool, Tree<A> other) {
+    return parSetOperation(pool, SetOperation.UNION, other);
+  }
+
+  public Result<Tree<A>> parIntersection(ForkJoinPool pool, Tree<A> other) {
+    return parSetOperation(pool, SetOperation.INTERSECTION, other);
+  }
+
+  public Result<Tree<A>> parDifference(ForkJoinPool pool, Tree<A> other) {
+    return parSetOperation(pool, SetOperation.DIFFERENCE, other);
+  }
+
+  private Result<Tree<A>> parSetOperation(ForkJoinPool pool, SetOperation operation, Tree<A> other) {
+    try {
+      int threshold = Parallel.threshold(size() + other.size(), pool.getParallelism());
+      return Result.success(blacken(pool.invoke(new SetOperationTask<>(operation, this, other, threshold))));
+    } catch (Exception e) {
+      return Result.failure(e.getMessage(), e);
+    }
+  }
+
+  /*
+   * The elements satisfying p, in O(n). Subtrees whose elements all satisfy
+   * p are shared with this tree.
+   */
+  public Tree<A> filter(Function<A, Boolean> p) {
+    return blacken(filter(this, p));
+  }
+
+  private static <A extends Comparable<A>> Tree<A> filter(Tree<A> t, Function<A, Boolean> p) {
+    if (t.isEmpty()) {
+      return t;
+    }
+    Tree<A> left = filter(t.left(), p);
+    boolean keep = p.apply(t.value());
+    Tree<A> right = filter(t.right(), p);
+    return keep
+        ? left == t.left() && right == t.right() ? t : join(left, t.value(), right)
+        : concat(left, right);
+  }
+
+  private enum SetOperation {
+    UNION, INTERSECTION, DIFFERENCE
+  }
+
+  /*
+   * Union and intersection split t2 on the root of t1, and difference splits
+   * t1 on the root of t2. The left halves are handled by a forked task when
+   * the trees hold more than threshold elements.
+   */
+  private static <A extends Comparable<A>> Tree<A> setOperation(SetOperation operation, Tree<A> t1, Tree<A> t2, int threshold) {
+    if (t1.isEmpty() || t2.isEmpty()) {
+      return operation == SetOperation.UNION
+          ? t1.isEmpty() ? t2 : t1
+          : operation == SetOperation.INTERSECTION ? e() : t1;
+    }
+    boolean splitT2 = operation != SetOperation.DIFFERENCE;
+    A value = splitT2 ? t1.value() : t2.value();
+    Tuple3<Tree<A>, Result<A>, Tree<A>> split = split(splitT2 ? t2 : t1, value);
+    Tree<A> left1 = splitT2 ? t1.left() : split._1;
+    Tree<A> left2 = splitT2 ? split._1 : t2.left();
+    Tree<A> right1 = splitT2 ? t1.right() : split._3;
+    Tree<A> right2 = splitT2 ? split._3 : t2.right();
+    Tree<A> left;
+    Tree<A> right;
+    if (t1.size() + t2.size() > threshold) {
+      SetOperationTask<A> task = new SetOperationTask<>(operation, left1, left2, threshold);
+      task.fork();
+      right = setOperation(operation, right1, right2, threshold);
+      left = task.join();
+    } else {
+      left = setOperation(operation, left1, left2, threshold);
+      right = setOperation(operation, right1, right2, threshold);
+    }
+    return operation == SetOperation.UNION || operation == SetOperation.INTERSECTION && split._2.isSuccess()
+        ? join(left, value, right)
+        : concat(left, right);
+  }
+
+  private static final class SetOperationTask<A extends Comparable<A>> extends RecursiveTask<Tree<A>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SetOperation operation;
+    private final Tree<A> t1;
+    private final Tree<A> t2;
+    private final int threshold;
+
+    private SetOperationTask(SetOperation operation, Tree<A> t1, Tree<A> t2, int threshold) {
+      this.operation = operation;
+      this.t1 = t1;
+      this.t2 = t2;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected Tree<A> compute() {
+      return setOperation(operation, t1, t2, threshold);
+    }
+  }
+
+  private static <A extends Comparable<A>> Tree<A> blackRedRoot(Tree<A> t) {
+    return t.isTR() && (t.left().isTR() || t.right().isTR())
+        ? new T<>(B, t.left(), t.value(), t.right())
+        : t;
   }
 
   private static abstract class Empty<A extends Comparable<A>> extends Tree<A> {
@@ -137,6 +639,11 @@ public abstract class Tree<A extends Comparable<A>> {
       return -1;
     }
 
+    @Override
+    int blackHeight() {
+      return 0;
+    }
+
     @Override
     public <B> B foldLeft(B identity, Function<B, Function<A, B>> f, Function<B, Function<B, B>> g) {
       return identity;
@@ -167,6 +674,26 @@ public abstract class Tree<A extends Comparable<A>> {
       return identity;
     }
 
+    @Override
+    public <B> B foldLeft(B identity, Function2<B, A, B> f, Function2<B, B, B> g) {
+      return identity;
+    }
+
+    @Override
+    public <B> B foldRight(B identity, Function2<A, B, B> f, Function2<B, B, B> g) {
+      return identity;
+    }
+
+    @Override
+    public <B> B foldInOrder(B identity, Function3<B, A, B, B> f) {
+      return identity;
+    }
+
+    @Override
+    public <B> B foldInReverseOrder(B identity, Function3<B, A, B, B> f) {
+      return identity;
+    }
+
     @Override
     public Tree<A> right() {
       return e();
@@ -296,6 +823,7 @@ public abstract class Tree<A extends Comparable<A>> {
     private final Color color;
     private final int length;
     private final int depth;
+    private final int blackHeight;
 
     private T(Color color, Tree<A> left, A value, Tree<A> right) {
       this.color = color;
@@ -304,6 +832,7 @@ public abstract class Tree<A extends Comparable<A>> {
       this.value = value;
       this.length = left.size() + 1 + right.size();
       this.depth = Math.max(left.height(), right.height()) + 1;
+      this.blackHeight = left.blackHeight() + (color.isB() ? 1 : 0);
     }
 
     private Tree<A> balance(Color color, Tree<A> left, A value, Tree<A> right) {
@@ -485,6 +1014,11 @@ public abstract class Tree<A extends Comparable<A>> {
       return depth;
     }
 
+    @Override
+    int blackHeight() {
+      return blackHeight;
+    }
+
     @Override
     public boolean isEmpty() {
       return false;
@@ -492,24 +1026,44 @@ public abstract class Tree<A extends Comparable<A>> {
 
     @Override
     public <B> B foldLeft(B identity, Function<B, Function<A, B>> f, Function<B, Function<B, B>> g) {
-      // Post order right:
-      return g.apply(right.foldLeft(identity, f, g)).apply(f.apply(left.foldLeft(identity, f, g)).apply(this.value));
+      return foldLeft(identity, Function2.uncurried(f), Function2.uncurried(g));
     }
 
     @Override
     public <B> B foldRight(B identity, Function<A, Function<B, B>> f, Function<B, Function<B, B>> g) {
-      // Pre order left
-      return g.apply(f.apply(this.value).apply(left.foldRight(identity, f, g))).apply(right.foldRight(identity, f, g));
+      return foldRight(identity, Function2.uncurried(f), Function2.uncurried(g));
     }
 
     @Override
     public <B> B foldInOrder(B identity, Function<B, Function<A, Function<B, B>>> f) {
-      return f.apply(left.foldInOrder(identity, f)).apply(value).apply(right.foldInOrder(identity, f));
+      return foldInOrder(identity, Function3.uncurried(f));
     }
 
     @Override
     public <B> B foldInReverseOrder(B identity, Function<B, Function<A, Function<B, B>>> f) {
-      return f.apply(right.foldInReverseOrder(identity, f)).apply(value).apply(left.foldInReverseOrder(identity, f));
+      return foldInReverseOrder(identity, Function3.uncurried(f));
+    }
+
+    @Override
+    public <B> B foldLeft(B identity, Function2<B, A, B> f, Function2<B, B, B> g) {
+      // Post order right:
+      return g.apply(right.foldLeft(identity, f, g), f.apply(left.foldLeft(identity, f, g), this.value));
+    }
+
+    @Override
+    public <B> B foldRight(B identity, Function2<A, B, B> f, Function2<B, B, B> g) {
+      // Pre order left
+      return g.apply(f.apply(this.value, left.foldRight(identity, f, g)), right.foldRight(identity, f, g));
+    }
+
+    @Override
+    public <B> B foldInOrder(B identity, Function3<B, A, B, B> f) {
+      return f.apply(left.foldInOrder(identity, f), value, right.foldInOrder(identity, f));
+    }
+
+    @Override
+    public <B> B foldInReverseOrder(B identity, Function3<B, A, B, B> f) {
+      return f.apply(right.foldInReverseOrder(identity, f), value, left.foldInReverseOrder(identity, f));
     }
 
     @Override
@@ -737,6 +1291,119 @@ public abstract class Tree<A extends Comparable<A>> {
     return E;
   }
 
+  /*
+   * The array is only read, so it doesn't escape.
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public static <A extends Comparable<A>> Tree<A> fromSorted(A... elements) {
+    return fromSortedArray(elements, elements.length);
+  }
+
+  /*
+   * Builds a balanced tree from a strictly increasing list in O(n), without
+   * any rebalancing. All nodes are black but those of the deepest level when
+   * this level is incomplete, which are red. This gives the same black height
+   * on all paths.
+   */
+  public static <A extends Comparable<A>> Tree<A> fromSorted(List<A> list) {
+    Object[] elements = new Object[list.length()];
+    int i = 0;
+    for (List<A> workList = list; !workList.isEmpty(); workList = workList.tail()) {
+      elements[i++] = workList.head();
+    }
+    return fromSortedArray(elements, elements.length);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <A extends Comparable<A>> Tree<A> fromSortedArray(Object[] elements, int length) {
+    for (int i = 1; i < length; i++) {
+      if (((A) elements[i - 1]).compareTo((A) elements[i]) >= 0) {
+        throw new IllegalArgumentException("fromSorted called with elements not in strictly increasing order");
+      }
+    }
+    return buildFromSorted(elements, 0, length - 1, 0, redLevel(length));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <A extends Comparable<A>> Tree<A> buildFromSorted(Object[] elements, int lo, int hi, int level, int redLevel) {
+    if (hi < lo) {
+      return e();
+    }
+    int mid = (lo + hi) >>> 1;
+    Tree<A> left = buildFromSorted(elements, lo, mid - 1, level + 1, redLevel);
+    Tree<A> right = buildFromSorted(elements, mid + 1, hi, level + 1, redLevel);
+    return new T<>(level == redLevel ? R : B, left, (A) elements[mid], right);
+  }
+
+  private static int redLevel(int length) {
+    int level = 0;
+    for (int m = length - 1; m >= 0; m = m / 2 - 1) {
+      level++;
+    }
+    return level;
+  }
+
+  public static <A extends Comparable<A>> Builder<A> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * A transient tree builder. Elements are accumulated in a mutable array
+   * owned by the builder. build() sorts them (in O(n) if they were added in
+   * order) and bulk loads a balanced tree with fromSorted. As with insert, when
+   * several equal elements are added, the last one wins. A builder must not be
+   * shared between threads, and can't be used any more once build() has been
+   * called.
+   */
+  public static final class Builder<A extends Comparable<A>> {
+
+    private Object[] elements = new Object[16];
+    private int length;
+
+    private Builder() {}
+
+    public Builder<A> add(A a) {
+      checkNotBuilt();
+      if (length == elements.length) {
+        elements = Arrays.copyOf(elements, length * 2);
+      }
+      elements[length++] = a;
+      return this;
+    }
+
+    public Builder<A> addAll(List<A> list) {
+      for (List<A> workList = list; !workList.isEmpty(); workList = workList.tail()) {
+        add(workList.head());
+      }
+      return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Tree<A> build() {
+      checkNotBuilt();
+      Object[] sorted = elements;
+      elements = null;
+      // Arrays.sort is stable, so the last of equal elements is the one added last.
+      Arrays.sort(sorted, 0, length, (x, y) -> ((A) x).compareTo((A) y));
+      int n = 0;
+      for (int i = 0; i < length; i++) {
+        if (n > 0 && ((A) sorted[n - 1]).compareTo((A) sorted[i]) == 0) {
+          sorted[n - 1] = sorted[i];
+        } else {
+          sorted[n++] = sorted[i];
+        }
+      }
+      return buildFromSorted(sorted, 0, n - 1, 0, redLevel(n));
+    }
+
+    private void checkNotBuilt() {
+      if (elements == null) {
+        throw new IllegalStateException("Builder used after build() was called");
+      }
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private static <A extends Comparable<A>> Tree<A> e() {
     return E;
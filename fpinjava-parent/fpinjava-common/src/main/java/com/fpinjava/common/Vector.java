@@ -0,0 +1,475 @@
+package com.fpinjava.common;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/*
+ * A persistent vector implemented as a 32-way trie with a tail buffer.
+ * see http://hypirion.com/musings/understanding-persistent-vector-pt-1
+ *
+ * Elements are stored in 32 slots leaves. The last (incomplete) leaf is kept
+ * out of the trie as the tail, so that appending is amortized O(1). Indexed
+ * access and update are O(log32(n)).
+ */
+public final class Vector<A> {
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final Object[] EMPTY_NODE = new Object[WIDTH];
+  private static final Object[] EMPTY_TAIL = new Object[0];
+
+  @SuppressWarnings("rawtypes")
+  private static final Vector EMPTY = new Vector<>(0, BITS, EMPTY_NODE, EMPTY_TAIL);
+
+  private final int length;
+  private final int shift;
+  private final Object[] root;
+  private final Object[] tail;
+
+  private Vector(int length, int shift, Object[] root, Object[] tail) {
+    this.length = length;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  public Result<A> getAt(int index) {
+    return index < 0 || index >= length
+        ? Result.failure("Index out of bound")
+        : Result.success(get(index));
+  }
+
+  public Result<A> headOption() {
+    return getAt(0);
+  }
+
+  public Result<A> lastOption() {
+    return isEmpty()
+        ? Result.empty()
+        : Result.success(get(length - 1));
+  }
+
+  public Result<Vector<A>> updateAt(int index, A a) {
+    return index < 0 || index >= length
+        ? Result.failure("Index out of bound")
+        : Result.success(index >= tailOffset()
+            ? new Vector<>(length, shift, root, copyAndSet(tail, index & MASK, a))
+            : new Vector<>(length, shift, updateAt(shift, root, index, a), tail));
+  }
+
+  public Vector<A> append(A a) {
+    if (length - tailOffset() < WIDTH) {
+      Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+      newTail[tail.length] = a;
+      return new Vector<>(length + 1, shift, root, newTail);
+    }
+    Object[] newTail = new Object[] {a};
+    // Root overflow: the trie is full at this depth, so we add a level.
+    if ((length >>> BITS) > (1 << shift)) {
+      Object[] newRoot = new Object[WIDTH];
+      newRoot[0] = root;
+      newRoot[1] = newPath(shift, tail);
+      return new Vector<>(length + 1, shift + BITS, newRoot, newTail);
+    }
+    return new Vector<>(length + 1, shift, pushTail(shift, root, tail), newTail);
+  }
+
+  public Vector<A> init() {
+    if (isEmpty()) {
+      throw new IllegalStateException("init called on an empty vector");
+    }
+    if (length == 1) {
+      return empty();
+    }
+    if (length - tailOffset() > 1) {
+      return new Vector<>(length - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+    }
+    Object[] newTail = leafFor(length - 2);
+    Object[] newRoot = popTail(shift, root);
+    if (newRoot == null) {
+      newRoot = EMPTY_NODE;
+    }
+    if (shift > BITS && newRoot[1] == null) {
+      return new Vector<>(length - 1, shift - BITS, (Object[]) newRoot[0], newTail);
+    }
+    return new Vector<>(length - 1, shift, newRoot, newTail);
+  }
+
+  public <B> B foldLeft(B identity, Function<B, Function<A, B>> f) {
+    return foldLeft(identity, Function2.uncurried(f));
+  }
+
+  public <B> B foldLeft(B identity, Function2<B, A, B> f) {
+    B acc = identity;
+    for (int i = 0; i < length; i += WIDTH) {
+      Object[] leaf = leafFor(i);
+      for (int j = 0, n = Math.min(WIDTH, length - i); j < n; j++) {
+        acc = f.apply(acc, elementOf(leaf, j));
+      }
+    }
+    return acc;
+  }
+
+  public <B> B foldRight(B identity, Function<A, Function<B, B>> f) {
+    return foldRight(identity, Function2.uncurried(f));
+  }
+
+  public <B> B foldRight(B identity, Function2<A, B, B> f) {
+    B acc = identity;
+    for (int i = (length - 1) & ~MASK; i >= 0; i -= WIDTH) {
+      Object[] leaf = leafFor(i);
+      for (int j = Math.min(WIDTH, length - i) - 1; j >= 0; j--) {
+        acc = f.apply(elementOf(leaf, j), acc);
+      }
+    }
+    return acc;
+  }
+
+  public <B> Vector<B> map(Function<A, B> f) {
+    return new Vector<>(length, shift, mapNode(shift, root, f), mapLeaf(tail, tail.length, f));
+  }
+
+  public Vector<A> filter(Function<A, Boolean> p) {
+    Object[] elements = new Object[length];
+    int n = 0;
+    for (int i = 0; i < length; i += WIDTH) {
+      Object[] leaf = leafFor(i);
+      for (int j = 0, m = Math.min(WIDTH, length - i); j < m; j++) {
+        if (p.apply(elementOf(leaf, j))) {
+          elements[n++] = leaf[j];
+        }
+      }
+    }
+    return n == length
+        ? this
+        : fromArray(elements, n);
+  }
+
+  /*
+   * The vectors returned by f are copied one after the other into a single
+   * growing array, from which the result is built once.
+   */
+  public <B> Vector<B> flatMap(Function<A, Vector<B>> f) {
+    Object[] elements = new Object[Math.max(WIDTH, length)];
+    int n = 0;
+    for (int i = 0; i < length; i += WIDTH) {
+      Object[] leaf = leafFor(i);
+      for (int j = 0, m = Math.min(WIDTH, length - i); j < m; j++) {
+        Vector<B> vector = f.apply(elementOf(leaf, j));
+        if (n + vector.length > elements.length) {
+          elements = Arrays.copyOf(elements, Math.max(elements.length * 2, n + vector.length));
+        }
+        vector.copyTo(elements, n);
+        n += vector.length;
+      }
+    }
+    return fromArray(elements, n);
+  }
+
+  public boolean exists(Function<A, Boolean> p) {
+    for (int i = 0; i < length; i += WIDTH) {
+      Object[] leaf = leafFor(i);
+      for (int j = 0, n = Math.min(WIDTH, length - i); j < n; j++) {
+        if (p.apply(elementOf(leaf, j))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  public boolean forAll(Function<A, Boolean> p) {
+    return !exists(x -> !p.apply(x));
+  }
+
+  public void forEach(Consumer<A> effect) {
+    for (int i = 0; i < length; i += WIDTH) {
+      Object[] leaf = leafFor(i);
+      for (int j = 0, n = Math.min(WIDTH, length - i); j < n; j++) {
+        effect.accept(elementOf(leaf, j));
+      }
+    }
+  }
+
+  public Vector<A> concat(Vector<A> that) {
+    if (that.isEmpty()) {
+      return this;
+    }
+    if (this.isEmpty()) {
+      return that;
+    }
+    Object[] elements = toArray(length + that.length);
+    that.copyTo(elements, length);
+    return fromArray(elements, length + that.length);
+  }
+
+  public Tuple<Vector<A>, Vector<A>> splitAt(int index) {
+    int i = index < 0 ? 0 : index > length ? length : index;
+    return new Tuple<>(take(i), drop(i));
+  }
+
+  public Vector<A> take(int n) {
+    return n <= 0
+        ? empty()
+        : n >= length
+            ? this
+            : fromArray(copyRange(0, n), n);
+  }
+
+  public Vector<A> drop(int n) {
+    if (n <= 0) {
+      return this;
+    }
+    if (n >= length) {
+      return empty();
+    }
+    return fromArray(copyRange(n, length), length - n);
+  }
+
+  public Vector<A> reverse() {
+    Object[] elements = toArray(length);
+    for (int i = 0, j = length - 1; i < j; i++, j--) {
+      Object temp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = temp;
+    }
+    return fromArray(elements, length);
+  }
+
+  public List<A> toList() {
+    return foldRight(List.list(), a -> l -> l.cons(a));
+  }
+
+  public Stream<A> toStream() {
+    return toStream(0);
+  }
+
+  private Stream<A> toStream(int index) {
+    return index >= length
+        ? Stream.empty()
+        : Stream.cons(() -> get(index), () -> toStream(index + 1));
+  }
+
+  public String mkStr(String sep) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      sb.append(i == 0 ? "" : sep).append(get(i));
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    forEach(a -> sb.append(a).append(", "));
+    return sb.append("NIL]").toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof Vector)) {
+      return false;
+    }
+    Vector<?> that = (Vector<?>) o;
+    if (that.length != this.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (!this.get(i).equals(that.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return foldLeft(1, h -> a -> 31 * h + a.hashCode());
+  }
+
+  private int tailOffset() {
+    return length < WIDTH
+        ? 0
+        : ((length - 1) >>> BITS) << BITS;
+  }
+
+  private A get(int index) {
+    return elementOf(leafFor(index), index & MASK);
+  }
+
+  private Object[] leafFor(int index) {
+    if (index >= tailOffset()) {
+      return tail;
+    }
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & MASK];
+    }
+    return node;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <A> A elementOf(Object[] leaf, int index) {
+    return (A) leaf[index];
+  }
+
+  private static Object[] copyAndSet(Object[] array, int index, Object value) {
+    Object[] result = array.clone();
+    result[index] = value;
+    return result;
+  }
+
+  private static Object[] updateAt(int level, Object[] node, int index, Object value) {
+    return level == 0
+        ? copyAndSet(node, index & MASK, value)
+        : copyAndSet(node, (index >>> level) & MASK, updateAt(level - BITS, (Object[]) node[(index >>> level) & MASK], index, value));
+  }
+
+  private static Object[] newPath(int level, Object[] leaf) {
+    if (level == 0) {
+      return leaf;
+    }
+    Object[] node = new Object[WIDTH];
+    node[0] = newPath(level - BITS, leaf);
+    return node;
+  }
+
+  private Object[] pushTail(int level, Object[] parent, Object[] leaf) {
+    int subIndex = ((length - 1) >>> level) & MASK;
+    Object[] child = level == BITS
+        ? leaf
+        : parent[subIndex] == null
+            ? newPath(level - BITS, leaf)
+            : pushTail(level - BITS, (Object[]) parent[subIndex], leaf);
+    return copyAndSet(parent, subIndex, child);
+  }
+
+  private Object[] popTail(int level, Object[] node) {
+    int subIndex = ((length - 2) >>> level) & MASK;
+    if (level > BITS) {
+      Object[] child = popTail(level - BITS, (Object[]) node[subIndex]);
+      return child == null && subIndex == 0
+          ? null
+          : copyAndSet(node, subIndex, child);
+    }
+    return subIndex == 0
+        ? null
+        : copyAndSet(node, subIndex, null);
+  }
+
+  private static <A, B> Object[] mapNode(int level, Object[] node, Function<A, B> f) {
+    Object[] result = new Object[WIDTH];
+    for (int i = 0; i < WIDTH && node[i] != null; i++) {
+      result[i] = level == BITS
+          ? mapLeaf((Object[]) node[i], WIDTH, f)
+          : mapNode(level - BITS, (Object[]) node[i], f);
+    }
+    return result;
+  }
+
+  private static <A, B> Object[] mapLeaf(Object[] leaf, int n, Function<A, B> f) {
+    Object[] result = new Object[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = f.apply(elementOf(leaf, i));
+    }
+    return result;
+  }
+
+  private Object[] toArray(int capacity) {
+    Object[] elements = new Object[capacity];
+    copyTo(elements, 0);
+    return elements;
+  }
+
+  private void copyTo(Object[] elements, int offset) {
+    for (int i = 0; i < length; i += WIDTH) {
+      System.arraycopy(leafFor(i), 0, elements, offset + i, Math.min(WIDTH, length - i));
+    }
+  }
+
+  /*
+   * The elements from index from (inclusive) to index to (exclusive), copied
+   * from the leaves holding them only.
+   */
+  private Object[] copyRange(int from, int to) {
+    Object[] elements = new Object[to - from];
+    for (int i = from; i < to; ) {
+      int start = i & MASK;
+      int count = Math.min(WIDTH - start, to - i);
+      System.arraycopy(leafFor(i), start, elements, i - from, count);
+      i += count;
+    }
+    return elements;
+  }
+
+  /*
+   * Builds the trie bottom-up from the first n elements of the array. Leaves
+   * are filled completely, and the remaining elements go to the tail.
+   */
+  static <A> Vector<A> fromArray(Object[] elements, int n) {
+    if (n == 0) {
+      return empty();
+    }
+    int tailOffset = n < WIDTH ? 0 : ((n - 1) >>> BITS) << BITS;
+    Object[] newTail = Arrays.copyOfRange(elements, tailOffset, n);
+    if (tailOffset == 0) {
+      return new Vector<>(n, BITS, EMPTY_NODE, newTail);
+    }
+    Object[] nodes = new Object[tailOffset >>> BITS];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = Arrays.copyOfRange(elements, i << BITS, (i + 1) << BITS);
+    }
+    int level = BITS;
+    while (nodes.length > WIDTH) {
+      Object[] parents = new Object[(nodes.length + MASK) >>> BITS];
+      for (int i = 0; i < parents.length; i++) {
+        parents[i] = Arrays.copyOfRange(nodes, i << BITS, (i + 1) << BITS);
+      }
+      nodes = parents;
+      level += BITS;
+    }
+    return new Vector<>(n, level, Arrays.copyOf(nodes, WIDTH), newTail);
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <A> Vector<A> empty() {
+    return EMPTY;
+  }
+
+  /*
+   * fromArray copies the elements, so the array doesn't escape.
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public static <A> Vector<A> vector(A... a) {
+    return fromArray(a, a.length);
+  }
+
+  public static <A> Vector<A> fromList(List<A> list) {
+    Object[] elements = new Object[list.length()];
+    int i = 0;
+    for (List<A> workList = list; !workList.isEmpty(); workList = workList.tail()) {
+      elements[i++] = workList.head();
+    }
+    return fromArray(elements, elements.length);
+  }
+
+  public static Vector<Integer> range(int start, int end) {
+    int n = Math.max(0, end - start);
+    Object[] elements = new Object[n];
+    for (int i = 0; i < n; i++) {
+      elements[i] = start + i;
+    }
+    return fromArray(elements, n);
+  }
+}
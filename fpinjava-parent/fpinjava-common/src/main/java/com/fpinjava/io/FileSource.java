@@ -0,0 +1,237 @@
+package com.fpinjava.io;
+
+import com.fpinjava.common.Function;
+import com.fpinjava.common.Nothing;
+import com.fpinjava.common.Stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads files as lazy streams of lines or of chunks of characters. The file
+ * is read through a FileChannel into a single reusable byte buffer, and
+ * decoded chunk by chunk, so only one chunk and the current line are in
+ * memory at any time, whatever the size of the file, as long as the caller
+ * doesn't keep the elements it has already seen.
+ *
+ * The stream is only valid inside the function given to lines or chunks,
+ * which must consume it, and may traverse it once. The file is opened when
+ * the returned IO is run, and closed when the function returns or fails,
+ * even with an Error such as a StackOverflowError or an OutOfMemoryError.
+ */
+public final class FileSource {
+
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  private static final int MIN_BUFFER_SIZE = 16;
+
+  private FileSource() {}
+
+  public static <B> IO<B> lines(Path path, Function<Stream<String>, B> f) {
+    return lines(path, StandardCharsets.UTF_8, DEFAULT_CHUNK_SIZE, f);
+  }
+
+  /*
+   * Lines are terminated by \n or \r\n, which are not part of the lines, as
+   * with BufferedReader.readLine.
+   */
+  public static <B> IO<B> lines(Path path, Charset charset, int chunkSize, Function<Stream<String>, B> f) {
+    return lines(open(path), charset, chunkSize, f);
+  }
+
+  /*
+   * Reads from the channel returned by open, for tests.
+   */
+  static <B> IO<B> lines(IO<FileChannel> open, Charset charset, int chunkSize, Function<Stream<String>, B> f) {
+    return read(open, charset, chunkSize, chunks -> f.apply(Stream.fromIterator(new Lines(chunks))));
+  }
+
+  public static <B> IO<B> chunks(Path path, Function<Stream<CharBuffer>, B> f) {
+    return chunks(path, StandardCharsets.UTF_8, DEFAULT_CHUNK_SIZE, f);
+  }
+
+  /*
+   * Each chunk is a new buffer holding what was decoded from at most
+   * chunkSize bytes (or 16, for smaller sizes), so a chunk may end in the
+   * middle of a line.
+   */
+  public static <B> IO<B> chunks(Path path, Charset charset, int chunkSize, Function<Stream<CharBuffer>, B> f) {
+    return read(open(path), charset, chunkSize, chunks -> f.apply(Stream.fromIterator(chunks)));
+  }
+
+  private static <B> IO<B> read(IO<FileChannel> open, Charset charset, int chunkSize, Function<Chunks, B> f) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    return IO.bracket(open,
+        channel -> () -> f.apply(new Chunks(channel, charset, chunkSize)),
+        FileSource::close);
+  }
+
+  private static IO<FileChannel> open(Path path) {
+    return () -> {
+      try {
+        return FileChannel.open(path, StandardOpenOption.READ);
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Can't open file %s", path), e);
+      }
+    };
+  }
+
+  private static IO<Nothing> close(FileChannel channel) {
+    return () -> {
+      try {
+        channel.close();
+        return Nothing.instance;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+
+  private static final class Chunks implements Iterator<CharBuffer> {
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes;
+    private final int maxChars;
+    private CharBuffer next;
+    private boolean eof;
+    private boolean flushed;
+
+    private Chunks(FileChannel channel, Charset charset, int chunkSize) {
+      this.channel = channel;
+      this.decoder = charset.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      /*
+       * The buffer must hold the bytes of at least one character, or the
+       * start of a character split between two reads would fill it forever.
+       */
+      this.bytes = ByteBuffer.allocateDirect(Math.max(chunkSize, MIN_BUFFER_SIZE));
+      this.maxChars = (int) Math.ceil(bytes.capacity() * (double) decoder.maxCharsPerByte()) + 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && !flushed) {
+        next = readChunk();
+      }
+      return next != null;
+    }
+
+    @Override
+    public CharBuffer next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      CharBuffer chunk = next;
+      next = null;
+      return chunk;
+    }
+
+    /*
+     * Returns null when nothing was decoded, which may happen while the
+     * bytes of a character are split between two reads.
+     */
+    private CharBuffer readChunk() {
+      try {
+        if (!eof && channel.read(bytes) < 0) {
+          eof = true;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      bytes.flip();
+      CharBuffer chars = CharBuffer.allocate(maxChars);
+      CoderResult result = decoder.decode(bytes, chars, eof);
+      if (eof && result.isUnderflow()) {
+        decoder.flush(chars);
+        flushed = true;
+      }
+      bytes.compact();
+      chars.flip();
+      return chars.hasRemaining()
+          ? chars
+          : null;
+    }
+  }
+
+  private static final class Lines implements Iterator<String> {
+
+    private final Iterator<CharBuffer> chunks;
+    private final StringBuilder line = new StringBuilder();
+    private CharBuffer chunk = CharBuffer.allocate(0);
+    private String next;
+
+    private Lines(Iterator<CharBuffer> chunks) {
+      this.chunks = chunks;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = readLine();
+      }
+      return next != null;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String result = next;
+      next = null;
+      return result;
+    }
+
+    /*
+     * CharBuffer.get(int) is absolute, while its CharSequence methods, used
+     * by append, are relative to the position.
+     */
+    private String readLine() {
+      while (true) {
+        int start = chunk.position();
+        int limit = chunk.limit();
+        for (int i = start; i < limit; i++) {
+          if (chunk.get(i) == '\n') {
+            line.append(chunk, 0, i - start);
+            chunk.position(i + 1);
+            return takeLine();
+          }
+        }
+        line.append(chunk, 0, limit - start);
+        chunk.position(limit);
+        if (!chunks.hasNext()) {
+          return line.length() == 0
+              ? null
+              : takeLine();
+        }
+        chunk = chunks.next();
+      }
+    }
+
+    private String takeLine() {
+      int length = line.length();
+      if (length > 0 && line.charAt(length - 1) == '\r') {
+        line.setLength(length - 1);
+      }
+      String result = line.toString();
+      line.setLength(0);
+      return result;
+    }
+  }
+}
@@ -1,36 +1,141 @@
 package com.fpinjava.io;
 
 
+import com.fpinjava.common.Effect;
 import com.fpinjava.common.Function;
 import com.fpinjava.common.List;
 import com.fpinjava.common.Nothing;
+import com.fpinjava.common.Result;
 import com.fpinjava.common.Stream;
 import com.fpinjava.common.Supplier;
-
+import com.fpinjava.common.Tuple;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A description of a program with side effects, which does nothing until it
+ * is run. Any lambda is a primitive IO, and map and flatMap build a program
+ * which is run by a trampolined loop (see IORuntime), so programs may loop
+ * forever, or be composed of any number of nested binds, in constant stack
+ * and memory.
+ *
+ * A program may also wait for an asynchronous event, or move to another
+ * thread, through async and fork. run() then blocks until the program
+ * completes, while runAsync returns immediately. par, race, parSequence and
+ * parTraverse run several programs at once on an executor, when the program
+ * reaches them, and not before.
+ */
 public interface IO<A> {
 
   IO<Nothing> empty = () -> Nothing.instance;
 
+  /*
+   * Runs a primitive effect. For programs built with map and flatMap, runs
+   * the whole program and waits for its result.
+   */
   A run();
 
+  /*
+   * Runs the program, and hands its result, or its failure, to callback on
+   * the thread the program completes on.
+   */
+  default void runAsync(Effect<Result<A>> callback) {
+    IORuntime.runAsync(this, callback);
+  }
+
   default <B> IO<B> map(Function<A, B> f) {
-    return () -> f.apply(this.run());
+    return flatMap(a -> new IORuntime.Return<>(f.apply(a)));
   }
 
   default <B> IO<B> flatMap(Function<A, IO<B>> f) {
-    return () -> f.apply(this.run()).run();
+    return new IORuntime.FlatMap<>(this, f);
   }
 
   static <B> IO<B> unit(B b) {
-    return () -> b;
+    return new IORuntime.Return<>(b);
+  }
+
+  /*
+   * Defers building a program until it is run.
+   */
+  static <A> IO<A> suspend(Supplier<IO<A>> io) {
+    return empty.flatMap(x -> io.get());
+  }
+
+  /*
+   * A program waiting for register to call the callback it is given, on any
+   * thread and at any time. The program then goes on on that thread.
+   */
+  static <A> IO<A> async(Effect<Effect<Result<A>>> register) {
+    return IORuntime.async(register);
+  }
+
+  /*
+   * Goes on with the program on a thread of executor.
+   */
+  static IO<Nothing> shift(Executor executor) {
+    return async(callback -> executor.execute(() -> callback.apply(Result.success(Nothing.instance))));
+  }
+
+  /*
+   * Runs io on a thread of executor. The rest of the program runs on that
+   * thread too, unless it shifts back.
+   */
+  static <A> IO<A> fork(Executor executor, IO<A> io) {
+    return shift(executor).flatMap(x -> io);
   }
 
   static <A, B, C> IO<C> map2(IO<A> ioa, IO<B> iob, Function<A, Function<B, C>> f) {
     return ioa.flatMap(a -> iob.map(b -> f.apply(a).apply(b)));
   }
 
+  /*
+   * Acquires a resource, uses it, and releases it once use completes, whether
+   * it succeeded or failed, including with an Error. The resource must not escape use: a lazy
+   * structure reading from it must be consumed before use completes.
+   */
+  static <R, B> IO<B> bracket(IO<R> acquire, Function<R, IO<B>> use, Function<R, IO<Nothing>> release) {
+    return IORuntime.bracket(acquire, use, release);
+  }
+
+  /*
+   * Runs both programs at once on executor, and fails as soon as one of them
+   * fails.
+   */
+  static <A, B> IO<Tuple<A, B>> par(Executor executor, IO<A> ioa, IO<B> iob) {
+    return IOParallel.both(executor, ioa, iob);
+  }
+
+  static <A, B, C> IO<C> parMap2(Executor executor, IO<A> ioa, IO<B> iob, Function<A, Function<B, C>> f) {
+    return par(executor, ioa, iob).map(t -> f.apply(t._1).apply(t._2));
+  }
+
+  /*
+   * Runs both programs at once on executor, and completes as the first one
+   * does, successfully or not. The other one is not interrupted.
+   */
+  static <A> IO<A> race(Executor executor, IO<A> io1, IO<A> io2) {
+    return IOParallel.race(executor, io1, io2);
+  }
+
+  static <A> IO<List<A>> parSequence(Executor executor, List<IO<A>> ios) {
+    return parSequence(executor, Math.max(1, ios.length()), ios);
+  }
+
+  /*
+   * Runs the programs on executor, at most permits at once, and returns
+   * their results in the order of the list.
+   */
+  static <A> IO<List<A>> parSequence(Executor executor, int permits, List<IO<A>> ios) {
+    return IOParallel.sequence(executor, permits, ios);
+  }
+
+  static <A, B> IO<List<B>> parTraverse(Executor executor, int permits, List<A> list, Function<A, IO<B>> f) {
+    return suspend(() -> parSequence(executor, permits, list.map(f)));
+  }
+
   static <A> IO<List<A>> repeat(int n, IO<A> io) {
-    return Stream.fill(n, () -> io).foldRight(() -> unit(List.list()), ioa -> sioLa -> map2(ioa, sioLa.get(), a -> la -> List.cons(a, la)));
+    return IORuntime.repeat(n, io, List.list());
   }
 
   static <A, B> IO<B> as(IO<A> a, B b) {
@@ -69,13 +174,16 @@ public interface IO<A> {
   }
 
   static <A, B> IO<B> foldM(Stream<A> s, B z, Function<B, Function<A, IO<B>>> f) {
-    return s.isEmpty()
+    return suspend(() -> s.isEmpty()
         ? unit(z)
-        : f.apply(z).apply(s.head()._1).flatMap(zz -> foldM(s.tail(), zz, f));
+        : f.apply(z).apply(s.head()._1).flatMap(zz -> foldM(s.tail(), zz, f)));
   }
 
   static <A> IO<Nothing> forEach(Stream<A> s, Function<A, IO<Nothing>> f) {
-    return foldM_(s, Nothing.instance, n -> t -> skip(f.apply(t)));
+    return () -> {
+      s.forEach(a -> f.apply(a).run());
+      return Nothing.instance;
+    };
   }
 
   @SafeVarargs
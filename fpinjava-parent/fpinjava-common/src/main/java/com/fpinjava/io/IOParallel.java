@@ -0,0 +1,131 @@
+package com.fpinjava.io;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Tuple;
+import com.fpinjava.io.IORuntime.Async;
+import com.fpinjava.io.IORuntime.Callback;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The engine behind the parallel IO combinators. Each of them is a single
+ * async node which, when the program reaches it, starts the programs it
+ * combines on the executor, and resumes the program once their results are
+ * in. No thread is blocked waiting for them.
+ *
+ * The first failure completes the whole combination. Programs which were
+ * already started are not interrupted, since IO has no cancellation, but no
+ * new one is started.
+ */
+final class IOParallel {
+
+  private IOParallel() {}
+
+  static <A, B> IO<Tuple<A, B>> both(Executor executor, IO<A> ioa, IO<B> iob) {
+    return new Async<>(callback -> {
+      AtomicInteger remaining = new AtomicInteger(2);
+      AtomicBoolean failed = new AtomicBoolean();
+      Object[] results = new Object[2];
+      IORuntime.start(IO.fork(executor, ioa), (value, error) -> joinBoth(0, value, error, results, remaining, failed, callback));
+      IORuntime.start(IO.fork(executor, iob), (value, error) -> joinBoth(1, value, error, results, remaining, failed, callback));
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <A, B> void joinBoth(int index, Object value, Throwable error, Object[] results,
+                                      AtomicInteger remaining, AtomicBoolean failed, Callback<Tuple<A, B>> callback) {
+    if (error != null) {
+      if (failed.compareAndSet(false, true)) {
+        callback.done(null, error);
+      }
+    } else {
+      results[index] = value;
+      if (remaining.decrementAndGet() == 0) {
+        callback.done(new Tuple<>((A) results[0], (B) results[1]), null);
+      }
+    }
+  }
+
+  static <A> IO<A> race(Executor executor, IO<A> io1, IO<A> io2) {
+    return new Async<>(callback -> {
+      AtomicBoolean done = new AtomicBoolean();
+      Callback<A> first = (value, error) -> {
+        if (done.compareAndSet(false, true)) {
+          callback.done(value, error);
+        }
+      };
+      IORuntime.start(IO.fork(executor, io1), first);
+      IORuntime.start(IO.fork(executor, io2), first);
+    });
+  }
+
+  static <A> IO<List<A>> sequence(Executor executor, int permits, List<IO<A>> ios) {
+    if (permits < 1) {
+      throw new IllegalArgumentException("Number of permits must be positive: " + permits);
+    }
+    return new Async<>(callback -> new Gather<>(executor, ios, callback).start(permits));
+  }
+
+  /*
+   * Starts at most permits programs, and then a new one each time one
+   * completes, so that no more than permits are running at once. Results
+   * are stored by index, so they come out in the order of the list.
+   */
+  private static final class Gather<A> {
+
+    private final Executor executor;
+    private final Object[] ios;
+    private final Object[] results;
+    private final Callback<List<A>> callback;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    private Gather(Executor executor, List<IO<A>> ios, Callback<List<A>> callback) {
+      this.executor = executor;
+      this.ios = ios.toJavaList().toArray();
+      this.results = new Object[this.ios.length];
+      this.callback = callback;
+      this.remaining = new AtomicInteger(this.ios.length);
+    }
+
+    private void start(int permits) {
+      if (ios.length == 0) {
+        callback.done(List.list(), null);
+      }
+      for (int i = 0; i < Math.min(permits, ios.length); i++) {
+        launch();
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void launch() {
+      int index = next.getAndIncrement();
+      if (index < ios.length && !failed.get()) {
+        IORuntime.start(IO.fork(executor, (IO<A>) ios[index]), (value, error) -> complete(index, value, error));
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete(int index, A value, Throwable error) {
+      if (error != null) {
+        if (failed.compareAndSet(false, true)) {
+          callback.done(null, error);
+        }
+      } else {
+        results[index] = value;
+        if (remaining.decrementAndGet() == 0) {
+          List.Builder<A> builder = List.builder(results.length);
+          for (Object result : results) {
+            builder.add((A) result);
+          }
+          callback.done(builder.build(), null);
+        } else {
+          launch();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,275 @@
+package com.fpinjava.io;
+
+import com.fpinjava.common.Effect;
+import com.fpinjava.common.Function;
+import com.fpinjava.common.List;
+import com.fpinjava.common.Nothing;
+import com.fpinjava.common.Result;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The run loop behind IO. Programs are made of three kinds of nodes, Return,
+ * FlatMap and Async, and of primitive effects, which are any other IO, such
+ * as lambdas, and are simply run. The loop keeps the continuations of the
+ * FlatMap nodes it descends into on an explicit stack, as TailCall.eval
+ * does, so left nested binds are re-associated as they are met, and running
+ * a program never takes more than a constant amount of Java stack, however
+ * deep its binds are nested and however long it loops.
+ *
+ * When an Async node completes later, on another thread, the loop resumes on
+ * that thread with the same stack. A program waiting for an Async node holds
+ * no thread at all, unless it was started with run(), which then waits.
+ */
+final class IORuntime {
+
+  private IORuntime() {}
+
+  static final class Return<A> implements IO<A> {
+
+    private final A value;
+
+    Return(A value) {
+      this.value = value;
+    }
+
+    @Override
+    public A run() {
+      return value;
+    }
+  }
+
+  static final class FlatMap<A, B> implements IO<B> {
+
+    private final IO<A> sub;
+    private final Function<A, IO<B>> f;
+
+    FlatMap(IO<A> sub, Function<A, IO<B>> f) {
+      this.sub = sub;
+      this.f = f;
+    }
+
+    @Override
+    public B run() {
+      return IORuntime.run(this);
+    }
+  }
+
+  static final class Async<A> implements IO<A> {
+
+    private final Effect<Callback<A>> register;
+
+    Async(Effect<Callback<A>> register) {
+      this.register = register;
+    }
+
+    @Override
+    public A run() {
+      return IORuntime.run(this);
+    }
+  }
+
+  static <A> A run(IO<A> io) {
+    Await<A> await = new Await<>();
+    start(io, await);
+    return await.get();
+  }
+
+  static <A> void runAsync(IO<A> io, Effect<Result<A>> callback) {
+    start(io, (value, error) -> callback.apply(error == null
+        ? Result.success(value)
+        : Result.failure(error instanceof Exception ? (Exception) error : new IllegalStateException(error))));
+  }
+
+  /*
+   * Failures are kept as the original exceptions, rather than as Results, so
+   * that run() throws what the program threw, as it did before. Errors are
+   * failures too: if they were let through, a program waiting for them on
+   * another thread would never be resumed.
+   */
+  interface Callback<A> {
+    void done(A value, Throwable error);
+  }
+
+  static <A> IO<A> async(Effect<Effect<Result<A>>> register) {
+    return new Async<>(callback -> register.apply(r -> {
+      if (r.isFailure()) {
+        callback.done(null, r.failureValue());
+      } else {
+        callback.done(r.successValue(), null);
+      }
+    }));
+  }
+
+  @SuppressWarnings("unchecked")
+  static <A> void start(IO<A> io, Callback<A> callback) {
+    loop((IO<Object>) io, null, 0, (Callback<Object>) callback);
+  }
+
+  private static void loop(IO<Object> io, Object[] stack, int size, Callback<Object> callback) {
+    Outcome outcome = step(io, stack, size, callback);
+    if (outcome != null) {
+      callback.done(outcome.value, outcome.error);
+    }
+  }
+
+  private static final class Outcome {
+
+    private final Object value;
+    private final Throwable error;
+
+    private Outcome(Object value, Throwable error) {
+      this.value = value;
+      this.error = error;
+    }
+  }
+
+  /*
+   * Runs the program until it returns, fails, or waits for an Async node
+   * which doesn't complete immediately, in which case it returns null. The
+   * outcome is only handed to the callback once the loop is left, so that an
+   * exception thrown by the callback is not mistaken for a failure of the
+   * program.
+   */
+  @SuppressWarnings("unchecked")
+  private static Outcome step(IO<Object> io, Object[] stack, int size, Callback<Object> callback) {
+    IO<Object> current = io;
+    try {
+      while (true) {
+        Object value;
+        if (current instanceof FlatMap) {
+          FlatMap<Object, Object> flatMap = (FlatMap<Object, Object>) current;
+          if (stack == null) {
+            stack = new Object[16];
+          } else if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size * 2);
+          }
+          stack[size++] = flatMap.f;
+          current = flatMap.sub;
+          continue;
+        } else if (current instanceof Return) {
+          value = ((Return<Object>) current).value;
+        } else if (current instanceof Async) {
+          Resume resume = new Resume(stack, size, callback);
+          ((Async<Object>) current).register.apply(resume);
+          resume.registered = true;
+          if (!resume.completed) {
+            return null;
+          }
+          if (resume.error != null) {
+            return new Outcome(null, resume.error);
+          }
+          value = resume.value;
+        } else {
+          value = current.run();
+        }
+        if (size == 0) {
+          return new Outcome(value, null);
+        }
+        Function<Object, IO<Object>> f = (Function<Object, IO<Object>>) stack[--size];
+        stack[size] = null;
+        current = f.apply(value);
+      }
+    } catch (Throwable e) {
+      return new Outcome(null, e);
+    }
+  }
+
+  /*
+   * The callback given to an Async node. If it is called by the loop thread
+   * before register returns, the loop goes on. Otherwise, it resumes the
+   * program on the thread calling it, which takes over the loop, even if
+   * register has not returned yet. Calls after the first one are ignored.
+   */
+  private static final class Resume implements Callback<Object> {
+
+    private final AtomicBoolean called = new AtomicBoolean();
+    private final Thread owner = Thread.currentThread();
+    private final Object[] stack;
+    private final int size;
+    private final Callback<Object> callback;
+    /*
+     * Only accessed by the owner thread.
+     */
+    private boolean registered;
+    private boolean completed;
+    private Object value;
+    private Throwable error;
+
+    private Resume(Object[] stack, int size, Callback<Object> callback) {
+      this.stack = stack;
+      this.size = size;
+      this.callback = callback;
+    }
+
+    @Override
+    public void done(Object value, Throwable error) {
+      if (!called.compareAndSet(false, true)) {
+        return;
+      }
+      if (Thread.currentThread() == owner && !registered) {
+        this.value = value;
+        this.error = error;
+        completed = true;
+      } else if (error != null) {
+        callback.done(null, error);
+      } else {
+        loop(new Return<>(value), stack, size, callback);
+      }
+    }
+  }
+
+  private static final class Await<A> implements Callback<A> {
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private A value;
+    private Throwable error;
+
+    @Override
+    public void done(A value, Throwable error) {
+      this.value = value;
+      this.error = error;
+      latch.countDown();
+    }
+
+    private A get() {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for an IO to complete", e);
+      }
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      } else if (error instanceof Error) {
+        throw (Error) error;
+      } else if (error != null) {
+        throw new IllegalStateException(error);
+      }
+      return value;
+    }
+  }
+
+  /*
+   * A failure of release doesn't hide a failure of use, to which it is
+   * attached as a suppressed exception.
+   */
+  static <R, B> IO<B> bracket(IO<R> acquire, Function<R, IO<B>> use, Function<R, IO<Nothing>> release) {
+    return acquire.flatMap(r -> new Async<B>(callback ->
+        start(IO.suspend(() -> use.apply(r)), (value, error) ->
+            start(IO.suspend(() -> release.apply(r)), (ignore, releaseError) -> {
+              if (error != null && releaseError != null) {
+                error.addSuppressed(releaseError);
+              }
+              callback.done(value, error != null ? error : releaseError);
+            }))));
+  }
+
+  static <A> IO<List<A>> repeat(int n, IO<A> io, List<A> acc) {
+    return n <= 0
+        ? new Return<>(acc.reverse())
+        : io.flatMap(a -> repeat(n - 1, io, acc.cons(a)));
+  }
+}
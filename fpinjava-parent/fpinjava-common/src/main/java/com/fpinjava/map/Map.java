@@ -3,57 +3,470 @@ package com.fpinjava.map;
 
 import com.fpinjava.common.List;
 import com.fpinjava.common.Result;
-import com.fpinjava.common.Tree;
 import com.fpinjava.common.Tuple;
 
-
+/**
+ * A persistent hash map implemented as a hash array mapped trie (HAMT). Each
+ * level of the trie consumes five bits of the key hash code. A BitmapNode only
+ * allocates slots for the branches actually present, each slot holding either
+ * an entry or a sub node, and keys having the same hash code are stored in a
+ * CollisionNode. An update copies the nodes on the path from the root to the
+ * modified slot (at most seven of them) and shares everything else.
+ */
 public class Map<K, V> {
 
-  protected final Tree<MapEntry<Integer, List<Tuple<K, V>>>> delegate;
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
 
-  private Map() {
-    this.delegate = Tree.empty();
-  }
+  @SuppressWarnings("rawtypes")
+  private static final Map EMPTY = new Map<Object, Object>(BitmapNode.empty(), 0);
 
-  public Map(Tree<MapEntry<Integer, List<Tuple<K, V>>>> delegate) {
-    this.delegate = delegate;
+  private final Node<K, V> root;
+  private final int size;
+
+  private Map(Node<K, V> root, int size) {
+    this.root = root;
+    this.size = size;
   }
 
   public Map<K, V> add(K key, V value) {
-    Tuple<K, V> tuple = new Tuple<>(key, value);
-    List<Tuple<K, V>> ltkv = getAll(key).map(lt -> lt.foldLeft(List.list(tuple), l -> t -> t._1.equals(key) ? l : l.cons(t))).getOrElse(() -> List.list(tuple));
-    return new Map<>(delegate.insert(MapEntry.mapEntry(key.hashCode(), ltkv)));
+    Box added = new Box();
+    Node<K, V> newRoot = root.add(null, 0, key.hashCode(), key, value, added);
+    return newRoot == root
+        ? this
+        : new Map<>(newRoot, added.value ? size + 1 : size);
   }
 
   public boolean contains(K key) {
-    return getAll(key).map(lt -> lt.exists(t -> t._1.equals(key))).getOrElse(false);
+    return root.find(0, key.hashCode(), key) != null;
   }
 
   public Map<K, V> remove(K key) {
-    List<Tuple<K, V>> ltkv = getAll(key).map(lt -> lt.foldLeft(List.<Tuple<K, V>>list(), l -> t -> t._1.equals(key) ? l : l.cons(t))).getOrElse(List::list);
-    return ltkv.isEmpty()
-        ? new Map<>(delegate.delete(MapEntry.mapEntry(key.hashCode())))
-        : new Map<>(delegate.insert(MapEntry.mapEntry(key.hashCode(), ltkv)));
+    Box removed = new Box();
+    Node<K, V> newRoot = root.remove(null, 0, key.hashCode(), key, removed);
+    return !removed.value
+        ? this
+        : newRoot == null
+            ? empty()
+            : new Map<>(newRoot, size - 1);
   }
 
   public Result<Tuple<K, V>> get(K key) {
-    return getAll(key).flatMap(lt -> lt.first(t -> t._1.equals(key)));
+    Tuple<K, V> tuple = root.find(0, key.hashCode(), key);
+    return tuple == null
+        ? Result.empty()
+        : Result.success(tuple);
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
   }
 
-  private Result<List<Tuple<K, V>>> getAll(K key) {
-    return delegate.get(MapEntry.mapEntry(key.hashCode())).flatMap(x -> x.value.map(lt -> lt.map(t -> t)));
+  public int size() {
+    return size;
   }
 
-  public boolean isEmpty() {
-    return delegate.isEmpty();
+  /*
+   * Returns the entries of this map. The order is unspecified.
+   */
+  public List<Tuple<K, V>> toList() {
+    List.Builder<Tuple<K, V>> builder = List.builder(size);
+    root.collect(builder);
+    return builder.build();
   }
 
+  @SuppressWarnings("unchecked")
   public static <K, V> Map<K, V> empty() {
-    return new Map<>();
+    return EMPTY;
+  }
+
+  public static <K, V> Builder<K, V> builder() {
+    return new Builder<>(BitmapNode.empty(), 0);
+  }
+
+  /*
+   * Returns a builder starting with the entries of this map, which is itself
+   * left unchanged: the builder copies the nodes it doesn't own on first write.
+   */
+  public Builder<K, V> toBuilder() {
+    return new Builder<>(root, size);
+  }
+
+  /**
+   * A transient map builder. It owns the nodes it creates, and updates them in
+   * place instead of copying them (the last value added for a key wins). Nodes
+   * shared with persistent maps are never modified. A builder must not be
+   * shared between threads, and can't be used any more once build() has been
+   * called.
+   */
+  public static final class Builder<K, V> {
+
+    private Object edit = new Object();
+    private Node<K, V> root;
+    private int size;
+    private final Box box = new Box();
+
+    private Builder(Node<K, V> root, int size) {
+      this.root = root;
+      this.size = size;
+    }
+
+    public Builder<K, V> add(K key, V value) {
+      checkNotBuilt();
+      box.value = false;
+      root = root.add(edit, 0, key.hashCode(), key, value, box);
+      if (box.value) {
+        size++;
+      }
+      return this;
+    }
+
+    public Builder<K, V> remove(K key) {
+      checkNotBuilt();
+      box.value = false;
+      Node<K, V> newRoot = root.remove(edit, 0, key.hashCode(), key, box);
+      if (box.value) {
+        size--;
+        root = newRoot == null
+            ? BitmapNode.empty()
+            : newRoot;
+      }
+      return this;
+    }
+
+    public Map<K, V> build() {
+      checkNotBuilt();
+      edit = null;
+      return size == 0
+          ? empty()
+          : new Map<>(root, size);
+    }
+
+    private void checkNotBuilt() {
+      if (edit == null) {
+        throw new IllegalStateException("Builder used after build() was called");
+      }
+    }
   }
 
   @Override
   public String toString() {
-    return String.format("Map[%s]", this.delegate);
+    return String.format("Map[%s]", toList().mkStr(", "));
+  }
+
+  private static final class Box {
+    private boolean value;
+  }
+
+  private static int index(int hash, int shift) {
+    return (hash >>> shift) & MASK;
+  }
+
+  private static int bitpos(int hash, int shift) {
+    return 1 << index(hash, shift);
+  }
+
+  private static abstract class Node<K, V> {
+
+    /*
+     * Returns the entry for key, or null if there is none.
+     */
+    abstract Tuple<K, V> find(int shift, int hash, K key);
+
+    /*
+     * Nodes owned by edit are updated in place. All other nodes are path
+     * copied. Sets added.value to true if the key was not already present.
+     */
+    abstract Node<K, V> add(Object edit, int shift, int hash, K key, V value, Box added);
+
+    /*
+     * Returns null if the node becomes empty. Sets removed.value to true if the
+     * key was present.
+     */
+    abstract Node<K, V> remove(Object edit, int shift, int hash, K key, Box removed);
+
+    /*
+     * Returns the only entry of this node if it holds exactly one entry and
+     * no sub node, so that the parent can inline it. Returns null otherwise.
+     */
+    abstract Tuple<K, V> singleEntry();
+
+    abstract void collect(List.Builder<Tuple<K, V>> builder);
+  }
+
+  private static final class BitmapNode<K, V> extends Node<K, V> {
+
+    @SuppressWarnings("rawtypes")
+    private static final BitmapNode EMPTY = new BitmapNode<>(null, 0, new Object[0]);
+
+    private final Object edit;
+    private int bitmap;
+    private Object[] array;
+
+    private BitmapNode(Object edit, int bitmap, Object[] array) {
+      this.edit = edit;
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V> empty() {
+      return EMPTY;
+    }
+
+    private int slot(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Tuple<K, V> find(int shift, int hash, K key) {
+      int bit = bitpos(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return null;
+      }
+      Object o = array[slot(bit)];
+      if (o instanceof Node) {
+        return ((Node<K, V>) o).find(shift + BITS, hash, key);
+      }
+      Tuple<K, V> tuple = (Tuple<K, V>) o;
+      return key.equals(tuple._1)
+          ? tuple
+          : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Node<K, V> add(Object edit, int shift, int hash, K key, V value, Box added) {
+      int bit = bitpos(hash, shift);
+      int idx = slot(bit);
+      if ((bitmap & bit) == 0) {
+        added.value = true;
+        Object[] newArray = new Object[array.length + 1];
+        System.arraycopy(array, 0, newArray, 0, idx);
+        newArray[idx] = new Tuple<>(key, value);
+        System.arraycopy(array, idx, newArray, idx + 1, array.length - idx);
+        return update(edit, bitmap | bit, newArray);
+      }
+      Object o = array[idx];
+      if (o instanceof Node) {
+        Node<K, V> child = (Node<K, V>) o;
+        Node<K, V> newChild = child.add(edit, shift + BITS, hash, key, value, added);
+        return newChild == child
+            ? this
+            : set(edit, idx, newChild);
+      }
+      Tuple<K, V> tuple = (Tuple<K, V>) o;
+      if (key.equals(tuple._1)) {
+        return tuple._2 == value
+            ? this
+            : set(edit, idx, new Tuple<>(key, value));
+      }
+      added.value = true;
+      return set(edit, idx, createNode(edit, shift + BITS, tuple, tuple._1.hashCode(), new Tuple<>(key, value), hash));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Node<K, V> remove(Object edit, int shift, int hash, K key, Box removed) {
+      int bit = bitpos(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int idx = slot(bit);
+      Object o = array[idx];
+      if (o instanceof Node) {
+        Node<K, V> child = (Node<K, V>) o;
+        Node<K, V> newChild = child.remove(edit, shift + BITS, hash, key, removed);
+        if (!removed.value) {
+          return this;
+        }
+        if (newChild == null) {
+          return removeSlot(edit, bit, idx);
+        }
+        Tuple<K, V> single = newChild.singleEntry();
+        return single != null
+            ? set(edit, idx, single)
+            : newChild == child
+                ? this
+                : set(edit, idx, newChild);
+      }
+      if (!key.equals(((Tuple<K, V>) o)._1)) {
+        return this;
+      }
+      removed.value = true;
+      return removeSlot(edit, bit, idx);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Tuple<K, V> singleEntry() {
+      return array.length == 1 && !(array[0] instanceof Node)
+          ? (Tuple<K, V>) array[0]
+          : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void collect(List.Builder<Tuple<K, V>> builder) {
+      for (Object o : array) {
+        if (o instanceof Node) {
+          ((Node<K, V>) o).collect(builder);
+        } else {
+          builder.add((Tuple<K, V>) o);
+        }
+      }
+    }
+
+    private boolean isOwnedBy(Object edit) {
+      return edit != null && this.edit == edit;
+    }
+
+    private Node<K, V> set(Object edit, int idx, Object o) {
+      if (isOwnedBy(edit)) {
+        array[idx] = o;
+        return this;
+      }
+      Object[] newArray = array.clone();
+      newArray[idx] = o;
+      return new BitmapNode<>(edit, bitmap, newArray);
+    }
+
+    private Node<K, V> update(Object edit, int newBitmap, Object[] newArray) {
+      if (isOwnedBy(edit)) {
+        bitmap = newBitmap;
+        array = newArray;
+        return this;
+      }
+      return new BitmapNode<>(edit, newBitmap, newArray);
+    }
+
+    private Node<K, V> removeSlot(Object edit, int bit, int idx) {
+      if (bitmap == bit) {
+        return null;
+      }
+      Object[] newArray = new Object[array.length - 1];
+      System.arraycopy(array, 0, newArray, 0, idx);
+      System.arraycopy(array, idx + 1, newArray, idx, newArray.length - idx);
+      return update(edit, bitmap ^ bit, newArray);
+    }
+
+    private static <K, V> Node<K, V> createNode(Object edit, int shift, Tuple<K, V> t1, int hash1, Tuple<K, V> t2, int hash2) {
+      if (hash1 == hash2) {
+        return new CollisionNode<>(edit, hash1, new Object[] {t1, t2});
+      }
+      int index1 = index(hash1, shift);
+      int index2 = index(hash2, shift);
+      if (index1 == index2) {
+        return new BitmapNode<>(edit, 1 << index1, new Object[] {createNode(edit, shift + BITS, t1, hash1, t2, hash2)});
+      }
+      return new BitmapNode<>(edit, (1 << index1) | (1 << index2), index1 < index2
+          ? new Object[] {t1, t2}
+          : new Object[] {t2, t1});
+    }
+  }
+
+  private static final class CollisionNode<K, V> extends Node<K, V> {
+
+    private final Object edit;
+    private final int hash;
+    private Object[] array;
+
+    private CollisionNode(Object edit, int hash, Object[] array) {
+      this.edit = edit;
+      this.hash = hash;
+      this.array = array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int indexOf(K key) {
+      for (int i = 0; i < array.length; i++) {
+        if (key.equals(((Tuple<K, V>) array[i])._1)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Tuple<K, V> find(int shift, int hash, K key) {
+      if (hash != this.hash) {
+        return null;
+      }
+      int idx = indexOf(key);
+      return idx < 0
+          ? null
+          : (Tuple<K, V>) array[idx];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Node<K, V> add(Object edit, int shift, int hash, K key, V value, Box added) {
+      if (hash != this.hash) {
+        return new BitmapNode<K, V>(edit, bitpos(this.hash, shift), new Object[] {this})
+            .add(edit, shift, hash, key, value, added);
+      }
+      int idx = indexOf(key);
+      if (idx >= 0) {
+        if (((Tuple<K, V>) array[idx])._2 == value) {
+          return this;
+        }
+        Object[] newArray = isOwnedBy(edit) ? array : array.clone();
+        newArray[idx] = new Tuple<>(key, value);
+        return update(edit, newArray);
+      }
+      added.value = true;
+      Object[] newArray = new Object[array.length + 1];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = new Tuple<>(key, value);
+      return update(edit, newArray);
+    }
+
+    @Override
+    Node<K, V> remove(Object edit, int shift, int hash, K key, Box removed) {
+      int idx = hash == this.hash
+          ? indexOf(key)
+          : -1;
+      if (idx < 0) {
+        return this;
+      }
+      removed.value = true;
+      if (array.length == 1) {
+        return null;
+      }
+      Object[] newArray = new Object[array.length - 1];
+      System.arraycopy(array, 0, newArray, 0, idx);
+      System.arraycopy(array, idx + 1, newArray, idx, newArray.length - idx);
+      return update(edit, newArray);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Tuple<K, V> singleEntry() {
+      return array.length == 1
+          ? (Tuple<K, V>) array[0]
+          : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void collect(List.Builder<Tuple<K, V>> builder) {
+      for (Object o : array) {
+        builder.add((Tuple<K, V>) o);
+      }
+    }
+
+    private boolean isOwnedBy(Object edit) {
+      return edit != null && this.edit == edit;
+    }
+
+    private Node<K, V> update(Object edit, Object[] newArray) {
+      if (isOwnedBy(edit)) {
+        array = newArray;
+        return this;
+      }
+      return new CollisionNode<>(edit, hash, newArray);
+    }
   }
 }
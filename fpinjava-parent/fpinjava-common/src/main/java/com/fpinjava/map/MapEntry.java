@@ -6,10 +6,12 @@ import com.fpinjava.common.Result;
 public class MapEntry<K, V> implements Comparable<MapEntry<K, V>> {
   public final K key;
   public final Result<V> value;
+  private final int hash;
 
   private MapEntry(K key, Result<V> value) {
     this.key = key;
     this.value = value;
+    this.hash = key.hashCode();
   }
 
   @Override
@@ -19,13 +21,7 @@ public class MapEntry<K, V> implements Comparable<MapEntry<K, V>> {
 
   @Override
   public int compareTo(MapEntry<K, V> that) {
-    int thisHashCode = this.hashCode();
-    int thatHashCode = that.hashCode();
-    return thisHashCode < thatHashCode
-        ? -1
-        : thisHashCode > thatHashCode
-            ? 1
-            : 0;
+    return Integer.compare(this.hash, that.hash);
   }
 
   @Override
@@ -35,7 +31,7 @@ public class MapEntry<K, V> implements Comparable<MapEntry<K, V>> {
 
   @Override
   public int hashCode() {
-    return key.hashCode();
+    return hash;
   }
 
   public static <K, V> MapEntry<K, V> mapEntry(K key, V value) {
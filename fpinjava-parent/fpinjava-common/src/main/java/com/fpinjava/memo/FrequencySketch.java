@@ -0,0 +1,70 @@
+package com.fpinjava.memo;
+
+/**
+ * An approximate count of how often each key was seen recently, used by
+ * the TINY_LFU eviction to decide whether a new entry is worth keeping
+ * instead of an older one. It is a count-min sketch of four rows of byte
+ * counters, capped at 15: a key increments one counter per row, and its
+ * frequency is the smallest of them, which may be too high because of
+ * collisions, but never too low. All counters are halved once the number of
+ * increments reaches ten times the width of the rows, so that old
+ * popularity fades away.
+ *
+ * Not thread safe: used under the lock of the memoizer.
+ */
+final class FrequencySketch {
+
+  private static final int DEPTH = 4;
+  private static final int MAX_COUNT = 15;
+  private static final int MAX_WIDTH = 1 << 24;
+  private static final int[] SEEDS = {0x97cb3127, 0xb1a1f5c3, 0x5c8e3d2f, 0x2f3b8c6d};
+
+  private final byte[][] table;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(long maximumSize) {
+    int width = Integer.highestOneBit((int) Math.max(16, Math.min(maximumSize, MAX_WIDTH)) - 1) << 1;
+    this.table = new byte[DEPTH][width];
+    this.mask = width - 1;
+    this.sampleSize = 10 * width;
+  }
+
+  void increment(int hash) {
+    boolean added = false;
+    for (int i = 0; i < DEPTH; i++) {
+      int index = index(hash, i);
+      if (table[i][index] < MAX_COUNT) {
+        table[i][index]++;
+        added = true;
+      }
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  int frequency(int hash) {
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < DEPTH; i++) {
+      frequency = Math.min(frequency, table[i][index(hash, i)]);
+    }
+    return frequency;
+  }
+
+  private int index(int hash, int row) {
+    int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+    h ^= h >>> 16;
+    return h & mask;
+  }
+
+  private void reset() {
+    for (byte[] row : table) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] = (byte) (row[i] >>> 1);
+      }
+    }
+    additions /= 2;
+  }
+}
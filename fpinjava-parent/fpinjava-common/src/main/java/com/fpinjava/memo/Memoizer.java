@@ -0,0 +1,546 @@
+package com.fpinjava.memo;
+
+import com.fpinjava.common.Function;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A memoized function, caching its results in a bounded cache. Unlike a
+ * memoizer built on a map, which keeps every result forever, it may be given
+ * a maximum number of entries, evicted according to an Eviction policy, a
+ * time to live for the entries, and weak keys, so that entries are dropped
+ * once their keys are no longer used elsewhere.
+ *
+ * Concurrent calls with the same key while its value is being computed wait
+ * for that computation, so the function is called once per key (until the
+ * entry is evicted). The function is called without holding any lock, so it
+ * may itself call the memoized function with other keys. A call with a key
+ * whose value is being computed by the same thread is a recursive definition,
+ * which would wait forever, and fails with an IllegalStateException. If the
+ * function throws, the exception is thrown to the caller, and to the calls
+ * waiting for it, and nothing is cached.
+ *
+ * The cache structures are updated under a single lock, so this is meant for
+ * functions expensive enough for this cost to be negligible.
+ */
+public final class Memoizer<T, U> implements Function<T, U> {
+
+  public enum Eviction {
+    /*
+     * Evicts the least recently used entry.
+     */
+    LRU,
+    /*
+     * W-TinyLFU: new entries go to a small LRU window. Entries leaving it are
+     * only kept if their key was used more often recently than the key of
+     * the entry they would replace, as estimated by a frequency sketch. This
+     * keeps popular entries when many keys are used only once, which would
+     * flush an LRU cache.
+     */
+    TINY_LFU
+  }
+
+  public static final long UNBOUNDED = Long.MAX_VALUE;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private final Function<T, U> function;
+  private final long maximumSize;
+  private final long timeToLive;
+  private final boolean weakKeys;
+  private final LongSupplier ticker;
+
+  private final HashMap<Object, Node<U>> index = new HashMap<>();
+  private final HashMap<Object, Loading<U>> loading = new HashMap<>();
+  private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+  private final AccessQueue<U> window = new AccessQueue<>();
+  private final AccessQueue<U> probation = new AccessQueue<>();
+  private final AccessQueue<U> protectedQueue = new AccessQueue<>();
+  private final Node<U> writeOrder = new Node<>(null, 0, null, 0);
+  private final FrequencySketch sketch;
+  private final long windowMaximum;
+  private final long protectedMaximum;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long loads;
+  private long loadFailures;
+  private long loadTime;
+
+  private Memoizer(Function<T, U> function, long maximumSize, long timeToLive, boolean weakKeys,
+                   Eviction eviction, LongSupplier ticker) {
+    this.function = function;
+    this.maximumSize = maximumSize;
+    this.timeToLive = timeToLive;
+    this.weakKeys = weakKeys;
+    this.ticker = ticker;
+    boolean tinyLfu = eviction == Eviction.TINY_LFU && maximumSize != UNBOUNDED;
+    this.sketch = tinyLfu ? new FrequencySketch(maximumSize) : null;
+    this.windowMaximum = tinyLfu ? Math.max(1, maximumSize / 100) : UNBOUNDED;
+    this.protectedMaximum = (maximumSize - Math.min(windowMaximum, maximumSize)) * 4 / 5;
+    writeOrder.writePrevious = writeOrder;
+    writeOrder.writeNext = writeOrder;
+  }
+
+  /*
+   * An unbounded memoizer, which never evicts anything.
+   */
+  public static <T, U> Memoizer<T, U> memoize(Function<T, U> function) {
+    return Memoizer.<T, U>builder().build(function);
+  }
+
+  public static <T, U> Memoizer<T, U> memoize(Function<T, U> function, long maximumSize) {
+    return Memoizer.<T, U>builder().maximumSize(maximumSize).build(function);
+  }
+
+  public static <T, U> Builder<T, U> builder() {
+    return new Builder<>();
+  }
+
+  @Override
+  public U apply(T t) {
+    Objects.requireNonNull(t, "Memoized function called with null");
+    Object key = weakKeys ? new LookupKey(t) : t;
+    Loading<U> load;
+    synchronized (this) {
+      long now = timeToLive == UNBOUNDED ? 0 : ticker.getAsLong();
+      cleanUp(now);
+      Node<U> node = index.get(key);
+      if (node != null) {
+        hits++;
+        recordAccess(node);
+        return node.value;
+      }
+      load = loading.get(key);
+      if (load != null) {
+        if (load.owner == Thread.currentThread()) {
+          throw new IllegalStateException(String.format("Recursive call of a memoized function with key %s while computing its value", t));
+        }
+        hits++;
+      } else {
+        misses++;
+        if (sketch != null) {
+          sketch.increment(key.hashCode());
+        }
+        Object storedKey = weakKeys ? new WeakKey<>(t, collected) : t;
+        loading.put(storedKey, new Loading<>(storedKey));
+      }
+    }
+    return load != null
+        ? load.get()
+        : load(t, key);
+  }
+
+  /*
+   * key is the one used for lookups, which is t itself unless keys are weak.
+   */
+  private U load(T t, Object key) {
+    long start = ticker.getAsLong();
+    U value;
+    try {
+      value = function.apply(t);
+    } catch (RuntimeException | Error e) {
+      Loading<U> load;
+      synchronized (this) {
+        load = loading.remove(key);
+        loadFailures++;
+        loadTime += ticker.getAsLong() - start;
+      }
+      load.fail(e);
+      throw e;
+    }
+    Loading<U> load;
+    synchronized (this) {
+      long now = ticker.getAsLong();
+      load = loading.remove(key);
+      loads++;
+      loadTime += now - start;
+      add(new Node<>(load.key, key.hashCode(), value, now));
+    }
+    load.complete(value);
+    return value;
+  }
+
+  public synchronized void invalidate(T t) {
+    Node<U> node = index.remove(weakKeys ? new LookupKey(t) : t);
+    if (node != null) {
+      unlink(node);
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    while (writeOrder.writeNext != writeOrder) {
+      Node<U> node = writeOrder.writeNext;
+      index.remove(node.key);
+      unlink(node);
+    }
+  }
+
+  /*
+   * The number of entries, including those which expired or whose key was
+   * collected but which were not removed yet.
+   */
+  public synchronized int size() {
+    return index.size();
+  }
+
+  public synchronized Stats stats() {
+    return new Stats(hits, misses, evictions, loads, loadFailures, loadTime);
+  }
+
+  @Override
+  public String toString() {
+    return stats().toString();
+  }
+
+  /*
+   * Removes the entries whose key was collected, and the expired ones, which
+   * are the oldest, since they are all given the same time to live.
+   */
+  private void cleanUp(long now) {
+    Object reference;
+    while ((reference = collected.poll()) != null) {
+      Node<U> node = index.remove(reference);
+      if (node != null) {
+        unlink(node);
+        evictions++;
+      }
+    }
+    if (timeToLive != UNBOUNDED) {
+      while (writeOrder.writeNext != writeOrder && now - writeOrder.writeNext.writeTime >= timeToLive) {
+        evict(writeOrder.writeNext);
+      }
+    }
+  }
+
+  private void add(Node<U> node) {
+    index.put(node.key, node);
+    node.writePrevious = writeOrder.writePrevious;
+    node.writeNext = writeOrder;
+    writeOrder.writePrevious.writeNext = node;
+    writeOrder.writePrevious = node;
+    if (sketch == null) {
+      node.queue = PROBATION;
+      probation.addLast(node);
+      while (index.size() > maximumSize) {
+        evict(probation.first());
+      }
+    } else {
+      node.queue = WINDOW;
+      window.addLast(node);
+      while (window.size > windowMaximum) {
+        Node<U> candidate = window.first();
+        window.remove(candidate);
+        candidate.queue = PROBATION;
+        probation.addLast(candidate);
+        if (index.size() > maximumSize) {
+          Node<U> victim = probation.first() != candidate || protectedQueue.size == 0
+              ? probation.first()
+              : protectedQueue.first();
+          evict(victim != candidate && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)
+              ? victim
+              : candidate);
+        }
+      }
+    }
+  }
+
+  private void recordAccess(Node<U> node) {
+    if (sketch == null) {
+      probation.moveToLast(node);
+      return;
+    }
+    sketch.increment(node.hash);
+    switch (node.queue) {
+      case WINDOW:
+        window.moveToLast(node);
+        break;
+      case PROBATION:
+        probation.remove(node);
+        node.queue = PROTECTED;
+        protectedQueue.addLast(node);
+        while (protectedQueue.size > protectedMaximum) {
+          Node<U> demoted = protectedQueue.first();
+          protectedQueue.remove(demoted);
+          demoted.queue = PROBATION;
+          probation.addLast(demoted);
+        }
+        break;
+      default:
+        protectedQueue.moveToLast(node);
+    }
+  }
+
+  private void evict(Node<U> node) {
+    index.remove(node.key);
+    unlink(node);
+    evictions++;
+  }
+
+  private void unlink(Node<U> node) {
+    queue(node).remove(node);
+    node.writePrevious.writeNext = node.writeNext;
+    node.writeNext.writePrevious = node.writePrevious;
+  }
+
+  private AccessQueue<U> queue(Node<U> node) {
+    switch (node.queue) {
+      case WINDOW:
+        return window;
+      case PROBATION:
+        return probation;
+      default:
+        return protectedQueue;
+    }
+  }
+
+  /*
+   * An entry, linked in two doubly linked lists: its access queue, and the
+   * list of all entries in the order they were written.
+   */
+  private static final class Node<U> {
+
+    private final Object key;
+    private final int hash;
+    private final U value;
+    private final long writeTime;
+    private int queue;
+    private Node<U> previous;
+    private Node<U> next;
+    private Node<U> writePrevious;
+    private Node<U> writeNext;
+
+    private Node(Object key, int hash, U value, long writeTime) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.writeTime = writeTime;
+    }
+  }
+
+  /*
+   * A list of entries from the least to the most recently used.
+   */
+  private static final class AccessQueue<U> {
+
+    private final Node<U> sentinel = new Node<>(null, 0, null, 0);
+    private long size;
+
+    private AccessQueue() {
+      sentinel.previous = sentinel;
+      sentinel.next = sentinel;
+    }
+
+    private Node<U> first() {
+      return sentinel.next;
+    }
+
+    private void addLast(Node<U> node) {
+      node.previous = sentinel.previous;
+      node.next = sentinel;
+      sentinel.previous.next = node;
+      sentinel.previous = node;
+      size++;
+    }
+
+    private void remove(Node<U> node) {
+      node.previous.next = node.next;
+      node.next.previous = node.previous;
+      size--;
+    }
+
+    private void moveToLast(Node<U> node) {
+      remove(node);
+      addLast(node);
+    }
+  }
+
+  private static final class Loading<U> {
+
+    private final Object key;
+    private final Thread owner = Thread.currentThread();
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private U value;
+    private Throwable error;
+
+    private Loading(Object key) {
+      this.key = key;
+    }
+
+    private void complete(U value) {
+      this.value = value;
+      latch.countDown();
+    }
+
+    private void fail(Throwable error) {
+      this.error = error;
+      latch.countDown();
+    }
+
+    private U get() {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for a memoized value", e);
+      }
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      }
+      if (error != null) {
+        throw (Error) error;
+      }
+      return value;
+    }
+  }
+
+  /*
+   * Weak keys are compared by identity, since a key equal to a collected one
+   * can't be used to look it up anymore.
+   */
+  private static final class WeakKey<T> extends WeakReference<T> {
+
+    private final int hash;
+
+    private WeakKey(T t, ReferenceQueue<T> queue) {
+      super(t, queue);
+      this.hash = System.identityHashCode(t);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o == this || o instanceof LookupKey && ((LookupKey) o).key == get();
+    }
+  }
+
+  private static final class LookupKey {
+
+    private final Object key;
+
+    private LookupKey(Object key) {
+      this.key = key;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof WeakKey && ((WeakKey<?>) o).get() == key;
+    }
+  }
+
+  public static final class Stats {
+
+    public final long hits;
+    public final long misses;
+    public final long evictions;
+    public final long loads;
+    public final long loadFailures;
+    public final long totalLoadTime;
+
+    private Stats(long hits, long misses, long evictions, long loads, long loadFailures, long totalLoadTime) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.loads = loads;
+      this.loadFailures = loadFailures;
+      this.totalLoadTime = totalLoadTime;
+    }
+
+    /*
+     * Calls waiting for a value being computed by another call count as hits.
+     */
+    public double hitRate() {
+      long calls = hits + misses;
+      return calls == 0
+          ? 1.0
+          : (double) hits / calls;
+    }
+
+    /*
+     * In nanoseconds.
+     */
+    public double averageLoadTime() {
+      long count = loads + loadFailures;
+      return count == 0
+          ? 0.0
+          : (double) totalLoadTime / count;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Memoizer.Stats(hits: %s, misses: %s, hit rate: %.3f, evictions: %s, loads: %s, load failures: %s, average load time: %.0fns)",
+          hits, misses, hitRate(), evictions, loads, loadFailures, averageLoadTime());
+    }
+  }
+
+  public static final class Builder<T, U> {
+
+    private long maximumSize = UNBOUNDED;
+    private long timeToLive = UNBOUNDED;
+    private boolean weakKeys;
+    private Eviction eviction = Eviction.LRU;
+    private LongSupplier ticker = System::nanoTime;
+
+    private Builder() {}
+
+    public Builder<T, U> maximumSize(long maximumSize) {
+      if (maximumSize < 1) {
+        throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+      }
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    public Builder<T, U> eviction(Eviction eviction) {
+      this.eviction = Objects.requireNonNull(eviction);
+      return this;
+    }
+
+    /*
+     * Entries expire once this duration has elapsed since their value was
+     * computed.
+     */
+    public Builder<T, U> expireAfterWrite(long duration, TimeUnit unit) {
+      if (duration <= 0) {
+        throw new IllegalArgumentException("Time to live must be positive: " + duration);
+      }
+      this.timeToLive = unit.toNanos(duration);
+      return this;
+    }
+
+    public Builder<T, U> weakKeys() {
+      this.weakKeys = true;
+      return this;
+    }
+
+    /*
+     * The source of time, in nanoseconds, System.nanoTime by default.
+     */
+    public Builder<T, U> ticker(LongSupplier ticker) {
+      this.ticker = Objects.requireNonNull(ticker);
+      return this;
+    }
+
+    public Memoizer<T, U> build(Function<T, U> function) {
+      return new Memoizer<>(Objects.requireNonNull(function), maximumSize, timeToLive, weakKeys, eviction, ticker);
+    }
+  }
+}
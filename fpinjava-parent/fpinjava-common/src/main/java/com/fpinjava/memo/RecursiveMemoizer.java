@@ -0,0 +1,147 @@
+package com.fpinjava.memo;
+
+import com.fpinjava.common.Function;
+import com.fpinjava.common.TailCall;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.fpinjava.common.TailCall.ret;
+import static com.fpinjava.common.TailCall.sus;
+
+/**
+ * A memoized recursive function, such as the Fibonacci function used for
+ * dynamic programming. Memoizing such a function by wrapping it in a
+ * memoizer based on ConcurrentHashMap.computeIfAbsent does not work, because
+ * the function would update the map from inside computeIfAbsent. And even
+ * with a working cache, the recursion would overflow the stack for large
+ * arguments.
+ *
+ * Here, the function is given in open recursive form: a function receiving
+ * the memoized function itself ("self") and returning the function body.
+ * Both return a TailCall, so that recursive calls are composed with map and
+ * flatMap instead of being made on the Java stack:
+ *
+ *   RecursiveMemoizer.memoize(self -> n -> n < 2
+ *       ? ret(BigInteger.valueOf(n))
+ *       : self.apply(n - 1).flatMap(x -> self.apply(n - 2).map(x::add)));
+ *
+ * Each value is computed once and stored in a table, looked up before
+ * computing it. The table is kept between calls. It is a hash table by
+ * default, or an array indexed by the key when the keys are the integers of
+ * a known range (see memoizeRange), which is faster and more compact when
+ * most of the range will be used.
+ *
+ * The table may be used from several threads. Two threads needing the same
+ * missing value at the same time may both compute it, but no thread ever
+ * waits for another one. Null values are not cached.
+ */
+public final class RecursiveMemoizer<T, U> implements Function<T, U> {
+
+  private final Function<T, TailCall<U>> body;
+  private final Table<T, U> table;
+  private final Function<T, TailCall<U>> self = this::call;
+
+  private RecursiveMemoizer(Function<Function<T, TailCall<U>>, Function<T, TailCall<U>>> f, Table<T, U> table) {
+    this.table = table;
+    this.body = f.apply(self);
+  }
+
+  @Override
+  public U apply(T t) {
+    return call(t).eval();
+  }
+
+  public void invalidateAll() {
+    table.clear();
+  }
+
+  private TailCall<U> call(T t) {
+    U cached = table.get(t);
+    return cached != null
+        ? ret(cached)
+        : sus(() -> body.apply(t)).map(u -> {
+            table.put(t, u);
+            return u;
+          });
+  }
+
+  public static <T, U> RecursiveMemoizer<T, U> memoize(Function<Function<T, TailCall<U>>, Function<T, TailCall<U>>> f) {
+    return new RecursiveMemoizer<>(f, new HashTable<>());
+  }
+
+  /*
+   * Values for keys from from (inclusive) to to (exclusive) are stored in an
+   * array. Values for other keys are computed but not stored.
+   */
+  public static <U> RecursiveMemoizer<Integer, U> memoizeRange(int from, int to,
+                                                               Function<Function<Integer, TailCall<U>>, Function<Integer, TailCall<U>>> f) {
+    if (to < from) {
+      throw new IllegalArgumentException(String.format("Invalid range: %s to %s", from, to));
+    }
+    return new RecursiveMemoizer<>(f, new ArrayTable<>(from, to));
+  }
+
+  private static abstract class Table<T, U> {
+
+    abstract U get(T t);
+
+    abstract void put(T t, U u);
+
+    abstract void clear();
+  }
+
+  private static class HashTable<T, U> extends Table<T, U> {
+
+    private final ConcurrentHashMap<T, U> map = new ConcurrentHashMap<>();
+
+    @Override
+    U get(T t) {
+      return map.get(t);
+    }
+
+    @Override
+    void put(T t, U u) {
+      if (u != null) {
+        map.putIfAbsent(t, u);
+      }
+    }
+
+    @Override
+    void clear() {
+      map.clear();
+    }
+  }
+
+  private static class ArrayTable<U> extends Table<Integer, U> {
+
+    private final int from;
+    private final AtomicReferenceArray<U> values;
+
+    private ArrayTable(int from, int to) {
+      this.from = from;
+      this.values = new AtomicReferenceArray<>(to - from);
+    }
+
+    @Override
+    U get(Integer t) {
+      int index = t - from;
+      return index >= 0 && index < values.length() ? values.get(index) : null;
+    }
+
+    @Override
+    void put(Integer t, U u) {
+      int index = t - from;
+      if (index >= 0 && index < values.length()) {
+        values.lazySet(index, u);
+      }
+    }
+
+    @Override
+    void clear() {
+      for (int i = 0; i < values.length(); i++) {
+        values.set(i, null);
+      }
+    }
+  }
+}
@@ -2,7 +2,9 @@ package com.fpinjava.state;
 
 import java.util.Random;
 
+import com.fpinjava.common.DoubleList;
 import com.fpinjava.common.Function;
+import com.fpinjava.common.IntList;
 import com.fpinjava.common.List;
 import com.fpinjava.common.TailCall;
 import com.fpinjava.common.Tuple;
@@ -134,6 +136,30 @@ public class SimpleRNG {
     return TailCall.sus(() -> doubles(count - 1, t1._2, xs.cons(t1._1)));
   }
 
+  /*
+   * Unboxed versions of ints2 and doubles. As with these, the output list is
+   * in reverse order of generation.
+   */
+  public static Tuple<IntList, RNG> intList(int count, RNG rng) {
+    IntList xs = IntList.empty();
+    for (int i = 0; i < count; i++) {
+      Tuple<Integer, RNG> t = rng.nextInt();
+      xs = xs.cons(t._1);
+      rng = t._2;
+    }
+    return new Tuple<>(xs, rng);
+  }
+
+  public static Tuple<DoubleList, RNG> doubleList(int count, RNG rng) {
+    DoubleList xs = DoubleList.empty();
+    for (int i = 0; i < count; i++) {
+      Tuple<Double, RNG> t = doubleRnd(rng);
+      xs = xs.cons(t._1);
+      rng = t._2;
+    }
+    return new Tuple<>(xs, rng);
+  }
+
   public static Rand<Integer> intRnd = RNG::nextInt;
 
   public static <A> Rand<A> unit(A a) {
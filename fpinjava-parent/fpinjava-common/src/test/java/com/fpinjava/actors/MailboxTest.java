@@ -0,0 +1,353 @@
+package com.fpinjava.actors;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Result;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MailboxTest {
+
+  @Test
+  public void testSerialMailboxKeepsOrderPerProducer() throws InterruptedException {
+    int producers = 4;
+    int messages = 50_000;
+    int[] last = new int[producers];
+    AtomicInteger concurrent = new AtomicInteger();
+    AtomicInteger errors = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(producers * messages);
+    Mailbox<Integer, Integer> mailbox = Mailbox.serial(new Dispatcher(4, 16), (m, p) -> {
+      if (concurrent.incrementAndGet() != 1 || m != last[p] + 1) {
+        errors.incrementAndGet();
+      }
+      last[p] = m;
+      concurrent.decrementAndGet();
+      done.countDown();
+    });
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      new Thread(() -> {
+        for (int i = 1; i <= messages; i++) {
+          mailbox.post(i, producer);
+        }
+      }).start();
+    }
+    assertTrue(done.await(30, TimeUnit.SECONDS));
+    assertEquals(0, errors.get());
+  }
+
+  @Test
+  public void testThroughputLetsOtherMailboxesRun() throws InterruptedException {
+    Dispatcher dispatcher = new Dispatcher(1, 2);
+    ConcurrentLinkedQueue<String> trace = new ConcurrentLinkedQueue<>();
+    CountDownLatch done = new CountDownLatch(8);
+    Mailbox<Integer, String> a = Mailbox.serial(dispatcher, (m, s) -> { trace.add(s); done.countDown(); });
+    Mailbox<Integer, String> b = Mailbox.serial(dispatcher, (m, s) -> { trace.add(s); done.countDown(); });
+    CountDownLatch gate = new CountDownLatch(1);
+    Mailbox<Integer, String> blocker = Mailbox.serial(dispatcher, (m, s) -> {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    blocker.post(0, "");
+    for (int i = 0; i < 4; i++) {
+      a.post(i, "a");
+      b.post(i, "b");
+    }
+    gate.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals("a, a, b, b, a, a, b, b", List.fromCollection(trace).mkStr(", "));
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testCloseAndFailures() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(2);
+    Mailbox<Integer, Result<Actor<Integer>>> mailbox = Mailbox.serial(Dispatcher.defaultDispatcher(), (m, s) -> {
+      done.countDown();
+      if (m == 0) {
+        throw new IllegalArgumentException("expected in test");
+      }
+    });
+    mailbox.post(0, Actor.noSender());
+    mailbox.post(1, Actor.noSender());
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    mailbox.close();
+    assertTrue(mailbox.isClosed());
+  }
+
+  @Test
+  public void testActors() throws InterruptedException {
+    int messages = 100_000;
+    CountDownLatch done = new CountDownLatch(1);
+    AbstractActor<Integer> counter = new AbstractActor<Integer>("counter", Actor.Type.SERIAL) {
+      private int count;
+
+      @Override
+      public void onReceive(Integer message, Result<Actor<Integer>> sender) {
+        if (++count == messages) {
+          done.countDown();
+        }
+      }
+    };
+    AbstractActor<Integer> forwarder = new AbstractActor<Integer>("forwarder", Actor.Type.PARALLEL) {
+      @Override
+      public void onReceive(Integer message, Result<Actor<Integer>> sender) {
+        counter.tell(message, self());
+      }
+    };
+    for (int i = 0; i < messages; i++) {
+      forwarder.tell(i);
+    }
+    assertTrue(done.await(30, TimeUnit.SECONDS));
+    forwarder.shutdown();
+    counter.shutdown();
+  }
+
+  private static Mailbox<Integer, String> gated(Dispatcher dispatcher, CountDownLatch gate, ConcurrentLinkedQueue<Integer> handled, int capacity, Mailbox.Overflow overflow) {
+    return Mailbox.serial(dispatcher, (m, s) -> {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      handled.add(m);
+    }, capacity, overflow);
+  }
+
+  @Test
+  public void testFailFast() throws InterruptedException {
+    Dispatcher dispatcher = new Dispatcher(1, 16);
+    CountDownLatch gate = new CountDownLatch(1);
+    ConcurrentLinkedQueue<Integer> handled = new ConcurrentLinkedQueue<>();
+    Mailbox<Integer, String> mailbox = gated(dispatcher, gate, handled, 2, Mailbox.Overflow.FAIL_FAST);
+    assertTrue(mailbox.post(0, "").isSuccess());
+    while (mailbox.size() > 0) {
+      Thread.sleep(1);
+    }
+    assertTrue(mailbox.post(1, "").isSuccess());
+    assertTrue(mailbox.post(2, "").isSuccess());
+    assertTrue(mailbox.post(3, "").isFailure());
+    gate.countDown();
+    while (handled.size() < 3) {
+      Thread.sleep(1);
+    }
+    assertEquals("0, 1, 2", List.fromCollection(handled).mkStr(", "));
+    mailbox.close();
+    assertTrue(mailbox.post(4, "").isFailure());
+    ActorMetrics.Snapshot snapshot = mailbox.metrics().snapshot();
+    assertEquals(3, snapshot.enqueued);
+    assertEquals(3, snapshot.dequeued);
+    assertEquals(2, snapshot.rejected);
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testDropOldest() throws InterruptedException {
+    Dispatcher dispatcher = new Dispatcher(1, 16);
+    CountDownLatch gate = new CountDownLatch(1);
+    ConcurrentLinkedQueue<Integer> handled = new ConcurrentLinkedQueue<>();
+    Mailbox<Integer, String> mailbox = gated(dispatcher, gate, handled, 2, Mailbox.Overflow.DROP_OLDEST);
+    mailbox.post(0, "");
+    while (mailbox.size() > 0) {
+      Thread.sleep(1);
+    }
+    for (int i = 1; i <= 5; i++) {
+      assertTrue(mailbox.post(i, "").isSuccess());
+    }
+    gate.countDown();
+    while (mailbox.metrics().snapshot().dequeued + mailbox.metrics().snapshot().dropped < 6) {
+      Thread.sleep(1);
+    }
+    assertEquals("0, 4, 5", List.fromCollection(handled).mkStr(", "));
+    assertEquals(3, mailbox.metrics().snapshot().dropped);
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testDropOldestStaysBounded() throws InterruptedException {
+    Dispatcher dispatcher = new Dispatcher(1, 16);
+    CountDownLatch gate = new CountDownLatch(1);
+    ConcurrentLinkedQueue<Integer> handled = new ConcurrentLinkedQueue<>();
+    Mailbox<Integer, String> serial = gated(dispatcher, gate, handled, 10, Mailbox.Overflow.DROP_OLDEST);
+    Mailbox<Integer, String> parallel = Mailbox.parallel(dispatcher, (m, s) -> handled.add(m), 10, Mailbox.Overflow.DROP_OLDEST);
+    serial.post(-1, "");
+    while (serial.size() > 0) {
+      Thread.sleep(1);
+    }
+    for (int i = 0; i < 100_000; i++) {
+      serial.post(i, "");
+      parallel.post(i, "");
+      assertTrue(serial.size() <= 10);
+      assertTrue(parallel.size() <= 10);
+    }
+    serial.postAll(List.range(100_000, 100_004), "");
+    parallel.postAll(List.range(100_000, 100_004), "");
+    assertEquals(10, serial.size());
+    assertEquals(10, parallel.size());
+    assertEquals(99_994, serial.metrics().snapshot().dropped);
+    assertEquals(99_994, parallel.metrics().snapshot().dropped);
+    gate.countDown();
+    while (handled.size() < 21) {
+      Thread.sleep(1);
+    }
+    Thread.sleep(50);
+    assertEquals(21, handled.size());
+    assertEquals(0, serial.size());
+    assertEquals(0, parallel.size());
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testBlock() throws InterruptedException {
+    Dispatcher dispatcher = new Dispatcher(1, 16);
+    CountDownLatch gate = new CountDownLatch(1);
+    ConcurrentLinkedQueue<Integer> handled = new ConcurrentLinkedQueue<>();
+    Mailbox<Integer, String> mailbox = gated(dispatcher, gate, handled, 2, Mailbox.Overflow.BLOCK);
+    CountDownLatch posted = new CountDownLatch(1);
+    new Thread(() -> {
+      for (int i = 0; i < 10; i++) {
+        mailbox.post(i, "");
+      }
+      posted.countDown();
+    }).start();
+    assertFalse(posted.await(200, TimeUnit.MILLISECONDS));
+    assertTrue(mailbox.size() <= 2);
+    gate.countDown();
+    assertTrue(posted.await(10, TimeUnit.SECONDS));
+    while (handled.size() < 10) {
+      Thread.sleep(1);
+    }
+    assertEquals(List.range(0, 10), List.fromCollection(handled));
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testMetrics() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1000);
+    AbstractActor<Integer> actor = new AbstractActor<Integer>("metrics", Actor.Type.SERIAL) {
+      @Override
+      public void onReceive(Integer message, Result<Actor<Integer>> sender) {
+        getContext().become((m, s) -> done.countDown());
+        done.countDown();
+      }
+    };
+    ActorMetrics.Snapshot start = actor.metrics().snapshot();
+    for (int i = 0; i < 1000; i++) {
+      actor.tell(i);
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    Thread.sleep(10);
+    ActorMetrics.Snapshot end = actor.metrics().snapshot();
+    assertEquals(1000, end.enqueued);
+    assertEquals(1000, end.dequeued);
+    assertEquals(1, end.becomes);
+    assertEquals(0, end.queueDepth);
+    assertTrue(end.enqueueRate(start) > 0);
+    assertEquals(1000, Arrays.stream(end.histogram()).sum());
+    assertTrue(end.processingTimePercentile(0.5) <= end.processingTimePercentile(0.99));
+    assertEquals(0, ActorMetrics.bucket(0));
+    assertEquals(1, ActorMetrics.bucket(1));
+    assertEquals(11, ActorMetrics.bucket(1024));
+  }
+
+  @Test
+  public void testVirtualActors() throws InterruptedException {
+    assertEquals(Dispatcher.virtualThreads(16).isSuccess(), Dispatcher.virtualDispatcher().isVirtual());
+    assertTrue(Dispatcher.virtualThreads(0).isFailure());
+    CountDownLatch done = new CountDownLatch(10_000);
+    AbstractActor<Integer> actor = new AbstractActor<Integer>("virtual", Actor.Type.VIRTUAL) {
+      private int expected;
+
+      @Override
+      public void onReceive(Integer message, Result<Actor<Integer>> sender) {
+        if (message == expected++) {
+          done.countDown();
+        }
+      }
+    };
+    for (int i = 0; i < 10_000; i++) {
+      actor.tell(i);
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testPostAll() throws InterruptedException {
+    Dispatcher dispatcher = new Dispatcher(1, 16);
+    CountDownLatch gate = new CountDownLatch(1);
+    ConcurrentLinkedQueue<List<Integer>> chunks = new ConcurrentLinkedQueue<>();
+    Mailbox<Integer, String> mailbox = Mailbox.serial(dispatcher, (m, s) -> chunks.add(List.list(m)), (ms, s) -> {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      chunks.add(ms);
+    }, () -> true, 10, Mailbox.Overflow.FAIL_FAST);
+    assertTrue(mailbox.postAll(List.list(0), "").isSuccess());
+    while (mailbox.size() > 0) {
+      Thread.sleep(1);
+    }
+    assertTrue(mailbox.postAll(List.range(1, 5), "a").isSuccess());
+    assertTrue(mailbox.postAll(List.range(5, 12), "a").isFailure());
+    for (int i = 5; i < 8; i++) {
+      mailbox.post(i, "a");
+    }
+    mailbox.post(8, "b");
+    mailbox.post(9, "b");
+    gate.countDown();
+    while (mailbox.metrics().snapshot().dequeued < 10) {
+      Thread.sleep(1);
+    }
+    assertEquals("[0, NIL], [1, 2, 3, 4, NIL], [5, 6, 7, NIL], [8, 9, NIL]", List.fromCollection(chunks).mkStr(", "));
+    assertEquals(7, mailbox.metrics().snapshot().rejected);
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testTellAll() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    AtomicInteger total = new AtomicInteger();
+    AbstractActor<Integer> actor = new AbstractActor<Integer>("batch", Actor.Type.SERIAL) {
+      @Override
+      public void onReceive(Integer message, Result<Actor<Integer>> sender) {
+        getContext().become(new Sum(message));
+      }
+
+      class Sum implements BatchMessageProcessor<Integer> {
+        private final int sum;
+
+        Sum(int sum) {
+          this.sum = sum;
+        }
+
+        @Override
+        public void processAll(List<Integer> messages, Result<Actor<Integer>> sender) {
+          int result = messages.foldLeft(sum, acc -> m -> acc + m);
+          if (messages.exists(m -> m == 0)) {
+            total.set(result);
+            done.countDown();
+          }
+          getContext().become(new Sum(result));
+        }
+      }
+    };
+    actor.tell(1);
+    actor.tellAll(List.range(1, 1000));
+    actor.tellAll(List.list());
+    actor.tell(0);
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(1 + 999 * 1000 / 2, total.get());
+    assertTrue(actor.metrics().snapshot().becomes < 1000);
+    actor.shutdown();
+  }
+}
@@ -0,0 +1,65 @@
+package com.fpinjava.actors;
+
+import com.fpinjava.common.List;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReorderBufferTest {
+
+  @Test
+  public void testInOrder() {
+    ReorderBuffer<String> buffer = new ReorderBuffer<>();
+    assertEquals("[a, NIL]", buffer.add(0, "a").toString());
+    assertEquals("[b, NIL]", buffer.add(1, "b").toString());
+    assertEquals(2, buffer.next());
+    assertEquals(0, buffer.maxPending());
+  }
+
+  @Test
+  public void testOutOfOrder() {
+    ReorderBuffer<String> buffer = new ReorderBuffer<>(10);
+    assertTrue(buffer.add(12, "c").isEmpty());
+    assertTrue(buffer.add(11, "b").isEmpty());
+    assertTrue(buffer.add(14, "e").isEmpty());
+    assertEquals(3, buffer.pending());
+    assertEquals("[a, b, c, NIL]", buffer.add(10, "a").toString());
+    assertEquals(1, buffer.pending());
+    assertEquals("[d, e, NIL]", buffer.add(13, "d").toString());
+    assertEquals(0, buffer.pending());
+    assertEquals(3, buffer.maxPending());
+    assertEquals(15, buffer.next());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicate() {
+    ReorderBuffer<String> buffer = new ReorderBuffer<>();
+    buffer.add(0, "a");
+    buffer.add(0, "a");
+  }
+
+  @Test
+  public void testShuffledWithGrowth() {
+    int size = 10_000;
+    Integer[] sequences = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      sequences[i] = i;
+    }
+    Random random = new Random(42);
+    for (int i = size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      Integer tmp = sequences[i];
+      sequences[i] = sequences[j];
+      sequences[j] = tmp;
+    }
+    ReorderBuffer<Integer> buffer = new ReorderBuffer<>();
+    List<Integer> result = List.list();
+    for (Integer sequence : sequences) {
+      result = buffer.add(sequence, sequence).foldLeft(result, acc -> acc::cons);
+    }
+    assertEquals(List.range(0, size), result.reverse());
+    assertEquals(0, buffer.pending());
+  }
+}
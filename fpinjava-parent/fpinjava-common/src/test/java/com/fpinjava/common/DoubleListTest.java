@@ -0,0 +1,42 @@
+package com.fpinjava.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DoubleListTest {
+
+  @Test
+  public void testFolds() {
+    DoubleList list = DoubleList.list(0.5, 1.5, 2.0);
+    assertEquals(3, list.length());
+    assertEquals(4.0, list.foldLeft(0.0, (acc, x) -> acc + x), 0.0);
+    assertEquals(-3.0, DoubleList.list(1.0, 2.0).foldLeft(0.0, (acc, x) -> acc - x), 0.0);
+    assertEquals(-1.0, DoubleList.list(1.0, 2.0).foldRight(0.0, (x, acc) -> x - acc), 0.0);
+  }
+
+  @Test
+  public void testMap() {
+    DoubleList list = DoubleList.list(1.0, 4.0, 9.0);
+    assertEquals(DoubleList.list(1.0, 2.0, 3.0), list.map(Math::sqrt));
+    assertEquals(DoubleList.list(9.0, 4.0, 1.0), list.reverse());
+    assertTrue(DoubleList.empty().map(x -> x + 1).isEmpty());
+  }
+
+  @Test
+  public void testEqualsAndHashCode() {
+    DoubleList list = DoubleList.list(0.1, 0.2, Double.NaN);
+    assertEquals(list, DoubleList.fromList(List.list(0.1, 0.2, Double.NaN)));
+    assertEquals(list.hashCode(), DoubleList.fromList(List.list(0.1, 0.2, Double.NaN)).hashCode());
+    assertNotEquals(list, DoubleList.list(0.1, 0.2));
+    assertNotEquals(DoubleList.list(0.0), DoubleList.list(-0.0));
+    assertNotEquals(DoubleList.list(0.0).hashCode(), DoubleList.list(-0.0).hashCode());
+    assertNotEquals(list, LongList.list(1, 2, 3));
+    assertEquals(DoubleList.empty(), DoubleList.list());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testHeadEmpty() {
+    DoubleList.empty().head();
+  }
+}
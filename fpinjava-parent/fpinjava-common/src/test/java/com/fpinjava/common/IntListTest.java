@@ -0,0 +1,69 @@
+package com.fpinjava.common;
+
+import com.fpinjava.state.SimpleRNG;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IntListTest {
+
+  @Test
+  public void testFolds() {
+    IntList list = IntList.range(0, 200_000);
+    assertEquals(200_000, list.length());
+    assertEquals(199_990_000, list.filter(x -> x < 20_000).sum());
+    assertEquals(321, IntList.list(1, 2, 3).foldRight(0, (x, acc) -> acc * 10 + x));
+    assertEquals(123, IntList.list(1, 2, 3).foldLeft(0, (acc, x) -> acc * 10 + x));
+  }
+
+  @Test
+  public void testMapFilter() {
+    IntList list = IntList.range(0, 10);
+    assertEquals(IntList.list(0, 4, 16, 36, 64), list.filter(x -> x % 2 == 0).map(x -> x * x));
+    assertSame(list, list.filter(x -> true));
+    assertTrue(list.exists(x -> x == 9));
+    assertFalse(list.forAll(x -> x < 9));
+  }
+
+  @Test
+  public void testMaxMinSort() {
+    IntList list = IntList.list(3, -7, 12, 0, 5);
+    assertEquals(12, list.max());
+    assertEquals(-7, list.min());
+    assertEquals(Integer.valueOf(12), list.maxOption().successValue());
+    assertTrue(IntList.empty().maxOption().isEmpty());
+    assertEquals(IntList.list(-7, 0, 3, 5, 12), list.sort());
+    assertEquals(IntList.list(5, 0, 12, -7, 3), list.reverse());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMaxEmpty() {
+    IntList.empty().max();
+  }
+
+  @Test
+  public void testListBridges() {
+    List<Integer> list = List.range(0, 1_000);
+    assertEquals(IntList.range(0, 1_000), IntList.fromList(list));
+    assertEquals(list, IntList.fromList(list).toList());
+    assertEquals(List.max(list), IntList.fromList(list).max());
+    assertEquals("[1, 2, 3, NIL]", IntList.list(1, 2, 3).toString());
+    assertEquals(List.list(1, 2, 3).toString(), IntList.list(1, 2, 3).toString());
+    assertEquals("[NIL]", IntList.empty().toString());
+  }
+
+  @Test
+  public void testLongAndDoubleLists() {
+    assertEquals(19_999_900_000L, LongList.range(0, 200_000).sum());
+    assertEquals(LongList.list(1L, 2L, 3L), LongList.fromList(List.list(3L, 1L, 2L)).sort());
+    assertEquals(List.list(2L, 4L), LongList.list(1L, 2L).map(x -> x * 2).toList());
+    DoubleList doubles = SimpleRNG.doubleList(10_000, new SimpleRNG.Simple(3))._1;
+    assertEquals(10_000, doubles.length());
+    assertTrue(doubles.forAll(x -> x >= 0.0 && x < 1.0));
+    assertEquals(doubles.toList().length(), DoubleList.fromList(doubles.toList()).length());
+    assertEquals(DoubleList.list(0.5, 1.5), DoubleList.list(1.5, 0.5).sort());
+    assertEquals(1.5, DoubleList.list(1.5, 0.5, -1.0).max(), 0.0);
+    assertEquals(1.0, DoubleList.list(1.5, 0.5, -1.0).sum(), 0.0);
+    assertEquals(SimpleRNG.ints2(100, new SimpleRNG.Simple(5))._1, SimpleRNG.intList(100, new SimpleRNG.Simple(5))._1.toList());
+  }
+}
@@ -1,5 +1,108 @@
+package com.fpinjava.common;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.*;
 
 public class ListTest {
 
-}
\ No newline at end of file
+  @Test
+  public void testBuilder() {
+    List<Integer> list = List.<Integer>builder().add(1).add(2).add(3).build();
+    assertEquals(List.list(1, 2, 3), list);
+    assertEquals(3, list.length());
+    assertEquals(List.list(), List.builder().build());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBuilderUsedAfterBuild() {
+    List.Builder<Integer> builder = List.builder();
+    builder.add(1).build();
+    builder.add(2);
+  }
+
+  @Test
+  public void testRangeUnfoldFill() {
+    assertEquals(List.list(0, 1, 2, 3, 4), List.range(0, 5));
+    assertEquals(List.list(), List.range(5, 0));
+    assertEquals(List.list(1, 2, 4, 8), List.unfold(1, i -> i < 10 ? Result.success(new Tuple<>(i, i * 2)) : Result.empty()));
+    assertEquals(List.list("a", "a", "a"), List.fill(3, () -> "a"));
+    assertEquals(List.list(1, 2, 4), List.iterate(1, x -> x * 2, 3));
+    assertEquals(100_000, List.range(0, 100_000).length());
+  }
+
+  @Test
+  public void testFromCollection() {
+    assertEquals(List.list("a", "b", "c"), List.fromCollection(Arrays.asList("a", "b", "c")));
+  }
+
+  @Test
+  public void testUncurriedFolds() {
+    List<Integer> list = List.range(0, 1_000_000);
+    assertEquals(Long.valueOf(499_999_500_000L), list.foldLeft(0L, (acc, x) -> acc + x));
+    assertEquals(list.foldLeft(0L, acc -> x -> acc + x), list.foldLeft(0L, (acc, x) -> acc + x));
+    assertEquals("123", List.list(1, 2, 3).foldRight("", (x, acc) -> x + acc));
+    assertEquals(List.list(1, 2, 3).foldRight("", x -> acc -> x + acc), List.list(1, 2, 3).foldRight("", (x, acc) -> x + acc));
+    assertEquals(999_999, List.max(list));
+    assertEquals("1, 2, 3", List.list(1, 2, 3).mkStr(", "));
+  }
+
+  @Test
+  public void testCurryAdapters() {
+    Function2<Integer, Integer, Integer> f = (x, y) -> x - y;
+    assertEquals(Integer.valueOf(3), f.curried().apply(5).apply(2));
+    assertEquals(Integer.valueOf(3), Function2.uncurried(f.curried()).apply(5, 2));
+    Function3<Integer, Integer, Integer, Integer> g = (x, y, z) -> x * 100 + y * 10 + z;
+    assertEquals(Integer.valueOf(123), g.curried().apply(1).apply(2).apply(3));
+    assertEquals(Integer.valueOf(123), Function3.uncurried(g.curried()).apply(1, 2, 3));
+    assertEquals(Integer.valueOf(5), Result.success(2).foldLeft(3, (acc, x) -> acc + x));
+    assertEquals(Integer.valueOf(3), Result.<Integer>empty().foldRight(3, (x, acc) -> acc + x));
+  }
+
+  @Test
+  public void testForkJoinParallelOperations() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<Integer> list = List.range(0, 100_000);
+      assertEquals(Long.valueOf(4_999_950_000L), list.parFoldLeft(pool, 0L, (acc, x) -> acc + x, (a, b) -> a + b).successValue());
+      assertEquals(list.map(x -> x * 2), list.parMap(pool, x -> x * 2).successValue());
+      assertEquals(list.filter(x -> x % 3 == 0), list.parFilter(pool, x -> x % 3 == 0).successValue());
+      assertSame(list, list.parFilter(pool, x -> true).successValue());
+      String expected = List.range(0, 1_000).foldLeft("", (acc, x) -> acc + x);
+      assertEquals(expected, List.range(0, 1_000).parFoldLeft(pool, "", (acc, x) -> acc + x, String::concat).successValue());
+      assertEquals(expected, List.range(0, 1_000).map(String::valueOf).parReduce(pool, String::concat).successValue());
+      assertTrue(List.<Integer>list().parReduce(pool, Integer::sum).isEmpty());
+      assertEquals(List.list(), List.<Integer>list().parMap(pool, x -> x).successValue());
+      assertTrue(list.parMap(pool, x -> 10 / (x - 5_000)).isFailure());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testExecutorServiceParallelOperations() {
+    ExecutorService es = Executors.newFixedThreadPool(4);
+    try {
+      List<Integer> list = List.range(0, 100_000);
+      assertEquals(Long.valueOf(4_999_950_000L), list.parFoldLeft(es, 0L, acc -> x -> acc + x, a -> b -> a + b).successValue());
+      assertEquals(list.map(x -> x + 1), list.parMap(es, x -> x + 1).successValue());
+      assertTrue(list.parMap(es, x -> 10 / (x - 5_000)).isFailure());
+    } finally {
+      es.shutdown();
+    }
+  }
+
+  @Test
+  public void testSplit() {
+    assertEquals(List.list(new Tuple<>(List.list(1), List.list(2, 3, 4)),
+                           new Tuple<>(List.list(1, 2), List.list(3, 4)),
+                           new Tuple<>(List.list(1, 2, 3), List.list(4))), List.list(1, 2, 3, 4).split());
+    assertEquals(List.list(), List.list(1).split());
+    assertEquals(List.list(), List.<Integer>list().split());
+  }
+}
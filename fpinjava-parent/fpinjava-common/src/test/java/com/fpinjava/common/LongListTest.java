@@ -0,0 +1,42 @@
+package com.fpinjava.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LongListTest {
+
+  @Test
+  public void testFolds() {
+    LongList list = LongList.range(0, 200_000);
+    assertEquals(200_000, list.length());
+    assertEquals(19_999_900_000L, list.foldLeft(0, (acc, x) -> acc + x));
+    assertEquals(321L, LongList.list(1, 2, 3).foldRight(0, (x, acc) -> acc * 10 + x));
+    assertEquals(123L, LongList.list(1, 2, 3).foldLeft(0, (acc, x) -> acc * 10 + x));
+  }
+
+  @Test
+  public void testMap() {
+    LongList list = LongList.range(0, 5);
+    assertEquals(LongList.list(0, 1L << 33, 2L << 33, 3L << 33, 4L << 33), list.map(x -> x << 33));
+    assertEquals(LongList.list(4, 3, 2, 1, 0), list.reverse());
+    assertTrue(LongList.empty().map(x -> x + 1).isEmpty());
+  }
+
+  @Test
+  public void testEqualsAndHashCode() {
+    LongList list = LongList.list(1, 2, 1L << 40);
+    assertEquals(list, LongList.fromList(List.list(1L, 2L, 1L << 40)));
+    assertEquals(list.hashCode(), LongList.fromList(List.list(1L, 2L, 1L << 40)).hashCode());
+    assertNotEquals(list, LongList.list(1, 2));
+    assertNotEquals(list, LongList.list(1, 2, 1L << 41));
+    assertNotEquals(list.hashCode(), LongList.list(1, 2, 1L << 41).hashCode());
+    assertNotEquals(list, IntList.list(1, 2));
+    assertEquals(LongList.empty(), LongList.list());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testHeadEmpty() {
+    LongList.empty().head();
+  }
+}
@@ -0,0 +1,66 @@
+package com.fpinjava.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MapTest {
+
+  @Test
+  public void testPersistentPut() {
+    Map<String, Integer> empty = Map.empty();
+    Map<String, Integer> map = empty.put("a", 1).put("b", 2);
+    Map<String, Integer> updated = map.put("a", 3).removeKey("b");
+    assertTrue(empty.isEmpty());
+    assertEquals(Integer.valueOf(1), map.get("a").successValue());
+    assertEquals(Integer.valueOf(2), map.get("b").successValue());
+    assertEquals(Integer.valueOf(3), updated.get("a").successValue());
+    assertFalse(updated.containsKey("b"));
+    assertTrue(updated.get("b").isFailure());
+    assertTrue(map.get(null).isFailure());
+    assertEquals(2, map.size());
+    assertEquals(1, updated.size());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullValue() {
+    Map.<String, Integer>empty().put("a", null);
+  }
+
+  @Test
+  public void testConcurrentPut() {
+    Map<String, Integer> map = Map.concurrent();
+    assertSame(map, map.put("a", 1));
+    map.put("b", 2).removeKey("a");
+    assertFalse(map.containsKey("a"));
+    assertEquals(Integer.valueOf(2), map.get("b").successValue());
+    assertSame(map, map.merge("b", 5, (x, y) -> x + y));
+    assertEquals(Integer.valueOf(7), map.get("b").successValue());
+  }
+
+  @Test
+  public void testPutAllAndMerge() {
+    Map<Integer, String> map = Map.<Integer, String>empty().put(0, "zero");
+    Map<Integer, String> all = map.putAll(List.range(0, 1_000).map(i -> new Tuple<>(i, "v" + i)));
+    assertEquals(1, map.size());
+    assertEquals("zero", map.get(0).successValue());
+    assertEquals(1_000, all.size());
+    assertEquals("v0", all.get(0).successValue());
+    assertEquals(1_000, Map.<Integer, String>concurrent().putAll(all).size());
+    Map<Integer, String> merged = all.merge(1, "!", (x, y) -> x + y).merge(-1, "new", (x, y) -> x + y);
+    assertEquals("v1!", merged.get(1).successValue());
+    assertEquals("new", merged.get(-1).successValue());
+    assertEquals("v1", all.get(1).successValue());
+    assertEquals(Long.valueOf(499_500L), all.keys().foldLeft(0L, (acc, k) -> acc + k));
+  }
+
+  @Test
+  public void testGroupBy() {
+    List<Integer> list = List.range(0, 1_000_000);
+    Map<Integer, List<Integer>> map = list.groupBy(x -> x % 10);
+    assertEquals(10, map.size());
+    assertEquals(100_000, map.get(3).successValue().length());
+    assertEquals(List.list(7, 17, 27), map.get(7).successValue().takeAtMost(3));
+    assertEquals(map.get(7).successValue(), list.groupByImperative(x -> x % 10).get(7).successValue().reverse());
+  }
+}
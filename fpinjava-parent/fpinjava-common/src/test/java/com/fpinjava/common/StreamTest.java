@@ -0,0 +1,107 @@
+package com.fpinjava.common;
+
+import com.fpinjava.io.IO;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StreamTest {
+
+  private static Stream<Integer> pipeline(Stream<Integer> stream) {
+    return stream.map(x -> x + 1)
+                 .filter(x -> x % 2 == 0)
+                 .flatMap(x -> Stream.of(x, -x))
+                 .map(x -> x * 3)
+                 .takeWhile(x -> x < 30_000);
+  }
+
+  private static Stream<Integer> classicPipeline(Stream<Integer> stream) {
+    return stream.mapViaFoldRight(x -> x + 1)
+                 .filterViaDropWhile(x -> x % 2 == 0)
+                 .flatMapViaFoldRight(x -> Stream.of(x, -x))
+                 .mapViaFoldRight(x -> x * 3)
+                 .takeWhileViaFoldRight(x -> x < 30_000);
+  }
+
+  @Test
+  public void testFusedPipelineToList() {
+    List<Integer> expected = classicPipeline(Stream.range(0, 100)).toList();
+    assertEquals(expected, pipeline(Stream.range(0, 100)).toList());
+    assertEquals(expected, pipeline(Stream.from(0)).takeWhile(x -> x < 300 && x > -303).toList());
+    assertEquals(100, expected.length());
+  }
+
+  @Test
+  public void testFusedPipelineIsStackSafe() {
+    assertEquals(9_998, pipeline(Stream.from(0)).toList().length());
+    assertEquals(Integer.valueOf(0), pipeline(Stream.from(0)).foldLeft(0, acc -> x -> acc + x));
+    assertEquals(Integer.valueOf(1_000_000), Stream.range(1, 1_000_000).map(x -> 1).foldLeft(0, acc -> x -> acc + x));
+  }
+
+  @Test
+  public void testFusedStreamStructuralAccess() {
+    Stream<Integer> stream = pipeline(Stream.from(0));
+    assertFalse(stream.isEmpty());
+    assertEquals(Integer.valueOf(6), stream.head()._1);
+    assertEquals(Integer.valueOf(-6), stream.tail().head()._1);
+    assertEquals(List.list(6, -6, 12), stream.take(3).toList());
+    assertEquals(List.list(12, -12), stream.drop(2).take(2).toList());
+    assertTrue(Stream.range(0, 10).filter(x -> x > 10).isEmpty());
+  }
+
+  @Test
+  public void testFusedOperationsAreLazy() {
+    AtomicInteger evaluated = new AtomicInteger();
+    Stream<Integer> stream = Stream.from(0).map(x -> {
+      evaluated.incrementAndGet();
+      return x;
+    }).filter(x -> x % 2 == 0);
+    assertEquals(0, evaluated.get());
+    assertEquals(List.list(0, 2, 4), stream.takeWhile(x -> x < 5).toList());
+    assertEquals(7, evaluated.get());
+  }
+
+  @Test
+  public void testConsHeadIsEvaluatedOnce() {
+    AtomicInteger evaluated = new AtomicInteger();
+    Stream<Integer> stream = Stream.cons(evaluated::incrementAndGet, Stream.cons(() -> 0, Stream.empty()));
+    Tuple<Integer, Stream<Integer>> head = stream.head();
+    assertSame(stream, head._2);
+    assertEquals(Integer.valueOf(1), head._1);
+    assertEquals(Integer.valueOf(1), stream.head()._1);
+    assertEquals(Integer.valueOf(1), stream.take(1).head()._1);
+    assertEquals(List.list(1, 0), stream.toList());
+    assertEquals(1, evaluated.get());
+  }
+
+  @Test
+  public void testFlatMapWithInfiniteInnerStreams() {
+    assertEquals(List.list(1, 2, 3, 4), Stream.from(1).flatMap(Stream::from).takeWhile(x -> x < 5).toList());
+  }
+
+  @Test
+  public void testTerminalOperations() {
+    assertTrue(Stream.from(0).map(x -> x * 2).exists(x -> x == 1_000_000));
+    assertFalse(Stream.range(0, 10).exists(x -> x > 10));
+    assertTrue(Stream.range(0, 10).forAll(x -> x <= 10));
+    assertEquals(Integer.valueOf(12), Stream.from(0).filter(x -> x > 10).find(x -> x % 3 == 0).successValue());
+    assertTrue(Stream.range(0, 10).find(x -> x > 10).isEmpty());
+    StringBuilder sb = new StringBuilder();
+    Stream.range(0, 4).map(x -> x * x).forEach(sb::append);
+    assertEquals("014916", sb.toString());
+  }
+
+  @Test
+  public void testIOForEach() {
+    StringBuilder sb = new StringBuilder();
+    IO<Nothing> io = IO.forEach(Stream.range(0, 99_999).filter(x -> x % 10_000 == 0), x -> () -> {
+      sb.append(x).append(' ');
+      return Nothing.instance;
+    });
+    assertEquals("", sb.toString());
+    io.run();
+    assertEquals("0 10000 20000 30000 40000 50000 60000 70000 80000 90000 ", sb.toString());
+  }
+}
@@ -0,0 +1,62 @@
+package com.fpinjava.common;
+
+import org.junit.Test;
+
+import static com.fpinjava.common.TailCall.ret;
+import static com.fpinjava.common.TailCall.sus;
+import static org.junit.Assert.*;
+
+public class TailCallTest {
+
+  private static TailCall<Long> sumTail(long acc, int n) {
+    return n == 0
+        ? ret(acc)
+        : sus(() -> sumTail(acc + n, n - 1));
+  }
+
+  private static TailCall<Long> sumNonTail(int n) {
+    return n == 0
+        ? ret(0L)
+        : sus(() -> sumNonTail(n - 1)).map(x -> x + n);
+  }
+
+  @Test
+  public void testTailCalls() {
+    assertEquals(Long.valueOf(500_000_500_000L), sumTail(0, 1_000_000).eval());
+  }
+
+  @Test
+  public void testNonTailRecursion() {
+    assertEquals(Long.valueOf(500_000_500_000L), sumNonTail(1_000_000).eval());
+  }
+
+  @Test
+  public void testLeftNestedFlatMaps() {
+    TailCall<Integer> tc = ret(0);
+    for (int i = 0; i < 1_000_000; i++) {
+      tc = tc.flatMap(x -> ret(x + 1));
+    }
+    assertEquals(Integer.valueOf(1_000_000), tc.eval());
+  }
+
+  @Test
+  public void testResume() {
+    TailCall<Long> tc = sumNonTail(1_000);
+    while (tc.isSuspend()) {
+      tc = tc.resume();
+    }
+    assertEquals(Long.valueOf(500_500L), tc.eval());
+  }
+
+  @Test
+  public void testStackSafeRecursions() {
+    List<Integer> list = List.unfold_(0, x -> x < 1_000_000 ? Result.success(new Tuple<>(x, x + 1)) : Result.empty());
+    assertEquals(List.range(0, 1_000_000), list);
+    Heap<Integer> heap = Heap.empty();
+    for (int i = 20_000; i > 0; i--) {
+      heap = heap.insert(i);
+    }
+    assertEquals(Integer.valueOf(20_000), heap.get(19_999).successValue());
+    assertTrue(heap.get(20_000).isFailure());
+  }
+}
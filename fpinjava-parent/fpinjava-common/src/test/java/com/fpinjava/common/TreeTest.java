@@ -0,0 +1,240 @@
+package com.fpinjava.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TreeTest {
+
+  private static <A extends Comparable<A>> void assertValid(Tree<A> tree) {
+    List<Integer> blackHeights = tree.pathColors().map(path -> path.filter(Tree.Color::isB).length());
+    assertTrue(blackHeights.forAll(h -> h.equals(blackHeights.headOption().getOrElse(0))));
+    assertTrue(tree.pathColors().forAll(path -> !hasRedRed(path)));
+  }
+
+  private static boolean hasRedRed(List<Tree.Color> path) {
+    return path.zipWithPosition().exists(t -> t._1.isR() && path.getAt(t._2 + 1).map(Tree.Color::isR).getOrElse(false));
+  }
+
+  @Test
+  public void testFromSorted() {
+    for (int n = 0; n < 200; n++) {
+      Tree<Integer> tree = Tree.fromSorted(List.range(0, n));
+      assertEquals(n, tree.size());
+      assertEquals(List.range(0, n), tree.toList().reverse());
+      assertTrue(tree.height() <= 2 * Tree.log2nlz(n + 1));
+      assertValid(tree);
+    }
+  }
+
+  @Test
+  public void testFromSortedThenUpdate() {
+    Tree<Integer> tree = Tree.fromSorted(List.range(0, 1_000));
+    for (int i = 0; i < 1_000; i += 3) {
+      tree = tree.delete(i);
+    }
+    tree = tree.insert(1_500).insert(-1);
+    assertValid(tree);
+    assertEquals(List.range(0, 1_000).filter(i -> i % 3 != 0).cons(-1).concat(List.list(1_500)), tree.toList().reverse());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromSortedUnsorted() {
+    Tree.fromSorted(1, 3, 2);
+  }
+
+  @Test
+  public void testBuilder() {
+    Tree.Builder<Integer> builder = Tree.builder();
+    for (int i = 999; i >= 0; i--) {
+      builder.add(i % 500);
+    }
+    Tree<Integer> tree = builder.build();
+    assertEquals(List.range(0, 500), tree.toList().reverse());
+    assertValid(tree);
+  }
+
+  @Test
+  public void testUncurriedFolds() {
+    Tree<Integer> tree = Tree.fromSorted(List.range(0, 100));
+    assertEquals(List.range(0, 100), tree.foldInOrder(List.<Integer>list(), (l, v, r) -> List.concat(l, r.cons(v))));
+    assertEquals(List.range(0, 100).reverse(), tree.foldInReverseOrder(List.<Integer>list(), (r, v, l) -> List.concat(r, l.cons(v))));
+    assertEquals(tree.foldInOrder("", l -> v -> r -> l + v + r), tree.foldInOrder("", (l, v, r) -> l + v + r));
+    assertEquals(tree.foldInReverseOrder("", l -> v -> r -> l + v + r), tree.foldInReverseOrder("", (r, v, l) -> r + v + l));
+    assertEquals(Integer.valueOf(4_950), tree.foldLeft(0, (acc, v) -> acc + v, (x, y) -> x + y));
+    assertEquals(Integer.valueOf(4_950), tree.foldRight(0, (v, acc) -> acc + v, (x, y) -> x + y));
+  }
+
+  /*
+   * The even numbers from 0 to 1998, inserted in random order, with some of
+   * them deleted, so that the tree is not perfectly balanced.
+   */
+  private static Tree<Integer> randomTree() {
+    java.util.Random random = new java.util.Random(42);
+    Tree<Integer> tree = Tree.empty();
+    for (int i = 0; i < 2_000; i++) {
+      tree = tree.insert(2 * random.nextInt(1_000));
+    }
+    for (int i = 0; i < 200; i++) {
+      tree = tree.delete(2 * random.nextInt(1_000));
+    }
+    return tree;
+  }
+
+  @Test
+  public void testOrderStatistics() {
+    Tree<Integer> tree = randomTree();
+    List<Integer> list = tree.toList().reverse();
+    java.util.List<Integer> elements = new java.util.ArrayList<>();
+    list.forEach(elements::add);
+    for (int i = 0; i < elements.size(); i++) {
+      assertEquals(elements.get(i), tree.select(i).getOrElse(-1));
+      assertEquals(i, tree.rank(elements.get(i)));
+      assertEquals(i + 1, tree.rank(elements.get(i) + 1));
+    }
+    assertTrue(tree.select(-1).isFailure());
+    assertTrue(tree.select(elements.size()).isFailure());
+    assertEquals(0, tree.rank(-1));
+    assertEquals(elements.size(), tree.rank(2_000));
+    for (int a = -1; a <= 2_000; a++) {
+      int x = a;
+      assertEquals(list.filter(e -> e <= x).reverse().headOption().getOrElse(-1), tree.floor(a).getOrElse(-1));
+      assertEquals(list.filter(e -> e >= x).headOption().getOrElse(-1), tree.ceiling(a).getOrElse(-1));
+    }
+    assertTrue(Tree.<Integer>empty().floor(1).isEmpty());
+  }
+
+  @Test
+  public void testRange() {
+    Tree<Integer> tree = randomTree();
+    List<Integer> list = tree.toList().reverse();
+    for (int lo = -5; lo < 2_005; lo += 97) {
+      for (int hi = lo - 10; hi < 2_010; hi += 89) {
+        int x = lo;
+        int y = hi;
+        List<Integer> expected = list.filter(e -> e >= x && e < y);
+        assertEquals(expected.length(), tree.rangeCount(lo, hi));
+        assertEquals(expected, tree.range(lo, hi).toList());
+        assertEquals(Math.min(3, expected.length()), tree.range(lo, hi).take(3).toList().length());
+      }
+    }
+    assertEquals(List.list(0, 2), Tree.<Integer>fromSorted(List.range(0, 100_000).map(i -> 2 * i)).range(-10, 4).toList());
+  }
+
+  @Test
+  public void testHeadAndTailTrees() {
+    Tree<Integer> tree = randomTree();
+    List<Integer> list = tree.toList().reverse();
+    for (int a = -3; a <= 2_003; a += 7) {
+      int x = a;
+      Tree<Integer> head = tree.headTree(a);
+      Tree<Integer> tail = tree.tailTree(a);
+      assertValid(head);
+      assertValid(tail);
+      assertEquals(list.filter(e -> e < x), head.toList().reverse());
+      assertEquals(list.filter(e -> e >= x), tail.toList().reverse());
+      assertEquals(tree.rank(a), head.size());
+      assertValid(head.insert(x).delete(x - 2));
+    }
+    assertTrue(Tree.<Integer>empty().headTree(1).isEmpty());
+  }
+
+  private static Tree<Integer> randomTree(java.util.Random random, int size, int bound) {
+    Tree<Integer> tree = Tree.empty();
+    for (int i = 0; i < size; i++) {
+      tree = tree.insert(random.nextInt(bound));
+    }
+    return tree;
+  }
+
+  private static void assertContents(List<Integer> expected, Tree<Integer> tree) {
+    assertValid(tree);
+    assertEquals(expected, tree.toList().reverse());
+  }
+
+  @Test
+  public void testSetOperations() {
+    java.util.Random random = new java.util.Random(7);
+    java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+    int[] sizes = {0, 1, 10, 100, 2_000};
+    for (int m : sizes) {
+      for (int n : sizes) {
+        Tree<Integer> t1 = randomTree(random, m, 3_000);
+        Tree<Integer> t2 = randomTree(random, n, 3_000);
+        List<Integer> l1 = t1.toList().reverse();
+        List<Integer> l2 = t2.toList().reverse();
+        List<Integer> union = List.range(0, 3_000).filter(i -> t1.member(i) || t2.member(i));
+        List<Integer> intersection = l1.filter(t2::member);
+        List<Integer> difference = l1.filter(i -> !t2.member(i));
+        assertContents(union, t1.union(t2));
+        assertContents(union, t1.parUnion(pool, t2).getOrElse(Tree.empty()));
+        assertContents(intersection, t1.intersection(t2));
+        assertContents(intersection, t1.parIntersection(pool, t2).getOrElse(Tree.empty()));
+        assertContents(difference, t1.difference(t2));
+        assertContents(difference, t1.parDifference(pool, t2).getOrElse(Tree.empty()));
+        assertEquals(l2, t2.union(t2).toList().reverse());
+      }
+    }
+    pool.shutdown();
+  }
+
+  @Test
+  public void testFilter() {
+    Tree<Integer> tree = randomTree();
+    List<Integer> list = tree.toList().reverse();
+    for (int k = 1; k < 10; k++) {
+      int x = k;
+      Tree<Integer> filtered = tree.filter(i -> i % x == 0);
+      assertValid(filtered);
+      assertEquals(list.filter(i -> i % x == 0), filtered.toList().reverse());
+    }
+    assertSame(tree, tree.filter(i -> true));
+    assertTrue(tree.filter(i -> false).isEmpty());
+  }
+
+  @Test
+  public void testStreams() {
+    Tree<Integer> tree = randomTree();
+    List<Integer> list = tree.toList().reverse();
+    assertEquals(list, tree.stream().toList());
+    assertEquals(list.reverse(), tree.reverseStream().toList());
+    assertEquals(list.take(10), tree.stream().take(10).toList());
+    assertEquals(list.reverse().take(10), tree.reverseStream().take(10).toList());
+    Stream<Integer> stream = tree.stream();
+    assertEquals(list.headOption().getOrElse(-1), stream.head()._1);
+    assertEquals(list.tail().take(5), stream.tail().take(5).toList());
+    assertEquals(list, stream.toList());
+    for (int a = -1; a <= 2_000; a += 13) {
+      int x = a;
+      assertEquals(list.filter(e -> e >= x), tree.streamFrom(a).toList());
+      assertEquals(list.filter(e -> e <= x).reverse(), tree.reverseStreamFrom(a).toList());
+      assertEquals(list.filter(e -> e >= x).headOption().getOrElse(-1), tree.streamFrom(a).headOption()._1.getOrElse(-1));
+    }
+    assertTrue(Tree.<Integer>empty().stream().isEmpty());
+    assertTrue(Tree.<Integer>empty().reverseStreamFrom(1).toList().isEmpty());
+  }
+
+  @Test
+  public void testCursor() {
+    Tree<Integer> tree = randomTree();
+    List<Integer> list = tree.toList().reverse();
+    Tree.Cursor<Integer> cursor = tree.cursor();
+    List<Integer> result = List.list();
+    while (cursor.hasNext()) {
+      result = result.cons(cursor.next());
+    }
+    assertEquals(list, result.reverse());
+    cursor.seek(1_000);
+    assertEquals(list.filter(e -> e >= 1_000).headOption().getOrElse(-1), cursor.next());
+    cursor.seek(-1);
+    assertEquals(list.headOption().getOrElse(-1), cursor.next());
+    Tree.Cursor<Integer> reverse = tree.reverseCursor().seek(1_001);
+    assertEquals(list.filter(e -> e <= 1_001).reverse().headOption().getOrElse(-1), reverse.next());
+    assertFalse(tree.reverseCursor().seek(-1).hasNext());
+  }
+
+  @Test(expected = java.util.NoSuchElementException.class)
+  public void testCursorExhausted() {
+    Tree.<Integer>empty().cursor().next();
+  }
+}
@@ -0,0 +1,115 @@
+package com.fpinjava.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class VectorTest {
+
+  private static final int[] SIZES = {0, 1, 31, 32, 33, 64, 1024, 1056, 1057, 33_000, 40_000};
+
+  @Test
+  public void testAppendAndGetAt() {
+    for (int size : SIZES) {
+      Vector<Integer> vector = Vector.empty();
+      for (int i = 0; i < size; i++) {
+        vector = vector.append(i);
+      }
+      assertEquals(size, vector.length());
+      for (int i = 0; i < size; i++) {
+        assertEquals(Integer.valueOf(i), vector.getAt(i).successValue());
+      }
+      assertTrue(vector.getAt(size).isFailure());
+      assertTrue(vector.getAt(-1).isFailure());
+      assertEquals(Vector.range(0, size), vector);
+    }
+  }
+
+  @Test
+  public void testUpdateAt() {
+    Vector<Integer> vector = Vector.range(0, 2_000);
+    Vector<Integer> updated = vector.updateAt(5, -5).flatMap(v -> v.updateAt(1_990, -1_990)).successValue();
+    assertEquals(Integer.valueOf(-5), updated.getAt(5).successValue());
+    assertEquals(Integer.valueOf(-1_990), updated.getAt(1_990).successValue());
+    assertEquals(Integer.valueOf(5), vector.getAt(5).successValue());
+    assertEquals(Integer.valueOf(1_990), vector.getAt(1_990).successValue());
+    assertTrue(vector.updateAt(2_000, 0).isFailure());
+  }
+
+  @Test
+  public void testInit() {
+    for (int size : SIZES) {
+      if (size == 0) continue;
+      Vector<Integer> vector = Vector.range(0, size);
+      for (int i = size; i > 0; i--) {
+        assertEquals(Integer.valueOf(i - 1), vector.lastOption().successValue());
+        vector = vector.init();
+        assertEquals(i - 1, vector.length());
+      }
+      assertTrue(vector.isEmpty());
+      assertEquals(Vector.range(0, 100), vector.concat(Vector.range(0, 100)));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testInitEmpty() {
+    Vector.empty().init();
+  }
+
+  @Test
+  public void testFolds() {
+    Vector<Integer> vector = Vector.range(0, 40_000);
+    assertEquals(Long.valueOf(799_980_000L), vector.foldLeft(0L, acc -> i -> acc + i));
+    assertEquals("0123456789", Vector.range(0, 10).foldRight("", i -> s -> i + s));
+    assertEquals("9876543210", Vector.range(0, 10).foldLeft("", s -> i -> i + s));
+  }
+
+  @Test
+  public void testMapAndFilter() {
+    Vector<Integer> vector = Vector.range(0, 5_000);
+    assertEquals(Vector.range(0, 5_000).map(x -> x * 2), vector.map(x -> x * 2));
+    assertEquals(List.range(0, 5_000).map(x -> x * 2), vector.map(x -> x * 2).toList());
+    assertEquals(List.range(0, 5_000).filter(x -> x % 3 == 0), vector.filter(x -> x % 3 == 0).toList());
+  }
+
+  @Test
+  public void testConcatAndSplitAt() {
+    Vector<Integer> vector = Vector.range(0, 3_000).concat(Vector.range(3_000, 5_000));
+    assertEquals(Vector.range(0, 5_000), vector);
+    Tuple<Vector<Integer>, Vector<Integer>> split = vector.splitAt(1_234);
+    assertEquals(Vector.range(0, 1_234), split._1);
+    assertEquals(Vector.range(1_234, 5_000), split._2);
+    assertEquals(vector, vector.splitAt(10_000)._1);
+    assertEquals(vector, vector.splitAt(-1)._2);
+  }
+
+  @Test
+  public void testTakeAndDrop() {
+    Vector<Integer> vector = Vector.range(0, 5_000);
+    for (int n : new int[] {0, 1, 31, 32, 33, 1_024, 1_025, 4_990, 4_999, 5_000}) {
+      assertEquals(Vector.range(0, n), vector.take(n));
+      assertEquals(Vector.range(n, 5_000), vector.drop(n));
+    }
+  }
+
+  @Test
+  public void testFlatMap() {
+    Vector<Integer> vector = Vector.range(0, 300_000).flatMap(x -> Vector.vector(x, -x));
+    assertEquals(600_000, vector.length());
+    assertEquals(Integer.valueOf(-149_999), vector.getAt(299_999).getOrElse(0));
+    assertEquals(Long.valueOf(0L), vector.foldLeft(0L, acc -> i -> acc + i));
+    assertEquals(Vector.vector(1, 2, 2, 3, 3, 3), Vector.range(0, 4).flatMap(x -> Vector.range(0, x).map(y -> x)));
+    assertTrue(Vector.range(0, 100).flatMap(x -> Vector.<Integer>empty()).isEmpty());
+  }
+
+  @Test
+  public void testListConversions() {
+    List<Integer> list = List.range(0, 1_500);
+    assertEquals(list, list.toVector().toList());
+    assertEquals(list.reverse(), list.toVector().reverse().toList());
+    assertEquals(list.toStream().toList(), list.toVector().toStream().toList());
+    assertEquals("[1, 2, 3, NIL]", Vector.vector(1, 2, 3).toString());
+    assertEquals("1, 2, 3", Vector.vector(1, 2, 3).mkStr(", "));
+  }
+}
@@ -0,0 +1,133 @@
+package com.fpinjava.io;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Nothing;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class FileSourceTest {
+
+  private static Path write(String content) throws IOException {
+    Path path = Files.createTempFile("filesource", ".txt");
+    path.toFile().deleteOnExit();
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    return path;
+  }
+
+  @Test
+  public void testLines() throws IOException {
+    Path path = write("first\r\nsecond line\n\n\u00e9t\u00e9 \u2192 \u00fcn\u00efc\u00f8d\u00e9\nlast");
+    for (int chunkSize : new int[] {1, 2, 3, 7, FileSource.DEFAULT_CHUNK_SIZE}) {
+      IO<List<String>> io = FileSource.lines(path, StandardCharsets.UTF_8, chunkSize, lines -> lines.toList());
+      assertEquals(List.list("first", "second line", "", "\u00e9t\u00e9 \u2192 \u00fcn\u00efc\u00f8d\u00e9", "last"), io.run());
+    }
+    assertEquals(List.list("a"), FileSource.lines(write("a\n"), lines -> lines.toList()).run());
+    assertEquals(List.list(), FileSource.lines(write(""), lines -> lines.toList()).run());
+  }
+
+  @Test
+  public void testChunks() throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      content.append("line ").append(i).append(" \u2713\n");
+    }
+    Path path = write(content.toString());
+    String read = FileSource.chunks(path, StandardCharsets.UTF_8, 1000,
+        chunks -> chunks.foldLeft(new StringBuilder(), sb -> sb::append).toString()).run();
+    assertEquals(content.toString(), read);
+    int count = FileSource.lines(path, lines -> lines.filter(line -> line.endsWith("\u2713")).foldLeft(0, n -> line -> n + 1)).run();
+    assertEquals(10_000, count);
+    assertEquals("line 0 \u2713", FileSource.lines(path, lines -> lines.head()._1).run());
+  }
+
+  @Test
+  public void testMissingFile() {
+    try {
+      FileSource.lines(Paths.get("does/not/exist"), lines -> lines.toList()).run();
+      fail();
+    } catch (UncheckedIOException e) {
+      assertTrue(e.getMessage().contains("exist"));
+    }
+  }
+
+  @Test
+  public void testBracketReleasesOnFailure() {
+    AtomicBoolean released = new AtomicBoolean();
+    IO<Integer> io = IO.bracket(IO.unit("resource"), r -> () -> {
+      throw new IllegalArgumentException("use failed");
+    }, r -> () -> {
+      released.set(true);
+      return Nothing.instance;
+    });
+    assertFalse(released.get());
+    try {
+      io.run();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("use failed", e.getMessage());
+    }
+    assertTrue(released.get());
+  }
+
+  @Test
+  public void testBracketReleasesOnError() {
+    AtomicBoolean released = new AtomicBoolean();
+    IO<Integer> io = IO.bracket(IO.unit("resource"), r -> () -> {
+      throw new AssertionError("use failed");
+    }, r -> () -> {
+      released.set(true);
+      return Nothing.instance;
+    });
+    try {
+      io.run();
+      fail();
+    } catch (AssertionError e) {
+      assertEquals("use failed", e.getMessage());
+    }
+    assertTrue(released.get());
+  }
+
+  @Test
+  public void testChannelIsClosed() throws IOException {
+    Path path = write("a\nb\nc\n");
+    AtomicReference<FileChannel> channel = new AtomicReference<>();
+    IO<FileChannel> open = () -> {
+      try {
+        channel.set(FileChannel.open(path, StandardOpenOption.READ));
+        return channel.get();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+    assertEquals(List.list("a", "b", "c"), FileSource.lines(open, StandardCharsets.UTF_8, 2, lines -> lines.toList()).run());
+    assertFalse(channel.get().isOpen());
+    try {
+      FileSource.lines(open, StandardCharsets.UTF_8, 2, lines -> {
+        throw new IllegalArgumentException("failed");
+      }).run();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertFalse(channel.get().isOpen());
+    }
+    try {
+      FileSource.lines(open, StandardCharsets.UTF_8, 2, lines -> {
+        throw new StackOverflowError();
+      }).run();
+      fail();
+    } catch (StackOverflowError e) {
+      assertFalse(channel.get().isOpen());
+    }
+  }
+}
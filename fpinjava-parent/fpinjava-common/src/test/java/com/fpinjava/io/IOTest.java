@@ -0,0 +1,216 @@
+package com.fpinjava.io;
+
+import com.fpinjava.common.List;
+import com.fpinjava.common.Nothing;
+import com.fpinjava.common.Result;
+import com.fpinjava.common.Stream;
+import com.fpinjava.common.Tuple;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class IOTest {
+
+  @Test
+  public void testDeepLeftNestedFlatMap() {
+    IO<Integer> io = IO.unit(0);
+    for (int i = 0; i < 1_000_000; i++) {
+      io = io.flatMap(x -> IO.unit(x + 1));
+    }
+    assertEquals(Integer.valueOf(1_000_000), io.run());
+  }
+
+  @Test
+  public void testDeepRightNestedFlatMap() {
+    assertEquals(Integer.valueOf(1_000_000), count(0, 1_000_000).run());
+  }
+
+  private static IO<Integer> count(int n, int limit) {
+    return n == limit
+        ? IO.unit(n)
+        : IO.unit(n + 1).flatMap(x -> count(x, limit));
+  }
+
+  @Test
+  public void testDoWhile() {
+    AtomicInteger counter = new AtomicInteger();
+    IO<Integer> increment = counter::incrementAndGet;
+    IO.doWhile(increment, n -> IO.unit(n < 1_000_000)).run();
+    assertEquals(1_000_000, counter.get());
+  }
+
+  @Test
+  public void testRepeat() {
+    AtomicInteger counter = new AtomicInteger();
+    IO<Integer> increment = counter::incrementAndGet;
+    List<Integer> result = IO.repeat(100_000, increment).run();
+    assertEquals(100_000, result.length());
+    assertEquals(List.range(1, 6), result.takeAtMost(5));
+  }
+
+  @Test
+  public void testForeverStopsOnFailure() {
+    AtomicInteger counter = new AtomicInteger();
+    IO<Nothing> io = () -> {
+      if (counter.incrementAndGet() == 1_000_000) {
+        throw new IllegalStateException("stop");
+      }
+      return Nothing.instance;
+    };
+    try {
+      IO.forever(io).run();
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("stop", e.getMessage());
+    }
+    assertEquals(1_000_000, counter.get());
+  }
+
+  @Test
+  public void testFoldM() {
+    IO<Integer> io = IO.foldM(Stream.from(1).take(100_000), 0, acc -> x -> IO.unit(acc + x));
+    assertEquals(Integer.valueOf(705082704), io.run());
+  }
+
+  @Test
+  public void testAsyncAndFork() throws InterruptedException {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicReference<Thread> thread = new AtomicReference<>();
+    IO<Integer> io = IO.fork(executor, () -> {
+      thread.set(Thread.currentThread());
+      return 20;
+    }).flatMap(x -> IO.<Integer>async(callback -> new Thread(() -> callback.apply(Result.success(x + 1))).start()))
+      .map(x -> x * 2);
+    assertEquals(Integer.valueOf(42), io.run());
+    assertNotSame(Thread.currentThread(), thread.get());
+    CountDownLatch done = new CountDownLatch(1);
+    AtomicReference<Result<Integer>> result = new AtomicReference<>();
+    io.runAsync(r -> {
+      result.set(r);
+      done.countDown();
+    });
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(Integer.valueOf(42), result.get().successValue());
+    IO<Integer> failing = IO.<Integer>async(callback -> callback.apply(Result.failure("async failure"))).map(x -> x + 1);
+    try {
+      failing.run();
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("async failure", e.getMessage());
+    }
+    executor.shutdown();
+  }
+
+  @Test
+  public void testManyAsyncBoundaries() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    IO<Integer> io = IO.unit(0);
+    for (int i = 0; i < 10_000; i++) {
+      io = io.flatMap(x -> IO.fork(executor, IO.unit(x + 1)));
+    }
+    assertEquals(Integer.valueOf(10_000), io.run());
+    executor.shutdown();
+  }
+
+  @Test(timeout = 10_000)
+  public void testErrorAfterFork() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    IO<Integer> io = IO.fork(executor, () -> {
+      throw new AssertionError("forked error");
+    });
+    try {
+      io.run();
+      fail();
+    } catch (AssertionError e) {
+      assertEquals("forked error", e.getMessage());
+    }
+    try {
+      IO.par(executor, io, IO.unit(1)).run();
+      fail();
+    } catch (AssertionError e) {
+      assertEquals("forked error", e.getMessage());
+    }
+    CountDownLatch done = new CountDownLatch(1);
+    AtomicReference<Result<Integer>> result = new AtomicReference<>();
+    io.runAsync(r -> {
+      result.set(r);
+      done.countDown();
+    });
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertTrue(result.get().isFailure());
+    Throwable cause = result.get().failureValue();
+    while (cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    assertEquals("forked error", cause.getMessage());
+    executor.shutdown();
+  }
+
+  private static <A> IO<A> slow(long millis, A a, AtomicInteger running, AtomicInteger maxRunning) {
+    return () -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      } finally {
+        running.decrementAndGet();
+      }
+      return a;
+    };
+  }
+
+  @Test
+  public void testPar() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    IO<Tuple<Integer, String>> io = IO.par(executor, slow(200, 1, running, maxRunning), slow(200, "a", running, maxRunning));
+    assertEquals(0, maxRunning.get());
+    Tuple<Integer, String> result = io.run();
+    assertEquals(Integer.valueOf(1), result._1);
+    assertEquals("a", result._2);
+    assertEquals(2, maxRunning.get());
+    assertEquals(Integer.valueOf(3), IO.parMap2(executor, IO.unit(1), IO.unit(2), a -> b -> a + b).run());
+    IO<Integer> failing = () -> {
+      throw new IllegalArgumentException("par failure");
+    };
+    try {
+      IO.par(executor, slow(100, 1, running, maxRunning), failing).run();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("par failure", e.getMessage());
+    }
+    executor.shutdown();
+  }
+
+  @Test
+  public void testRace() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    assertEquals("fast", IO.race(executor, slow(1_000, "slow", running, maxRunning), slow(10, "fast", running, maxRunning)).run());
+    executor.shutdown();
+  }
+
+  @Test
+  public void testParSequenceWithPermits() {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    IO<List<Integer>> io = IO.parTraverse(executor, 3, List.range(0, 30), i -> slow(5, i, running, maxRunning));
+    assertEquals(0, maxRunning.get());
+    assertEquals(List.range(0, 30), io.run());
+    assertEquals(3, maxRunning.get());
+    assertEquals(List.range(0, 5), IO.parSequence(executor, List.range(0, 5).map(IO::unit)).run());
+    assertEquals(List.list(), IO.parSequence(executor, List.<IO<Integer>>list()).run());
+    executor.shutdown();
+  }
+}
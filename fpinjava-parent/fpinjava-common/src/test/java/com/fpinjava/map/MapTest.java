@@ -0,0 +1,138 @@
+package com.fpinjava.map;
+
+import com.fpinjava.common.Tuple;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MapTest {
+
+  @Test
+  public void testBuilder() {
+    Map.Builder<String, Integer> builder = Map.builder();
+    for (int i = 0; i < 1_000; i++) {
+      builder.add("key" + i, i);
+    }
+    Map<String, Integer> map = builder.add("key5", -5).remove("key7").build();
+    assertEquals(new Tuple<>("key5", -5), map.get("key5").successValue());
+    assertEquals(new Tuple<>("key999", 999), map.get("key999").successValue());
+    assertFalse(map.contains("key7"));
+    assertTrue(map.add("key7", 7).contains("key7"));
+  }
+
+  @Test
+  public void testBuilderWithCollisions() {
+    // "Aa" and "BB" have the same hash code.
+    Map<String, Integer> map = Map.<String, Integer>builder().add("Aa", 1).add("BB", 2).build();
+    assertEquals(new Tuple<>("Aa", 1), map.get("Aa").successValue());
+    assertEquals(new Tuple<>("BB", 2), map.get("BB").successValue());
+    assertEquals(new Tuple<>("BB", 2), map.remove("Aa").get("BB").successValue());
+    assertFalse(map.remove("Aa").contains("Aa"));
+  }
+
+  /*
+   * A key with a poor hash code, so that many keys share the same hash code
+   * and many more share hash code prefixes.
+   */
+  private static final class Key {
+    private final int value;
+
+    private Key(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return (value % 97) << 20;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).value == value;
+    }
+
+    @Override
+    public String toString() {
+      return "Key" + value;
+    }
+  }
+
+  @Test
+  public void testAgainstHashMap() {
+    Random random = new Random(42);
+    java.util.HashMap<Key, Integer> expected = new HashMap<>();
+    Map<Key, Integer> map = Map.empty();
+    Map.Builder<Key, Integer> builder = Map.builder();
+    for (int i = 0; i < 20_000; i++) {
+      Key key = new Key(random.nextInt(2_000));
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.remove(key);
+        builder.remove(key);
+      } else {
+        expected.put(key, i);
+        map = map.add(key, i);
+        builder.add(key, i);
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    Map<Key, Integer> built = builder.build();
+    assertEquals(expected.size(), built.size());
+    for (int i = 0; i < 2_000; i++) {
+      Key key = new Key(i);
+      assertEquals(expected.containsKey(key), map.contains(key));
+      assertEquals(expected.get(key), map.get(key).map(t -> t._2).getOrElse((Integer) null));
+      assertEquals(expected.get(key), built.get(key).map(t -> t._2).getOrElse((Integer) null));
+    }
+    assertEquals(expected.size(), map.toList().length());
+    for (Key key : expected.keySet()) {
+      map = map.remove(key);
+    }
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testPersistence() {
+    Map<Integer, String> map = Map.empty();
+    for (int i = 0; i < 1_000; i++) {
+      map = map.add(i, "v" + i);
+    }
+    Map<Integer, String> updated = map.add(5, "five").remove(6).add(1_000, "v1000");
+    assertEquals("v5", map.get(5).successValue()._2);
+    assertTrue(map.contains(6));
+    assertFalse(map.contains(1_000));
+    assertEquals("five", updated.get(5).successValue()._2);
+    assertFalse(updated.contains(6));
+    assertEquals(1_000, map.size());
+    assertEquals(1_000, updated.size());
+    assertSame(map, map.remove(-1));
+  }
+
+  @Test
+  public void testBuilderDoesNotAlterBuiltMaps() {
+    Map.Builder<Key, Integer> builder = Map.builder();
+    for (int i = 0; i < 500; i++) {
+      builder.add(new Key(i), i);
+    }
+    Map<Key, Integer> map = builder.build();
+    Map<Key, Integer> updated = map;
+    for (int i = 0; i < 500; i += 2) {
+      updated = updated.remove(new Key(i)).add(new Key(i + 1), -i);
+    }
+    assertEquals(500, map.size());
+    assertEquals(250, updated.size());
+    for (int i = 0; i < 500; i++) {
+      assertEquals(Integer.valueOf(i), map.get(new Key(i)).successValue()._2);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBuilderUsedAfterBuild() {
+    Map.Builder<String, Integer> builder = Map.builder();
+    builder.build();
+    builder.add("a", 1);
+  }
+}
@@ -0,0 +1,188 @@
+package com.fpinjava.memo;
+
+import com.fpinjava.common.Function;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MemoizerTest {
+
+  @Test
+  public void testMemoize() {
+    AtomicInteger calls = new AtomicInteger();
+    Memoizer<Integer, Integer> f = Memoizer.memoize(x -> {
+      calls.incrementAndGet();
+      return x * 2;
+    });
+    assertEquals(Integer.valueOf(4), f.apply(2));
+    assertEquals(Integer.valueOf(4), f.apply(2));
+    assertEquals(Integer.valueOf(6), f.apply(3));
+    assertEquals(2, calls.get());
+    Memoizer.Stats stats = f.stats();
+    assertEquals(1, stats.hits);
+    assertEquals(2, stats.misses);
+    assertEquals(2, stats.loads);
+    assertEquals(0, stats.evictions);
+  }
+
+  @Test
+  public void testLru() {
+    AtomicInteger calls = new AtomicInteger();
+    Memoizer<Integer, Integer> f = Memoizer.memoize(x -> {
+      calls.incrementAndGet();
+      return x;
+    }, 2);
+    f.apply(1);
+    f.apply(2);
+    f.apply(1);
+    f.apply(3);
+    assertEquals(2, f.size());
+    assertEquals(1, f.stats().evictions);
+    f.apply(1);
+    assertEquals(3, calls.get());
+    f.apply(2);
+    assertEquals(4, calls.get());
+  }
+
+  /*
+   * Hot keys are used repeatedly while a scan of keys used only once goes
+   * on. An LRU cache of the same size loses them, while TINY_LFU keeps most
+   * of them.
+   */
+  @Test
+  public void testTinyLfuResistsScans() {
+    assertTrue(hotKeyHitRate(Memoizer.Eviction.TINY_LFU) > 0.9);
+    assertTrue(hotKeyHitRate(Memoizer.Eviction.LRU) < 0.1);
+  }
+
+  private static double hotKeyHitRate(Memoizer.Eviction eviction) {
+    Memoizer<Integer, Integer> f = Memoizer.<Integer, Integer>builder().maximumSize(200).eviction(eviction).build(x -> x);
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 100; i++) {
+        f.apply(i);
+      }
+    }
+    int scan = 1_000;
+    long hits = 0;
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < 500; i++) {
+        f.apply(scan++);
+      }
+      long before = f.stats().hits;
+      for (int i = 0; i < 100; i++) {
+        f.apply(i);
+      }
+      hits += f.stats().hits - before;
+    }
+    assertTrue(f.size() <= 200);
+    return hits / 2_000.0;
+  }
+
+  @Test
+  public void testExpireAfterWrite() {
+    AtomicLong time = new AtomicLong();
+    AtomicInteger calls = new AtomicInteger();
+    Memoizer<Integer, Integer> f = Memoizer.<Integer, Integer>builder()
+        .expireAfterWrite(10, TimeUnit.SECONDS)
+        .ticker(time::get)
+        .build(x -> x + calls.incrementAndGet());
+    assertEquals(Integer.valueOf(2), f.apply(1));
+    time.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    assertEquals(Integer.valueOf(2), f.apply(1));
+    assertEquals(Integer.valueOf(12), f.apply(10));
+    time.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    assertEquals(Integer.valueOf(4), f.apply(1));
+    assertEquals(Integer.valueOf(12), f.apply(10));
+    assertEquals(1, f.stats().evictions);
+  }
+
+  @Test
+  public void testWeakKeys() throws InterruptedException {
+    Memoizer<Object, Integer> f = Memoizer.<Object, Integer>builder().weakKeys().build(Object::hashCode);
+    Object kept = new Object();
+    f.apply(kept);
+    for (int i = 0; i < 1_000; i++) {
+      f.apply(new Object());
+    }
+    for (int i = 0; i < 50 && f.stats().evictions < 1_000; i++) {
+      System.gc();
+      Thread.sleep(20);
+      f.apply(kept);
+    }
+    assertEquals(1_000, f.stats().evictions);
+    assertEquals(1, f.size());
+  }
+
+  @Test
+  public void testConcurrentCallsAreCoalesced() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    Memoizer<Integer, Integer> f = Memoizer.memoize(x -> {
+      calls.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return x * 2;
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    Future<?>[] futures = new Future<?>[8];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = executor.submit(() -> f.apply(21));
+    }
+    while (f.stats().hits + f.stats().misses < 8) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    for (Future<?> future : futures) {
+      assertEquals(42, future.get());
+    }
+    assertEquals(1, calls.get());
+    assertEquals(7, f.stats().hits);
+    executor.shutdown();
+  }
+
+  @Test
+  public void testFailuresAreNotCached() {
+    AtomicInteger calls = new AtomicInteger();
+    Memoizer<Integer, Integer> f = Memoizer.memoize(x -> {
+      if (calls.incrementAndGet() == 1) {
+        throw new IllegalArgumentException("first call fails");
+      }
+      return x;
+    });
+    try {
+      f.apply(1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("first call fails", e.getMessage());
+    }
+    assertEquals(Integer.valueOf(1), f.apply(1));
+    assertEquals(1, f.stats().loadFailures);
+  }
+
+  private static Function<Integer, Long> fibonacci;
+  private static Function<Integer, Integer> loop;
+
+  @Test
+  public void testRecursion() {
+    fibonacci = Memoizer.memoize(n -> n < 2 ? (long) n : fibonacci.apply(n - 1) + fibonacci.apply(n - 2));
+    assertEquals(Long.valueOf(12_586_269_025L), fibonacci.apply(50));
+    loop = Memoizer.memoize(n -> loop.apply(n));
+    try {
+      loop.apply(1);
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("Recursive call"));
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.fpinjava.memo;
+
+import com.fpinjava.common.Function;
+import com.fpinjava.common.TailCall;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.fpinjava.common.TailCall.ret;
+import static org.junit.Assert.*;
+
+public class RecursiveMemoizerTest {
+
+  private static Function<Function<Integer, TailCall<BigInteger>>, Function<Integer, TailCall<BigInteger>>> fibonacci(AtomicInteger calls) {
+    return self -> n -> {
+      calls.incrementAndGet();
+      return n < 2
+          ? ret(BigInteger.valueOf(n))
+          : self.apply(n - 1).flatMap(x -> self.apply(n - 2).map(x::add));
+    };
+  }
+
+  @Test
+  public void testMemoize() {
+    AtomicInteger calls = new AtomicInteger();
+    RecursiveMemoizer<Integer, BigInteger> f = RecursiveMemoizer.memoize(fibonacci(calls));
+    assertEquals(BigInteger.valueOf(12_586_269_025L), f.apply(50));
+    assertEquals(51, calls.get());
+    assertEquals(BigInteger.valueOf(832_040L), f.apply(30));
+    assertEquals(51, calls.get());
+    f.invalidateAll();
+    assertEquals(BigInteger.valueOf(832_040L), f.apply(30));
+    assertEquals(82, calls.get());
+  }
+
+  @Test
+  public void testStackSafety() {
+    RecursiveMemoizer<Integer, BigInteger> f = RecursiveMemoizer.memoize(fibonacci(new AtomicInteger()));
+    RecursiveMemoizer<Integer, BigInteger> g = RecursiveMemoizer.memoizeRange(0, 100_001, fibonacci(new AtomicInteger()));
+    BigInteger result = f.apply(100_000);
+    assertEquals(20_899, result.toString().length());
+    assertEquals(result, g.apply(100_000));
+  }
+
+  @Test
+  public void testMemoizeRange() {
+    AtomicInteger calls = new AtomicInteger();
+    RecursiveMemoizer<Integer, BigInteger> f = RecursiveMemoizer.memoizeRange(10, 20, fibonacci(calls));
+    assertEquals(BigInteger.valueOf(6_765L), f.apply(20));
+    int first = calls.get();
+    f.apply(19);
+    assertEquals(first, calls.get());
+    f.apply(20);
+    assertEquals(first + 1, calls.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidRange() {
+    RecursiveMemoizer.memoizeRange(1, 0, fibonacci(new AtomicInteger()));
+  }
+}
@@ -21,8 +21,7 @@ public class PaymentTest {
     Tuple<List<Donut>, Payment> purchase5 = DonutShop.buyDonuts(4, creditCard2);
     List<Payment> paymentList = Payment.groupByCard(List.list(purchase1._2, purchase2._2, purchase3._2, purchase4._2, purchase5._2));
     assertEquals(2, paymentList.length());
-    Map<CreditCard, Integer> payments = new Map<>();
-    paymentList.foldLeft(payments, ps -> p -> ps.put(p.creditCard, p.amount));
+    Map<CreditCard, Integer> payments = paymentList.foldLeft(Map.<CreditCard, Integer>empty(), ps -> p -> ps.put(p.creditCard, p.amount));
     assertTrue(payments.get(creditCard1).map(v -> v.equals(16)).getOrElse(false));
     assertTrue(payments.get(creditCard2).map(v -> v.equals(14)).getOrElse(false));
   }